@@ -0,0 +1,118 @@
+package org.mutabilitydetector.checkers.settermethod;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.IFEQ;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.ISTORE;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mutabilitydetector.checkers.settermethod.ControlFlowBlock.ControlFlowBlockFactory;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building {@link ControlFlowBlock}s for generated methods with thousands of basic blocks, in the shape of
+ * generated parsers: a large <code>tableswitch</code> whose cases are each a short chain of conditional jumps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControlFlowGraphBenchmark {
+
+    private static final String OWNER = "org/mutabilitydetector/benchmarks/GeneratedParser";
+    private static final int CONDITIONS_PER_CASE = 3;
+
+    @Param({ "250", "1000", "4000" })
+    public int switchCases;
+
+    private MethodNode method;
+
+    @Setup
+    public void setUp() {
+        method = switchHeavyMethod(switchCases);
+    }
+
+    /**
+     * <code>static int parse(int state, int input)</code>, with one case per state, each testing the input
+     * {@link #CONDITIONS_PER_CASE} times before jumping to a shared exit.
+     */
+    private static MethodNode switchHeavyMethod(int switchCases) {
+        MethodNode method = new MethodNode(ACC_PUBLIC | ACC_STATIC, "parse", "(II)I", null, null);
+        LabelNode exit = new LabelNode();
+        LabelNode[] cases = new LabelNode[switchCases];
+        for (int i = 0; i < switchCases; i++) {
+            cases[i] = new LabelNode();
+        }
+
+        method.instructions.add(new VarInsnNode(ILOAD, 0));
+        method.instructions.add(new TableSwitchInsnNode(0, switchCases - 1, exit, cases));
+        for (int i = 0; i < switchCases; i++) {
+            method.instructions.add(cases[i]);
+            for (int condition = 0; condition < CONDITIONS_PER_CASE; condition++) {
+                LabelNode next = new LabelNode();
+                method.instructions.add(new VarInsnNode(ILOAD, 1));
+                method.instructions.add(new JumpInsnNode(IFEQ, next));
+                method.instructions.add(new IincInsnNode(1, -1));
+                method.instructions.add(next);
+            }
+            method.instructions.add(new JumpInsnNode(GOTO, exit));
+        }
+        method.instructions.add(exit);
+        method.instructions.add(new InsnNode(ICONST_0));
+        method.instructions.add(new VarInsnNode(ISTORE, 0));
+        method.instructions.add(new VarInsnNode(ILOAD, 1));
+        method.instructions.add(new InsnNode(IRETURN));
+        method.maxStack = 1;
+        method.maxLocals = 2;
+        return method;
+    }
+
+    @Benchmark
+    public Object controlFlowBlocks() {
+        return ControlFlowBlockFactory.newInstance(OWNER, method).getAllControlFlowBlocksForMethod();
+    }
+}
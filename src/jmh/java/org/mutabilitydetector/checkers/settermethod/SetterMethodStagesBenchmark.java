@@ -0,0 +1,110 @@
+package org.mutabilitydetector.checkers.settermethod;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.objectweb.asm.Opcodes.ACC_ABSTRACT;
+import static org.objectweb.asm.Opcodes.ACC_NATIVE;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mutabilitydetector.checkers.settermethod.ControlFlowBlock.ControlFlowBlockFactory;
+import org.mutabilitydetector.classpath.ClassFiles;
+import org.mutabilitydetector.locations.Dotted;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicInterpreter;
+import org.objectweb.asm.tree.analysis.BasicValue;
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+
+/**
+ * The two expensive stages of {@link SetterMethodChecker}, over every method of a class: the data flow
+ * {@link Analyzer}, and building {@link ControlFlowBlock}s, which follows the control flow edges of each method
+ * without the data flow analysis.
+ *
+ * @see ControlFlowGraphBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetterMethodStagesBenchmark {
+
+    @Param({ "java.lang.String", "java.util.HashMap", "java.util.regex.Pattern" })
+    public String className;
+
+    private String owner;
+    private List<MethodNode> methods;
+
+    @Setup
+    public void setUp() {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(bytesOf(className)).accept(classNode, 0);
+        owner = classNode.name;
+        methods = new ArrayList<MethodNode>();
+        for (MethodNode method : classNode.methods) {
+            if ((method.access & (ACC_ABSTRACT | ACC_NATIVE)) == 0 && method.instructions.size() > 0) {
+                methods.add(method);
+            }
+        }
+    }
+
+    private static byte[] bytesOf(String className) {
+        ClassPathFactory factory = new ClassPathFactory();
+        ClassPath classpath = factory.createFromPath(System.getProperty("sun.boot.class.path", "") + File.pathSeparator + factory.getJVMClasspath());
+        return ClassFiles.read(classpath, Dotted.dotted(className)).get();
+    }
+
+    @Benchmark
+    public void analyzer(Blackhole blackhole) throws AnalyzerException {
+        for (MethodNode method : methods) {
+            blackhole.consume(new Analyzer<BasicValue>(new BasicInterpreter()).analyze(owner, method));
+        }
+    }
+
+    @Benchmark
+    public void controlFlowBlocks(Blackhole blackhole) {
+        for (MethodNode method : methods) {
+            blackhole.consume(ControlFlowBlockFactory.newInstance(owner, method).getAllControlFlowBlocksForMethod());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.mutabilitydetector.jmh;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static com.google.classpath.RegExpResourceFilter.ANY;
+import static com.google.classpath.RegExpResourceFilter.ENDS_WITH_CLASS;
+import static org.mutabilitydetector.Configurations.OUT_OF_THE_BOX_CONFIGURATION;
+import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithGivenClassPath;
+import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.CARRY_ON;
+import static org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice.NAIVE_PUT_FIELD_ANALYSIS;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.Configuration;
+import org.mutabilitydetector.ConfigurationBuilder;
+import org.mutabilitydetector.asmoverride.NonClassLoadingVerifierFactory;
+import org.mutabilitydetector.checkers.ClassPathBasedCheckerRunnerFactory;
+import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
+import org.mutabilitydetector.classpath.ClassBytesSource;
+import org.mutabilitydetector.cli.BatchAnalysisSession;
+import org.mutabilitydetector.cli.NamesFromClassResources;
+import org.mutabilitydetector.locations.Dotted;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+import com.google.classpath.RegExpResourceFilter;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A full batch analysis of every class in a jar, as run from the command line. Each operation is one complete run
+ * with a new session, so results are reported as time per run rather than throughput. The {@code jar} parameter
+ * also accepts a path to any other jar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BatchAnalysisBenchmark {
+
+    /** As configured by the command line, which carries on past classes that cannot be analysed. */
+    private static final Configuration CONFIGURATION = new ConfigurationBuilder() {
+        @Override
+        public void configure() {
+            mergeHardcodedResultsFrom(OUT_OF_THE_BOX_CONFIGURATION);
+            setExceptionPolicy(CARRY_ON);
+        }
+    }.build();
+
+    @Param({ "rt.jar", "guava.jar" })
+    public String jar;
+
+    @Param({ "1", "4" })
+    public int parallelism;
+
+    private ClassPath classpath;
+    private List<Dotted> classNames;
+
+    @Setup
+    public void setUp() {
+        String jarPath = pathOf(jar);
+        String[] classResources = new ClassPathFactory().createFromPath(jarPath)
+                .findResources("", new RegExpResourceFilter(ANY, ENDS_WITH_CLASS));
+        classpath = new ClassPathFactory().createFromPath(System.getProperty("sun.boot.class.path", "") + File.pathSeparator + jarPath);
+        classNames = ImmutableList.copyOf(new NamesFromClassResources(".*").asDotted(classResources));
+    }
+
+    @Benchmark
+    public AnalysisSession analyseAllClasses() {
+        ClassPath classpath = ClassBytesSource.cached(this.classpath);
+        AnalysisSession session = createWithGivenClassPath(classpath,
+                new ClassPathBasedCheckerRunnerFactory(classpath, CONFIGURATION.exceptionPolicy()),
+                new MutabilityCheckerFactory(NAIVE_PUT_FIELD_ANALYSIS,
+                                             CONFIGURATION.immutableContainerClasses()),
+                new NonClassLoadingVerifierFactory(classpath),
+                CONFIGURATION);
+        return new BatchAnalysisSession(session, parallelism).runAnalysis(classNames);
+    }
+
+    private static String pathOf(String jar) {
+        if (jar.equals("rt.jar")) {
+            return System.getProperty("java.home") + File.separator + "lib" + File.separator + "rt.jar";
+        } else if (jar.equals("guava.jar")) {
+            return ImmutableList.class.getProtectionDomain().getCodeSource().getLocation().getPath();
+        } else {
+            return jar;
+        }
+    }
+}
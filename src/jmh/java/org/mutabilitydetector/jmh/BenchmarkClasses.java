@@ -0,0 +1,60 @@
+package org.mutabilitydetector.jmh;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+
+import org.mutabilitydetector.classpath.ClassBytesSource;
+import org.mutabilitydetector.classpath.ClassFiles;
+import org.mutabilitydetector.locations.Dotted;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+import com.google.common.base.Optional;
+
+final class BenchmarkClasses {
+
+    private BenchmarkClasses() throws InstantiationException {
+        throw new InstantiationException("This class is not created for instantiation");
+    }
+
+    /**
+     * @return the application classpath together with the boot classpath, so that JDK classes can be read without
+     *         falling back to class loading.
+     */
+    static ClassPath runtimeClassPath() {
+        String bootClassPath = System.getProperty("sun.boot.class.path", "");
+        ClassPathFactory factory = new ClassPathFactory();
+        return ClassBytesSource.cached(factory.createFromPath(bootClassPath + File.pathSeparator + factory.getJVMClasspath()));
+    }
+
+    static ClassNode classNodeOf(ClassPath classpath, String className) {
+        Optional<byte[]> classFile = ClassFiles.read(classpath, Dotted.dotted(className));
+        if (!classFile.isPresent()) {
+            throw new IllegalArgumentException("Cannot read class file for " + className);
+        }
+        ClassNode classNode = new ClassNode();
+        new ClassReader(classFile.get()).accept(classNode, 0);
+        return classNode;
+    }
+}
@@ -0,0 +1,129 @@
+package org.mutabilitydetector.jmh;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.mutabilitydetector.Configurations.OUT_OF_THE_BOX_CONFIGURATION;
+import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.CARRY_ON;
+import static org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice.NAIVE_PUT_FIELD_ANALYSIS;
+import static org.mutabilitydetector.checkers.info.AnalysisDatabase.newAnalysisDatabase;
+import static org.mutabilitydetector.checkers.info.AnalysisInProgress.noAnalysisUnderway;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.DefaultCachingAnalysisSession;
+import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
+import org.mutabilitydetector.asmoverride.NonClassLoadingVerifierFactory;
+import org.mutabilitydetector.checkers.AsmMutabilityChecker;
+import org.mutabilitydetector.checkers.CheckerResult;
+import org.mutabilitydetector.checkers.CheckerRunner;
+import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
+import org.mutabilitydetector.checkers.info.AnalysisDatabase;
+import org.mutabilitydetector.checkers.info.CyclicReferences;
+import org.mutabilitydetector.checkers.info.InformationRetrievalRunner;
+import org.mutabilitydetector.checkers.info.MutableTypeInformation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.objectweb.asm.tree.ClassNode;
+
+import com.google.classpath.ClassPath;
+
+/**
+ * Runs one checker at a time over an already parsed class. Information the checker requests from the session, such
+ * as the mutability of field types, is computed once during warmup and then served from the session's cache.
+ * <p>
+ * A checker collects its result as it visits, so each invocation needs a new one. It is created before the
+ * invocation, outside the measured time, so that only the visit itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckerBenchmark {
+
+    @Param({ "CanSubclassChecker",
+             "PublishedNonFinalFieldChecker",
+             "NonFinalFieldChecker",
+             "OldSetterMethodChecker",
+             "MutableTypeToFieldChecker",
+             "InherentTypeMutabilityChecker",
+             "ArrayFieldMutabilityChecker",
+             "EscapedThisReferenceChecker",
+             "CollectionWithMutableElementTypeToFieldChecker" })
+    public String checker;
+
+    @Param({ "java.util.ArrayList", "java.lang.String" })
+    public String className;
+
+    private ClassNode classNode;
+    private MutabilityCheckerFactory checkerFactory;
+    private AnalysisDatabase database;
+    private AsmVerifierFactory verifierFactory;
+    private MutableTypeInformation mutableTypeInformation;
+    private AsmMutabilityChecker selected;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ClassPath classpath = BenchmarkClasses.runtimeClassPath();
+        AnalysisSession session = DefaultCachingAnalysisSession.createWithCurrentClassPath(OUT_OF_THE_BOX_CONFIGURATION);
+
+        classNode = BenchmarkClasses.classNodeOf(classpath, className);
+        checkerFactory = new MutabilityCheckerFactory(NAIVE_PUT_FIELD_ANALYSIS,
+                                                      OUT_OF_THE_BOX_CONFIGURATION.immutableContainerClasses());
+        database = newAnalysisDatabase(new InformationRetrievalRunner(session, CheckerRunner.createWithClasspath(classpath, CARRY_ON)));
+        verifierFactory = new NonClassLoadingVerifierFactory(classpath);
+        mutableTypeInformation = new MutableTypeInformation(session,
+                                                            OUT_OF_THE_BOX_CONFIGURATION,
+                                                            CyclicReferences.newEmptyMutableInstance());
+    }
+
+    @Setup(Level.Invocation)
+    public void createChecker() {
+        selected = selectedChecker();
+    }
+
+    @Benchmark
+    public CheckerResult runChecker() {
+        classNode.accept(selected);
+        return selected.checkerResult();
+    }
+
+    private AsmMutabilityChecker selectedChecker() {
+        for (AsmMutabilityChecker candidate : checkerFactory.createInstances(database, verifierFactory, mutableTypeInformation, noAnalysisUnderway())) {
+            if (candidate.getClass().getSimpleName().equals(checker)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("No checker named " + checker);
+    }
+}
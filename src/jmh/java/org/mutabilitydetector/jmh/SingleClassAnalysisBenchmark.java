@@ -0,0 +1,131 @@
+package org.mutabilitydetector.jmh;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.mutabilitydetector.Configurations.OUT_OF_THE_BOX_CONFIGURATION;
+import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithCurrentClassPath;
+import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithGivenClassPath;
+import static org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice.NAIVE_PUT_FIELD_ANALYSIS;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.asmoverride.NonClassLoadingVerifierFactory;
+import org.mutabilitydetector.checkers.ClassPathBasedCheckerRunnerFactory;
+import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
+import org.mutabilitydetector.locations.Dotted;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.classpath.ClassPath;
+
+/**
+ * Analysis of a single class through {@link AnalysisSession#resultFor(Dotted)}.
+ * <ul>
+ * <li>{@code cold}: the first analysis in a new JVM, over a new session and classpath. Each measurement is a single
+ * shot in its own fork, so nothing has been read, loaded, interned or compiled beforehand.</li>
+ * <li>{@code warmClassFiles}: a new session over a shared classpath whose class files are already in memory.</li>
+ * <li>{@code cachedResult}: a session which has already analysed the class.</li>
+ * </ul>
+ * Each kind of prepared state is a separate {@link State}, so a benchmark only pays for the setup it uses.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SingleClassAnalysisBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ClassToAnalyse {
+        @Param({ "java.lang.String", "java.util.ArrayList", "org.mutabilitydetector.AnalysisResult" })
+        public String className;
+
+        Dotted toAnalyse;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            toAnalyse = Dotted.dotted(className);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ClassFilesInMemory {
+        ClassPath classpath;
+
+        @Setup(Level.Trial)
+        public void setUp(ClassToAnalyse target) {
+            classpath = BenchmarkClasses.runtimeClassPath();
+            newSessionOver(classpath).resultFor(target.toAnalyse);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class AnalysedSession {
+        AnalysisSession session;
+
+        @Setup(Level.Trial)
+        public void setUp(ClassToAnalyse target) {
+            session = createWithCurrentClassPath(OUT_OF_THE_BOX_CONFIGURATION);
+            session.resultFor(target.toAnalyse);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public AnalysisResult cold(ClassToAnalyse target) {
+        return createWithCurrentClassPath(OUT_OF_THE_BOX_CONFIGURATION).resultFor(target.toAnalyse);
+    }
+
+    @Benchmark
+    public AnalysisResult warmClassFiles(ClassToAnalyse target, ClassFilesInMemory classFiles) {
+        return newSessionOver(classFiles.classpath).resultFor(target.toAnalyse);
+    }
+
+    @Benchmark
+    public AnalysisResult cachedResult(ClassToAnalyse target, AnalysedSession analysed) {
+        return analysed.session.resultFor(target.toAnalyse);
+    }
+
+    private static AnalysisSession newSessionOver(ClassPath classpath) {
+        return createWithGivenClassPath(classpath,
+                new ClassPathBasedCheckerRunnerFactory(classpath, OUT_OF_THE_BOX_CONFIGURATION.exceptionPolicy()),
+                new MutabilityCheckerFactory(NAIVE_PUT_FIELD_ANALYSIS,
+                                             OUT_OF_THE_BOX_CONFIGURATION.immutableContainerClasses()),
+                new NonClassLoadingVerifierFactory(classpath),
+                OUT_OF_THE_BOX_CONFIGURATION);
+    }
+}
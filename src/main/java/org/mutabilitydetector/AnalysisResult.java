@@ -23,10 +23,11 @@ package org.mutabilitydetector;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
 import org.mutabilitydetector.locations.Dotted;
 
 import javax.annotation.concurrent.Immutable;
-import java.util.ArrayList;
+
 import java.util.Collection;
 import java.util.Collections;
 
@@ -40,7 +41,7 @@ public final class AnalysisResult {
     public final IsImmutable isImmutable;
     public final Collection<MutableReasonDetail> reasons;
     public final Collection<AnalysisError> errors;
-    private final int hashCode;
+    private int hashCode;
 
     /**
      * The field {@link #className} contains the same class name.
@@ -58,10 +59,8 @@ public final class AnalysisResult {
         this.className = className;
         this.dottedClassName = className.asString();
         this.isImmutable = isImmutable;
-        this.reasons = Collections.unmodifiableList(new ArrayList<MutableReasonDetail>(reasons));
-        this.errors = Collections.unmodifiableList(new ArrayList<AnalysisError>(errors));
-        
-        this.hashCode = Objects.hashCode(className, isImmutable, reasons, errors);
+        this.reasons = ImmutableList.copyOf(reasons);
+        this.errors = ImmutableList.copyOf(errors);
     }
 
     @Override
@@ -76,7 +75,13 @@ public final class AnalysisResult {
 
     @Override
     public int hashCode() {
-        return hashCode;
+        // Computed when first needed, as hashing the reasons builds their messages.
+        int hash = hashCode;
+        if (hash == 0) {
+            hash = Objects.hashCode(className, isImmutable, reasons, errors);
+            hashCode = hash;
+        }
+        return hash;
     }
 
     @Override
@@ -25,6 +25,7 @@ package org.mutabilitydetector;
 import java.util.Map;
 
 import org.mutabilitydetector.checkers.info.AnalysisInProgress;
+import org.mutabilitydetector.checkers.info.ClassDependencies;
 import org.mutabilitydetector.locations.Dotted;
 
 public interface AnalysisSession {
@@ -36,4 +37,22 @@ public interface AnalysisSession {
     
     Iterable<AnalysisError> getErrors();
 
+    /**
+     * The dependencies between classes discovered so far, such as a class needing the result of its field types.
+     * <p>
+     * Sessions which do not track dependencies return an empty graph, which is the default.
+     */
+    default ClassDependencies dependencies() {
+        return new ClassDependencies();
+    }
+
+    /**
+     * Where the time of this session has gone. Timings are only recorded if the session's configuration
+     * {@link Configuration#recordsStatistics() records statistics}, and sessions which do not record them return
+     * {@link SessionStatistics#disabled() disabled} statistics, which is the default.
+     */
+    default SessionStatistics statistics() {
+        return SessionStatistics.disabled();
+    }
+
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ package org.mutabilitydetector;
 
 import com.google.common.collect.ImmutableSetMultimap;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory.ClassloadingOption;
+import org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode;
 import org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy;
 import org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice;
 import org.mutabilitydetector.checkers.info.CopyMethod;
@@ -135,6 +136,44 @@ public interface Configuration {
      */
     ClassloadingOption classloadingOption();
 
+    /**
+     * Configures whether every reason for mutability is found, or only enough to decide the result.
+     * <p>
+     * With {@link AnalysisMode#VERDICT_ONLY}, analysis of a class stops as soon as it is known to be mutable. The
+     * {@link IsImmutable} result is unchanged, but the reasons given may be incomplete. This suits runs which only
+     * act on the result, such as a build gate over many classes.
+     *
+     * @return AnalysisMode
+     *          - how much of the analysis to perform. Defaults to {@link AnalysisMode#FULL}.
+     */
+    default AnalysisMode analysisMode() {
+        return AnalysisMode.FULL;
+    }
+
+    /**
+     * Configures the memory an analysis session may use to hold results in full.
+     * <p>
+     * Beyond this budget, the least recently used results are kept only in a compact form: the {@link IsImmutable}
+     * result, the first reason and any errors. This bounds the memory needed to analyse a very large classpath.
+     *
+     * @return long
+     *          - the estimated memory in bytes. Defaults to {@link Long#MAX_VALUE}, meaning no limit.
+     */
+    default long resultMemoryBudget() {
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Configures whether an analysis session records where its time goes.
+     *
+     * @return boolean
+     *          - true to record timings in {@link AnalysisSession#statistics()}. Defaults to false.
+     * @see SessionStatistics
+     */
+    default boolean recordsStatistics() {
+        return false;
+    }
+
     /**
      * Only to be used in development. This method will never appear in a released version.
      */
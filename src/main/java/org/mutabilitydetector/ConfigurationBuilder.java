@@ -27,6 +27,7 @@ import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory.ClassloadingOption;
+import org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode;
 import org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy;
 import org.mutabilitydetector.checkers.MethodIs;
 import org.mutabilitydetector.checkers.MutabilityAnalysisException;
@@ -47,6 +48,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.FAIL_FAST;
 import static org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice.NAIVE_PUT_FIELD_ANALYSIS;
 import static org.mutabilitydetector.config.HardcodedResultsUsage.LOOKUP_WHEN_REFERENCED;
@@ -138,7 +140,10 @@ public abstract class ConfigurationBuilder {
                 classloadingOption,
                 reassignedFieldAlgorithm,
                 validCopyMethods.build(),
-                howToUseHardcodedResults);
+                howToUseHardcodedResults,
+                analysisMode,
+                resultMemoryBudget,
+                recordsStatistics);
     }
     
     private ImmutableSet.Builder<AnalysisResult> hardcodedResults = ImmutableSet.builder();
@@ -148,6 +153,9 @@ public abstract class ConfigurationBuilder {
     private ReassignedFieldAnalysisChoice reassignedFieldAlgorithm = NAIVE_PUT_FIELD_ANALYSIS;
     private ImmutableSetMultimap.Builder<String,CopyMethod> validCopyMethods = ImmutableSetMultimap.builder();
     private HardcodedResultsUsage howToUseHardcodedResults = LOOKUP_WHEN_REFERENCED;
+    private AnalysisMode analysisMode = AnalysisMode.FULL;
+    private long resultMemoryBudget = Long.MAX_VALUE;
+    private boolean recordsStatistics = false;
 
     
     /**
@@ -212,6 +220,52 @@ public abstract class ConfigurationBuilder {
         this.classloadingOption = classloadingOption;
     }
 
+    /**
+     * Configures whether analysis finds every reason for mutability, or stops once the result is decided.
+     * <p>
+     * The default, {@link AnalysisMode#FULL}, reports every reason a class is mutable. Setting
+     * {@link AnalysisMode#VERDICT_ONLY} runs the cheapest checks first and stops analysing a class as soon as it
+     * is found to be mutable. Results are the same, but reasons may be incomplete, so this is best suited to
+     * checking many classes where only the result is needed.
+     *
+     * @see Configuration#analysisMode()
+     * @param analysisMode
+     *            - how much of the analysis to perform. Defaults to
+     *            {@link AnalysisMode#FULL}
+     */
+    protected final void setAnalysisMode(AnalysisMode analysisMode) {
+        this.analysisMode = analysisMode;
+    }
+
+    /**
+     * Limits the memory an analysis session uses to hold results.
+     * <p>
+     * Once the estimated size of the results held exceeds the budget, the least recently used are reduced to their
+     * result, first reason and any errors. Results are never discarded entirely, so no class is analysed twice, but
+     * reasons for classes analysed early in a large run may be incomplete when the session's results are read.
+     *
+     * @see Configuration#resultMemoryBudget()
+     * @param bytes
+     *            - the estimated memory, in bytes, to hold results in full. Defaults to {@link Long#MAX_VALUE},
+     *            meaning no limit
+     */
+    protected final void setResultMemoryBudget(long bytes) {
+        checkArgument(bytes > 0, "Result memory budget must be positive, but was %s", bytes);
+        this.resultMemoryBudget = bytes;
+    }
+
+    /**
+     * Records how long each checker and the parsing of class files take, and how deep transitive analysis goes, in
+     * the {@link SessionStatistics} of each analysis session. Results are unaffected.
+     *
+     * @see Configuration#recordsStatistics()
+     * @param recordsStatistics
+     *            - whether to record statistics. Defaults to false
+     */
+    protected final void setRecordStatistics(boolean recordsStatistics) {
+        this.recordsStatistics = recordsStatistics;
+    }
+
     /**
      * Add a predefined result used during analysis.
      * <p>
@@ -479,6 +533,9 @@ public abstract class ConfigurationBuilder {
         private final ExceptionPolicy exceptionPolicy;
         private final ClassloadingOption classloadingOption;
         private final ReassignedFieldAnalysisChoice reassignedFieldAlgorithm;
+        private final AnalysisMode analysisMode;
+        private final long resultMemoryBudget;
+        private final boolean recordsStatistics;
 
         private DefaultConfiguration(ImmutableSet<AnalysisResult> predefinedResults,
                                      ImmutableSet<Dotted> immutableContainerClasses,
@@ -486,7 +543,10 @@ public abstract class ConfigurationBuilder {
                                      ClassloadingOption classloadingOption,
                                      ReassignedFieldAnalysisChoice reassignedFieldAlgorithm,
                                      ImmutableSetMultimap<String, CopyMethod> validCopyMethods,
-                                     HardcodedResultsUsage howToUseHardcodedResults) {
+                                     HardcodedResultsUsage howToUseHardcodedResults,
+                                     AnalysisMode analysisMode,
+                                     long resultMemoryBudget,
+                                     boolean recordsStatistics) {
             this.immutableContainerClasses = immutableContainerClasses;
             this.exceptionPolicy = exceptionPolicy;
             this.hardcodedResults = predefinedResults;
@@ -496,6 +556,9 @@ public abstract class ConfigurationBuilder {
                             .collect(Collectors.toMap(r -> r.className, r -> r)));
             this.reassignedFieldAlgorithm = reassignedFieldAlgorithm;
             this.validCopyMethods = validCopyMethods;
+            this.analysisMode = analysisMode;
+            this.resultMemoryBudget = resultMemoryBudget;
+            this.recordsStatistics = recordsStatistics;
         }
 
         @Override
@@ -519,6 +582,21 @@ public abstract class ConfigurationBuilder {
         @Override
         public ClassloadingOption classloadingOption() { return classloadingOption; }
 
+        @Override
+        public AnalysisMode analysisMode() {
+            return analysisMode;
+        }
+
+        @Override
+        public long resultMemoryBudget() {
+            return resultMemoryBudget;
+        }
+
+        @Override
+        public boolean recordsStatistics() {
+            return recordsStatistics;
+        }
+
         @Override
         public ReassignedFieldAnalysisChoice reassignedFieldAlgorithm() {
             return reassignedFieldAlgorithm;
@@ -23,32 +23,62 @@ package org.mutabilitydetector;
 
 import com.google.classpath.ClassPath;
 import com.google.classpath.ClassPathFactory;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
 import org.mutabilitydetector.asmoverride.ClassLoadingVerifierFactory;
+import org.mutabilitydetector.cache.PersistentResultCache;
 import org.mutabilitydetector.checkers.AllChecksRunner;
 import org.mutabilitydetector.checkers.CheckerRunnerFactory;
 import org.mutabilitydetector.checkers.ClassPathBasedCheckerRunnerFactory;
 import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
 import org.mutabilitydetector.checkers.info.AnalysisDatabase;
 import org.mutabilitydetector.checkers.info.AnalysisInProgress;
+import org.mutabilitydetector.checkers.info.ClassDependencies;
+import org.mutabilitydetector.checkers.info.CyclicAnalysisException;
 import org.mutabilitydetector.checkers.info.CyclicReferences;
 import org.mutabilitydetector.checkers.info.InformationRetrievalRunner;
 import org.mutabilitydetector.checkers.info.MutableTypeInformation;
 import org.mutabilitydetector.classloading.CachingAnalysisClassLoader;
 import org.mutabilitydetector.classloading.ClassForNameWrapper;
+import org.mutabilitydetector.classpath.ClassBytesSource;
+import org.mutabilitydetector.classpath.ClassFiles;
+import org.mutabilitydetector.classpath.ClassHeaderIndex;
 import org.mutabilitydetector.locations.Dotted;
 
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
+import static org.mutabilitydetector.checkers.info.AnalysisDatabase.PRIVATE_METHOD_INVOCATION;
+import static org.mutabilitydetector.checkers.info.AnalysisDatabase.TYPE_STRUCTURE;
 import static org.mutabilitydetector.checkers.info.AnalysisDatabase.newAnalysisDatabase;
 import static org.mutabilitydetector.config.HardcodedResultsUsage.DIRECTLY_IN_ASSERTION;
 
+/**
+ * An {@link AnalysisSession} which caches every result it computes.
+ * <p>
+ * Results are held in full unless {@link Configuration#resultMemoryBudget()} is exceeded, after which the least
+ * recently used are held only in a compact form. No result is discarded entirely, so no class is analysed twice.
+ * <p>
+ * A session may be shared between threads. Each class is analysed at most once: a thread requesting a class which
+ * another thread is already analysing waits for that analysis instead of repeating it, while requests for
+ * different classes proceed independently.
+ */
+@ThreadSafe
 public final class DefaultCachingAnalysisSession implements AnalysisSession {
 
     private final MutabilityCheckerFactory checkerFactory;
@@ -57,22 +87,41 @@ public final class DefaultCachingAnalysisSession implements AnalysisSession {
     private final AsmVerifierFactory verifierFactory;
     private final Configuration configuration;
     private final CyclicReferences cyclicReferences;
-    private final Cache<Dotted, AnalysisResult> analysedClasses;
+    private final ClassDependencies dependencies = new ClassDependencies();
+    private final ResultStore analysedClasses;
+    private final ClassPath classpath;
+    private final Optional<PersistentResultCache> persistentResults;
+    private final SessionStatistics statistics;
+    private final ConcurrentMap<Dotted, InFlightAnalysis> inFlight = new ConcurrentHashMap<>();
+    @GuardedBy("inFlight") private final Map<Thread, InFlightAnalysis> awaiting = new HashMap<>();
 
     private DefaultCachingAnalysisSession(CheckerRunnerFactory checkerRunnerFactory,
                                           MutabilityCheckerFactory checkerFactory,
                                           AsmVerifierFactory verifierFactory,
-                                          Configuration configuration) {
+                                          Configuration configuration,
+                                          ClassPath classpath,
+                                          Optional<PersistentResultCache> persistentResults) {
         this.checkerRunnerFactory = checkerRunnerFactory;
+        this.classpath = classpath;
+        this.persistentResults = persistentResults;
         this.checkerFactory = checkerFactory;
         this.verifierFactory = verifierFactory;
         this.configuration = configuration;
         this.cyclicReferences = new CyclicReferences();
-        this.analysedClasses = CacheBuilder.newBuilder().recordStats().build();
-        this.analysedClasses.putAll(hardcodedResultsForDirectAssertion(configuration));
+        this.analysedClasses = new ResultStore(hardcodedResultsForDirectAssertion(configuration),
+                configuration.resultMemoryBudget(),
+                configuration.recordsStatistics());
 
         InformationRetrievalRunner informationRetrievalRunner = new InformationRetrievalRunner(this, checkerRunnerFactory.createRunner());
-        this.database = newAnalysisDatabase(informationRetrievalRunner);
+        this.database = newAnalysisDatabase(informationRetrievalRunner,
+                ClassHeaderIndex.of(classpath),
+                configuration.recordsStatistics());
+
+        this.statistics = configuration.recordsStatistics() ? SessionStatistics.enabled() : SessionStatistics.disabled();
+        statistics.registerCache("Analysed classes", analysedClasses::stats);
+        statistics.registerCache("Type structure", () -> database.requestInformation(TYPE_STRUCTURE).cacheStats());
+        statistics.registerCache("Private method invocation",
+                () -> database.requestInformation(PRIVATE_METHOD_INVOCATION).cacheStats());
     }
 
     private Map<Dotted, AnalysisResult> hardcodedResultsForDirectAssertion(Configuration configuration) {
@@ -86,7 +135,22 @@ public final class DefaultCachingAnalysisSession implements AnalysisSession {
                                                            MutabilityCheckerFactory checkerFactory,
                                                            AsmVerifierFactory verifierFactory,
                                                            Configuration configuration) {
-        return createWithGivenClassPath(classpath, configuration, verifierFactory);
+        return createWithGivenClassPath(classpath, configuration, verifierFactory, Optional.<PersistentResultCache>absent());
+    }
+
+    /**
+     * Creates an analysis session which reuses results from, and adds new results to, the given persistent cache.
+     * The checkers, and the runner which applies them, are built from the given configuration.
+     * <p>
+     * The session does not save the cache; call {@link PersistentResultCache#save()} once analysis is complete.
+     *
+     * @see PersistentResultCache
+     */
+    public static AnalysisSession createWithGivenClassPath(ClassPath classpath,
+                                                           Configuration configuration,
+                                                           AsmVerifierFactory verifierFactory,
+                                                           PersistentResultCache persistentResults) {
+        return createWithGivenClassPath(classpath, configuration, verifierFactory, Optional.of(persistentResults));
     }
 
 
@@ -101,18 +165,26 @@ public final class DefaultCachingAnalysisSession implements AnalysisSession {
      */
     public static AnalysisSession createWithCurrentClassPath(Configuration configuration) {
         ClassPath classpath = new ClassPathFactory().createFromJVM();
-        ClassLoadingVerifierFactory verifierFactory = new ClassLoadingVerifierFactory(new CachingAnalysisClassLoader(new ClassForNameWrapper()));
-        return createWithGivenClassPath(classpath, configuration, verifierFactory);
+        CachingAnalysisClassLoader classLoader = new CachingAnalysisClassLoader(new ClassForNameWrapper(),
+                configuration.recordsStatistics());
+        ClassLoadingVerifierFactory verifierFactory = new ClassLoadingVerifierFactory(classLoader);
+        AnalysisSession session = createWithGivenClassPath(classpath, configuration, verifierFactory, Optional.<PersistentResultCache>absent());
+        session.statistics().registerCache("Class loader", classLoader::stats);
+        return session;
     }
 
     @SuppressWarnings("deprecation")
     private static AnalysisSession createWithGivenClassPath(ClassPath classpath,
                                                             Configuration configuration,
-                                                            AsmVerifierFactory verifierFactory) {
-        return new DefaultCachingAnalysisSession(new ClassPathBasedCheckerRunnerFactory(classpath, configuration.exceptionPolicy()),
+                                                            AsmVerifierFactory verifierFactory,
+                                                            Optional<PersistentResultCache> persistentResults) {
+        ClassPath classBytes = ClassBytesSource.cached(classpath);
+        return new DefaultCachingAnalysisSession(new ClassPathBasedCheckerRunnerFactory(classBytes, configuration.exceptionPolicy()),
                 new MutabilityCheckerFactory(configuration.reassignedFieldAlgorithm(), configuration.immutableContainerClasses()),
                 verifierFactory,
-                configuration);
+                configuration,
+                classBytes,
+                persistentResults);
     }
 
     @Override
@@ -125,47 +197,262 @@ public final class DefaultCachingAnalysisSession implements AnalysisSession {
         return requestAnalysis(className, analysisInProgress);
     }
 
+    /**
+     * Analyses the given class, and any classes whose results it depends on, without nesting one analysis inside
+     * another.
+     * <p>
+     * Each class is first analysed with its transitive analyses deferred. The checkers which look up other classes
+     * run first, and if any analysis was deferred the remaining checkers are skipped. The deferred classes are then
+     * pushed onto a worklist, analysed first, and the class is then analysed in full with their results available.
+     * The second analysis of a class falls back to requesting any result still missing directly, so every class is
+     * analysed at most twice, and only the checkers which look up other classes ever run twice.
+     */
     private AnalysisResult requestAnalysis(Dotted className, AnalysisInProgress analysisInProgress) {
-        AnalysisResult existingResult = analysedClasses.getIfPresent(className);
+        AnalysisResult existingResult = analysedClasses.get(className);
         if (existingResult != null) {
             return existingResult;
         }
 
-        MutableTypeInformation mutableTypeInformation = new MutableTypeInformation(this, configuration, cyclicReferences);
+        InFlightAnalysis analysis = new InFlightAnalysis(Thread.currentThread());
+        InFlightAnalysis alreadyInFlight = inFlight.putIfAbsent(className, analysis);
+        if (alreadyInFlight != null) {
+            return awaitResult(className, alreadyInFlight);
+        }
 
+        PendingAnalysis requested = new PendingAnalysis(className, analysisInProgress);
+        requested.analysis = analysis;
+        Deque<PendingAnalysis> worklist = new ArrayDeque<>();
+        worklist.push(requested);
+        try {
+            while (!worklist.isEmpty()) {
+                PendingAnalysis next = worklist.peek();
+                if (next.analysis == null && !startAnalysis(next)) {
+                    worklist.pop();
+                    continue;
+                }
+                try {
+                    Optional<AnalysisResult> result = analyse(next, worklist);
+                    if (result.isPresent()) {
+                        completeAnalysis(next, result.get());
+                        worklist.pop();
+                    }
+                } catch (RuntimeException e) {
+                    if (next == requested) {
+                        throw e;
+                    }
+                    // Leave the failure to be reported where it was needed, when the dependent class asks again.
+                    abandonAnalysis(next, e);
+                    worklist.pop();
+                }
+            }
+            return requested.analysis.result.join();
+        } catch (RuntimeException | Error e) {
+            for (PendingAnalysis pending : worklist) {
+                if (pending.analysis != null) {
+                    abandonAnalysis(pending, e);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return false if the class has already been analysed, or is being analysed by another thread.
+     */
+    private boolean startAnalysis(PendingAnalysis pending) {
+        if (analysedClasses.get(pending.className) != null) {
+            return false;
+        }
+        InFlightAnalysis analysis = new InFlightAnalysis(Thread.currentThread());
+        if (inFlight.putIfAbsent(pending.className, analysis) != null) {
+            return false;
+        }
+        pending.analysis = analysis;
+        return true;
+    }
+
+    private void completeAnalysis(PendingAnalysis pending, AnalysisResult result) {
+        pending.analysis.result.complete(addAnalysisResult(result));
+        inFlight.remove(pending.className, pending.analysis);
+    }
+
+    private void abandonAnalysis(PendingAnalysis pending, Throwable cause) {
+        pending.analysis.result.completeExceptionally(cause);
+        inFlight.remove(pending.className, pending.analysis);
+    }
+
+    private Optional<AnalysisResult> analyse(PendingAnalysis pending, Deque<PendingAnalysis> worklist) {
+        AnalysisResult result = analysedClasses.get(pending.className);
+        if (result != null) {
+            return Optional.of(result);
+        }
+        if (pending.persisted != null) {
+            return Optional.of(pending.persisted);
+        }
+
+        Optional<byte[]> classBytes = persistentResults.isPresent()
+                ? ClassFiles.read(classpath, pending.className)
+                : Optional.<byte[]>absent();
+        if (classBytes.isPresent()) {
+            Optional<AnalysisResult> persisted = persistentResults.get().lookup(pending.className, classBytes.get());
+            if (persisted.isPresent()) {
+                return reusePersistedResult(pending, persisted.get(), worklist);
+            }
+        }
+
+        if (!pending.dependenciesScheduled) {
+            statistics.analysisStarted(pending.analysisInProgress.depth());
+        }
+        MutableTypeInformation mutableTypeInformation = pending.dependenciesScheduled
+                ? new MutableTypeInformation(this, configuration, cyclicReferences, dependencies)
+                : MutableTypeInformation.deferringTransitiveAnalysis(this, configuration, cyclicReferences, dependencies);
+        result = runAllCheckers(pending.className, pending.analysisInProgress, mutableTypeInformation);
+
+        List<Dotted> deferred = mutableTypeInformation.deferredAnalyses();
+        if (!deferred.isEmpty()) {
+            pending.dependenciesScheduled = true;
+            AnalysisInProgress dependencyInProgress = pending.analysisInProgress.analysisStartedFor(pending.className);
+            for (Dotted dependency : Lists.reverse(deferred)) {
+                worklist.push(new PendingAnalysis(dependency, dependencyInProgress));
+            }
+            return Optional.absent();
+        }
+
+        if (classBytes.isPresent()) {
+            persistentResults.get().store(result, classBytes.get(), dependencies.dependenciesOf(pending.className));
+        }
+        return Optional.of(result);
+    }
+
+    /**
+     * A stored result is used as it is, but the classes it depended on are still requested, so that the session holds
+     * the same results, and the same dependencies, as it would had the class been analysed. As in analysis, a
+     * dependency with a hardcoded result is not requested.
+     */
+    private Optional<AnalysisResult> reusePersistedResult(PendingAnalysis pending,
+                                                          AnalysisResult persisted,
+                                                          Deque<PendingAnalysis> worklist) {
+        PersistentResultCache cache = persistentResults.get();
+        AnalysisInProgress dependencyInProgress = pending.analysisInProgress.analysisStartedFor(pending.className);
+        for (Dotted dependency : cache.dependenciesOf(pending.className)) {
+            dependencies.recordDependency(pending.className, dependency);
+            if (!configuration.hardcodedResults().containsKey(dependency)) {
+                worklist.push(new PendingAnalysis(dependency, dependencyInProgress));
+                pending.persisted = persisted;
+            }
+        }
+        return pending.persisted != null ? Optional.<AnalysisResult>absent() : Optional.of(persisted);
+    }
+
+    private AnalysisResult runAllCheckers(Dotted className,
+                                          AnalysisInProgress analysisInProgress,
+                                          MutableTypeInformation mutableTypeInformation) {
         AllChecksRunner allChecksRunner = new AllChecksRunner(checkerFactory,
                 checkerRunnerFactory,
                 verifierFactory,
-                className);
+                className,
+                configuration.analysisMode(),
+                statistics);
 
-        AnalysisResult result = allChecksRunner.runCheckers(
+        return allChecksRunner.runCheckers(
                 ImmutableList.copyOf(getResults()),
                 database,
                 mutableTypeInformation,
                 analysisInProgress);
+    }
+
+    /**
+     * Blocks until another thread has finished analysing the given class.
+     * <p>
+     * If the thread doing that analysis is, directly or through other threads, waiting on an analysis owned by the
+     * current thread, waiting would never finish. That situation is a cyclic reference which happens to span
+     * threads, and is reported as such.
+     */
+    private AnalysisResult awaitResult(Dotted className, InFlightAnalysis other) {
+        Thread currentThread = Thread.currentThread();
+        synchronized (inFlight) {
+            if (isWaitingOn(other, currentThread)) {
+                throw new CyclicAnalysisException(className);
+            }
+            awaiting.put(currentThread, other);
+        }
+        try {
+            return other.result.join();
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        } finally {
+            synchronized (inFlight) {
+                awaiting.remove(currentThread);
+            }
+        }
+    }
 
-        return addAnalysisResult(result);
+    @GuardedBy("inFlight")
+    private boolean isWaitingOn(InFlightAnalysis analysis, Thread thread) {
+        for (InFlightAnalysis next = analysis; next != null && !next.result.isDone(); next = awaiting.get(next.owner)) {
+            if (next.owner == thread) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private AnalysisResult addAnalysisResult(AnalysisResult result) {
-        analysedClasses.put(result.className, result);
+        analysedClasses.put(result);
         return result;
     }
 
     @Override
     public Collection<AnalysisResult> getResults() {
-        return Collections.unmodifiableCollection(this.analysedClasses.asMap().values());
+        return analysedClasses.values();
     }
 
     @Override
     public Map<Dotted, AnalysisResult> resultsByClass() {
-        return Collections.unmodifiableMap(analysedClasses.asMap());
+        return analysedClasses.asMap();
+    }
+
+    @Override
+    public ClassDependencies dependencies() {
+        return dependencies;
+    }
+
+    @Override
+    public SessionStatistics statistics() {
+        return statistics;
     }
 
     @Override
     public Collection<AnalysisError> getErrors() {
-        return analysedClasses.asMap().values().stream()
+        return analysedClasses.values().stream()
                 .flatMap(r -> r.errors.stream())
                 .collect(Collectors.toList());
     }
+
+    /**
+     * A class on the worklist of {@link #requestAnalysis(Dotted, AnalysisInProgress)}. Only ever used by the thread
+     * which created it.
+     */
+    private static final class PendingAnalysis {
+        final Dotted className;
+        final AnalysisInProgress analysisInProgress;
+        InFlightAnalysis analysis;
+        boolean dependenciesScheduled;
+        AnalysisResult persisted;
+
+        PendingAnalysis(Dotted className, AnalysisInProgress analysisInProgress) {
+            this.className = className;
+            this.analysisInProgress = analysisInProgress;
+        }
+    }
+
+    private static final class InFlightAnalysis {
+        final Thread owner;
+        final CompletableFuture<AnalysisResult> result = new CompletableFuture<>();
+
+        InFlightAnalysis(Thread owner) {
+            this.owner = owner;
+        }
+    }
 }
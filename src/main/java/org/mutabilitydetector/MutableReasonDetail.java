@@ -26,31 +26,76 @@ import static java.lang.Integer.toHexString;
 import static java.lang.String.format;
 
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
 
 import org.mutabilitydetector.locations.CodeLocation;
 
 import com.google.common.base.Objects;
-
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * A reason a class is mutable, with a human readable message and the location it applies to.
+ * <p>
+ * A message may be given as a {@link String#format(String, Object...)} template and its arguments, in which case
+ * the text is only built the first time it is needed, and is then kept. Templates, short arguments such as class and
+ * field names, and locations are interned, so the many reasons which repeat them share one copy. Two reasons are
+ * equal when they have the same message, location and {@link Reason}, however their messages were given.
+ */
+@ThreadSafe
 public final class MutableReasonDetail {
 
-    private final String message;
+    private static final int MAXIMUM_INTERNED_ARGUMENT_LENGTH = 128;
+    private static final Interner<Object> INTERNED = Interners.newWeakInterner();
+
+    private final String messageTemplate;
+    private final ImmutableList<String> messageArguments;
     private final CodeLocation<?> location;
     private final Reason reason;
-    private final int hashCode;
-
-    private MutableReasonDetail(String message, CodeLocation<?> location, Reason reason) {
-        this.message = message;
-        this.location = location;
+    private volatile String message;
+    private volatile int hashCode;
+
+    private MutableReasonDetail(String messageTemplate,
+                                ImmutableList<String> messageArguments,
+                                CodeLocation<?> location,
+                                Reason reason) {
+        this.messageTemplate = intern(messageTemplate);
+        this.messageArguments = messageArguments;
+        this.location = intern(location);
         this.reason = reason;
-        
-        this.hashCode = Objects.hashCode(message, location, reason);
     }
     
     public static MutableReasonDetail newMutableReasonDetail(@Nonnull String message, 
             @Nonnull CodeLocation<?> location, @Nonnull Reason reason) {
         checkNotNull(message, location, reason);
-        return new MutableReasonDetail(message, location, reason);
+        return new MutableReasonDetail(message, ImmutableList.<String>of(), location, reason);
+    }
+
+    /**
+     * Creates a reason whose message is only built from the template and arguments when it is first needed. The
+     * template is used as it is if there are no arguments.
+     *
+     * @param messageTemplate
+     *            - a {@link String#format(String, Object...)} template, used as the message as it is if there are
+     *            no arguments.
+     * @param messageArguments
+     *            - arguments for the template, held by their {@link String#valueOf(Object) string values}.
+     */
+    public static MutableReasonDetail newFormattedMutableReasonDetail(@Nonnull String messageTemplate,
+            @Nonnull CodeLocation<?> location, @Nonnull Reason reason, Object... messageArguments) {
+        checkNotNull(messageTemplate, location, reason);
+        ImmutableList.Builder<String> arguments = ImmutableList.builder();
+        for (Object argument : messageArguments) {
+            String value = String.valueOf(argument);
+            arguments.add(value.length() <= MAXIMUM_INTERNED_ARGUMENT_LENGTH ? intern(value) : value);
+        }
+        return new MutableReasonDetail(messageTemplate, arguments.build(), location, reason);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T intern(T value) {
+        return (T) INTERNED.intern(value);
     }
 
     private static void checkNotNull(String message, CodeLocation<?> location, Reason reason) {
@@ -68,17 +113,37 @@ public final class MutableReasonDetail {
     }
 
     public String message() {
-        return message;
+        String formatted = message;
+        if (formatted == null) {
+            formatted = messageArguments.isEmpty()
+                    ? messageTemplate
+                    : format(messageTemplate, messageArguments.toArray());
+            message = formatted;
+        }
+        return formatted;
+    }
+
+    public String messageTemplate() {
+        return messageTemplate;
+    }
+
+    public ImmutableList<String> messageArguments() {
+        return messageArguments;
     }
 
     @Override
     public String toString() {
-        return format("%s@%s[%s, %s, %s]", getClass().getSimpleName(), toHexString(hashCode()), message, reason, location);
+        return format("%s@%s[%s, %s, %s]", getClass().getSimpleName(), toHexString(hashCode()), message(), reason, location);
     }
 
     @Override
     public int hashCode() {
-        return hashCode;
+        int hash = hashCode;
+        if (hash == 0) {
+            hash = Objects.hashCode(message(), location, reason);
+            hashCode = hash;
+        }
+        return hash;
     }
 
     @Override
@@ -88,10 +153,11 @@ public final class MutableReasonDetail {
         if (getClass() != obj.getClass()) { return false; }
         MutableReasonDetail other = (MutableReasonDetail) obj;
         if (!location.equals(other.location)) { return false; }
-        if (!message.equals(other.message)) { return false; }
         if (!reason.equals(other.reason)) { return false; }
-        
-        return true;
+        if (messageTemplate.equals(other.messageTemplate) && messageArguments.equals(other.messageArguments)) {
+            return true;
+        }
+        return message().equals(other.message());
     }
 
 
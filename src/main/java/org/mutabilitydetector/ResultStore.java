@@ -0,0 +1,180 @@
+package org.mutabilitydetector;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode;
+import org.mutabilitydetector.locations.Dotted;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The results held by a {@link DefaultCachingAnalysisSession}.
+ * <p>
+ * Without a memory budget every result is kept in full. With one, each result is weighed by an estimate of the
+ * memory it retains, and the least recently used results are evicted once their total weight exceeds the budget. When
+ * a result is evicted, a compact form of it is kept instead: its verdict, its first reason and any errors, as if the
+ * class had been analysed with {@link AnalysisMode#VERDICT_ONLY}. A class is never analysed again because its result
+ * was evicted.
+ * <p>
+ * Pinned results, such as hardcoded results used directly in assertions, are never evicted. Results of classes still
+ * being analysed are not yet in the store, and are held by the analysis itself until it completes.
+ */
+@ThreadSafe
+final class ResultStore {
+
+    static final long UNBOUNDED = Long.MAX_VALUE;
+
+    private static final int RESULT_WEIGHT = 96;
+    private static final int REASON_WEIGHT = 120;
+    private static final int ERROR_WEIGHT = 64;
+
+    private final ImmutableMap<Dotted, AnalysisResult> pinned;
+    private final Cache<Dotted, AnalysisResult> detailed;
+    /**
+     * With a memory budget, every stored result: the same instance as in {@link #detailed} until the removal listener
+     * replaces it with its compact form, so a result is never missing while it is being evicted.
+     */
+    private final ConcurrentMap<Dotted, AnalysisResult> stored = new ConcurrentHashMap<>();
+    private final boolean bounded;
+
+    ResultStore(Map<Dotted, AnalysisResult> pinned, long memoryBudget) {
+        this(pinned, memoryBudget, false);
+    }
+
+    /**
+     * @param recordsStatistics
+     *            - whether lookups are counted for {@link #stats()}.
+     */
+    ResultStore(Map<Dotted, AnalysisResult> pinned, long memoryBudget, boolean recordsStatistics) {
+        this.pinned = ImmutableMap.copyOf(pinned);
+        this.bounded = memoryBudget != UNBOUNDED;
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+        if (recordsStatistics) {
+            builder.recordStats();
+        }
+        this.detailed = bounded
+                ? builder
+                        .maximumWeight(memoryBudget)
+                        .weigher(new ResultWeigher())
+                        .removalListener(this::keepCompactFormOfEvicted)
+                        .build()
+                : builder.<Dotted, AnalysisResult>build();
+    }
+
+    AnalysisResult get(Dotted className) {
+        AnalysisResult pinnedResult = pinned.get(className);
+        if (pinnedResult != null) {
+            return pinnedResult;
+        }
+        AnalysisResult detailedResult = detailed.getIfPresent(className);
+        if (detailedResult != null || !bounded) {
+            return detailedResult;
+        }
+        return stored.get(className);
+    }
+
+    void put(AnalysisResult result) {
+        if (bounded) {
+            stored.put(result.className, result);
+        }
+        detailed.put(result.className, result);
+    }
+
+    private void keepCompactFormOfEvicted(RemovalNotification<Dotted, AnalysisResult> removal) {
+        if (removal.wasEvicted()) {
+            stored.replace(removal.getKey(), removal.getValue(), compactFormOf(removal.getValue()));
+        }
+    }
+
+    /**
+     * @return a live view of every result, in full where it is still held.
+     */
+    Map<Dotted, AnalysisResult> asMap() {
+        return Collections.unmodifiableMap(Maps.asMap(
+                Sets.union(pinned.keySet(), bounded ? stored.keySet() : detailed.asMap().keySet()),
+                this::get));
+    }
+
+    /**
+     * Lookups of results held in full. A result only held in its compact form counts as a miss. Empty unless the store
+     * records statistics.
+     */
+    CacheStats stats() {
+        return detailed.stats();
+    }
+
+    Collection<AnalysisResult> values() {
+        return Collections.unmodifiableCollection(asMap().values());
+    }
+
+    static AnalysisResult compactFormOf(AnalysisResult result) {
+        if (result.reasons.size() <= 1) {
+            return result;
+        }
+        return AnalysisResult.analysisResult(result.className,
+                result.isImmutable,
+                Collections.singletonList(Iterables.getFirst(result.reasons, null)),
+                result.errors);
+    }
+
+    /**
+     * An estimate of the memory retained by a result, in bytes. Class names and templates are interned, so are not
+     * counted. A message given without arguments is counted, since it is usually built for that reason alone.
+     * Messages built from templates are never kept, so only their arguments are counted.
+     */
+    static int estimatedWeightOf(AnalysisResult result) {
+        long weight = RESULT_WEIGHT;
+        for (MutableReasonDetail reason : result.reasons) {
+            weight += REASON_WEIGHT;
+            if (reason.messageArguments().isEmpty()) {
+                weight += 2L * reason.messageTemplate().length();
+            }
+            for (String argument : reason.messageArguments()) {
+                weight += 4L * argument.length();
+            }
+        }
+        for (AnalysisError error : result.errors) {
+            weight += ERROR_WEIGHT + 2L * (error.checkerName.length() + error.description.length());
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static final class ResultWeigher implements Weigher<Dotted, AnalysisResult> {
+        @Override
+        public int weigh(Dotted className, AnalysisResult result) {
+            return estimatedWeightOf(result);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package org.mutabilitydetector;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Where the time of an analysis session goes: how long each checker and the parsing of class files take, how deep
+ * transitive analysis goes, and how often the session's caches are hit.
+ * <p>
+ * Statistics are only recorded when {@link Configuration#recordsStatistics()} is set. Otherwise every method which
+ * records does nothing, and no clock is read, so leaving the calls in place costs almost nothing. Cache hit rates are
+ * read from the caches themselves when asked for, and the caches of a session only count their hits and misses when
+ * statistics are recorded.
+ */
+@ThreadSafe
+public final class SessionStatistics implements SessionStatisticsMXBean {
+
+    private static final long NOT_TIMED = 0;
+
+    private final boolean enabled;
+    private final ConcurrentMap<String, Timer> checkerTimers = new ConcurrentHashMap<>();
+    private final Timer parsing = new Timer();
+    private final LongAdder classesAnalysed = new LongAdder();
+    private final AtomicInteger maximumTransitiveDepth = new AtomicInteger();
+    private final ConcurrentMap<String, Supplier<CacheStats>> caches = new ConcurrentHashMap<>();
+
+    private SessionStatistics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static SessionStatistics enabled() {
+        return new SessionStatistics(true);
+    }
+
+    public static SessionStatistics disabled() {
+        return new SessionStatistics(false);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return a start time to pass back when the timed work finishes.
+     */
+    public long startTiming() {
+        return enabled ? System.nanoTime() : NOT_TIMED;
+    }
+
+    public void checkerFinished(String checkerName, long startedAt) {
+        if (enabled) {
+            checkerTimers.computeIfAbsent(checkerName, name -> new Timer()).add(System.nanoTime() - startedAt);
+        }
+    }
+
+    public void classParsed(long startedAt) {
+        if (enabled) {
+            parsing.add(System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * @param transitiveDepth
+     *            - how many analyses of other classes were in progress when this one started.
+     */
+    public void analysisStarted(int transitiveDepth) {
+        if (enabled) {
+            classesAnalysed.increment();
+            maximumTransitiveDepth.accumulateAndGet(transitiveDepth, Math::max);
+        }
+    }
+
+    /**
+     * Includes the hit rate of a cache in these statistics. The cache should be built with
+     * {@link com.google.common.cache.CacheBuilder#recordStats()} when statistics are recorded.
+     */
+    public void registerCache(String name, Supplier<CacheStats> stats) {
+        caches.put(name, stats);
+    }
+
+    public Map<String, Timing> checkerTimes() {
+        return ImmutableSortedMap.copyOf(Maps.transformValues(checkerTimers, Timer::timing));
+    }
+
+    public Timing parseTime() {
+        return parsing.timing();
+    }
+
+    public Map<String, CacheStats> cacheStats() {
+        return ImmutableSortedMap.copyOf(Maps.transformValues(caches, Supplier::get));
+    }
+
+    @Override
+    public long getClassesAnalysed() {
+        return classesAnalysed.sum();
+    }
+
+    @Override
+    public int getMaximumTransitiveDepth() {
+        return maximumTransitiveDepth.get();
+    }
+
+    @Override
+    public long getClassesParsed() {
+        return parseTime().count;
+    }
+
+    @Override
+    public long getParseTimeMillis() {
+        return parseTime().totalMillis();
+    }
+
+    @Override
+    public Map<String, Long> getCheckerTimeMillis() {
+        return ImmutableMap.copyOf(Maps.transformValues(checkerTimes(), Timing::totalMillis));
+    }
+
+    @Override
+    public Map<String, Double> getCacheHitRates() {
+        return ImmutableMap.copyOf(Maps.transformValues(cacheStats(), CacheStats::hitRate));
+    }
+
+    /**
+     * Registers these statistics under the name {@code org.mutabilitydetector:type=SessionStatistics}, or with a
+     * number appended if that is taken by another session.
+     */
+    public ObjectName registerMBean(MBeanServer server) throws JMException {
+        String name = "org.mutabilitydetector:type=SessionStatistics";
+        ObjectName objectName = new ObjectName(name);
+        for (int i = 2; server.isRegistered(objectName); i++) {
+            objectName = new ObjectName(name + ",session=" + i);
+        }
+        return server.registerMBean(this, objectName).getObjectName();
+    }
+
+    /**
+     * Writes a readable summary, one statistic to a line.
+     */
+    public void writeTo(Appendable output) throws IOException {
+        output.append(String.format("%d classes analysed, maximum transitive depth %d.%n",
+                getClassesAnalysed(), getMaximumTransitiveDepth()));
+        output.append(String.format("%-50s %s%n", "Parsing class files", parseTime()));
+        for (Map.Entry<String, Timing> checker : checkerTimes().entrySet()) {
+            output.append(String.format("%-50s %s%n", checker.getKey(), checker.getValue()));
+        }
+        for (Map.Entry<String, CacheStats> cache : cacheStats().entrySet()) {
+            CacheStats stats = cache.getValue();
+            output.append(stats.requestCount() == 0
+                    ? String.format("%-50s no lookups%n", cache.getKey() + " cache")
+                    : String.format("%-50s %.1f%% hit rate, %d hits, %d misses%n",
+                            cache.getKey() + " cache", stats.hitRate() * 100, stats.hitCount(), stats.missCount()));
+        }
+    }
+
+    /**
+     * How many times some work was done, and the total time it took.
+     */
+    @Immutable
+    public static final class Timing {
+        public final long count;
+        public final long totalNanos;
+
+        Timing(long count, long totalNanos) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+        }
+
+        public long totalMillis() {
+            return NANOSECONDS.toMillis(totalNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d ms over %d runs", totalMillis(), count);
+        }
+    }
+
+    private static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void add(long elapsedNanos) {
+            count.increment();
+            nanos.add(elapsedNanos);
+        }
+
+        Timing timing() {
+            return new Timing(count.sum(), nanos.sum());
+        }
+    }
+}
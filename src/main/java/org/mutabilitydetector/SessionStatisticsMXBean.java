@@ -0,0 +1,44 @@
+package org.mutabilitydetector;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link SessionStatistics}, for reading the statistics of a running analysis over JMX.
+ * Times are in milliseconds.
+ */
+public interface SessionStatisticsMXBean {
+
+    boolean isEnabled();
+
+    long getClassesAnalysed();
+
+    int getMaximumTransitiveDepth();
+
+    long getClassesParsed();
+
+    long getParseTimeMillis();
+
+    Map<String, Long> getCheckerTimeMillis();
+
+    Map<String, Double> getCacheHitRates();
+}
@@ -30,6 +30,8 @@ public abstract class AsmClassVisitor extends ClassVisitor {
 
     protected String ownerClass;
 
+    private ParseDepth depthRead;
+
     public String ownerClass() {
         return ownerClass;
     }
@@ -38,4 +40,28 @@ public abstract class AsmClassVisitor extends ClassVisitor {
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
         ownerClass = name;
     }
+
+    /**
+     * The parts of the class file this visitor needs. Visitors which do not look at everything should override
+     * this, so that the class can be read without the parts they ignore.
+     */
+    public ParseDepth parseDepth() {
+        return ParseDepth.FULL;
+    }
+
+    /**
+     * Called before a class is visited, with how deeply it was actually read. When a class is read once for several
+     * visitors, that can be deeper than this visitor's own {@link #parseDepth()}.
+     */
+    public void visitingClassReadAt(ParseDepth depth) {
+        this.depthRead = depth;
+    }
+
+    /**
+     * @return how deeply the class being visited was read, or this visitor's own {@link #parseDepth()} if it was
+     *         not told.
+     */
+    public ParseDepth depthRead() {
+        return depthRead != null ? depthRead : parseDepth();
+    }
 }
@@ -22,10 +22,13 @@ package org.mutabilitydetector.asmoverride;
 
 
 import com.google.classpath.ClassPath;
+import com.google.common.base.Optional;
 import org.mutabilitydetector.asm.tree.analysis.NonClassloadingSimpleVerifier;
-import org.mutabilitydetector.asm.typehierarchy.ConcurrentMapCachingTypeHierarchyReader;
-import org.mutabilitydetector.asm.typehierarchy.IsAssignableFromCachingTypeHierarchyReader;
+import org.mutabilitydetector.asm.typehierarchy.TypeHierarchy;
 import org.mutabilitydetector.asm.typehierarchy.TypeHierarchyReader;
+import org.mutabilitydetector.classpath.ClassFiles;
+import org.mutabilitydetector.classpath.ClassHeaderIndex;
+import org.mutabilitydetector.classpath.ClassHeaderIndex.ClassHeader;
 import org.mutabilitydetector.locations.Dotted;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
@@ -33,34 +36,69 @@ import org.objectweb.asm.tree.analysis.BasicValue;
 import org.objectweb.asm.tree.analysis.Interpreter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Creates verifiers which read type hierarchies from class files on the classpath, rather than loading classes.
+ * <p>
+ * Hierarchies are cached for the lifetime of the factory, and shared by every verifier it creates.
+ */
 public class NonClassLoadingVerifierFactory implements AsmVerifierFactory {
 
-    private final FromConfiguredClassPathTypeHierarchyReader typeHierarchyReader;
+    private final TypeHierarchyReader typeHierarchyReader;
 
     public NonClassLoadingVerifierFactory(ClassPath classPath) {
-        this.typeHierarchyReader = new FromConfiguredClassPathTypeHierarchyReader(classPath);
+        this.typeHierarchyReader = new SessionTypeHierarchyReader(new FromConfiguredClassPathTypeHierarchyReader(classPath));
     }
 
     @Override
     public Interpreter<BasicValue> interpreter() {
-        return new NonClassloadingSimpleVerifier(
-            new IsAssignableFromCachingTypeHierarchyReader(
-                new ConcurrentMapCachingTypeHierarchyReader(
-                    typeHierarchyReader)));
+        return new NonClassloadingSimpleVerifier(typeHierarchyReader);
     }
 
     private static final class FromConfiguredClassPathTypeHierarchyReader extends TypeHierarchyReader {
 
         private final ClassPath classPath;
+        private final ClassHeaderIndex headerIndex;
 
         public FromConfiguredClassPathTypeHierarchyReader(ClassPath classPath) {
             this.classPath = classPath;
+            this.headerIndex = ClassHeaderIndex.of(classPath);
+        }
+
+        @Override
+        public TypeHierarchy hierarchyOf(Type t) {
+            if (t.getSort() != Type.OBJECT) {
+                return super.hierarchyOf(t);
+            }
+            Optional<ClassHeader> header = headerIndex.headerOf(Dotted.fromType(t));
+            return header.isPresent() ? hierarchyFrom(t, header.get()) : super.hierarchyOf(t);
+        }
+
+        private static TypeHierarchy hierarchyFrom(Type t, ClassHeader header) {
+            List<Type> interfaces = new ArrayList<Type>(header.interfaces().size());
+            for (Dotted implemented : header.interfaces()) {
+                interfaces.add(objectTypeOf(implemented));
+            }
+            Type superClass = header.superClass().isPresent() && !header.isInterface()
+                    ? objectTypeOf(header.superClass().get())
+                    : null;
+            return new TypeHierarchy(t, superClass, interfaces, header.isInterface());
+        }
+
+        private static Type objectTypeOf(Dotted className) {
+            return Type.getObjectType(className.asString().replace('.', '/'));
         }
 
         @Override
         protected ClassReader reader(Type t) throws IOException {
-            return new ClassReader(classPath.getResourceAsStream(Dotted.fromType(t).asResource()));
+            Dotted className = Dotted.fromType(t);
+            Optional<byte[]> classFile = ClassFiles.read(classPath, className);
+            if (!classFile.isPresent()) {
+                throw new IOException("Class not found: " + className);
+            }
+            return new ClassReader(classFile.get());
         }
     }
 }
@@ -0,0 +1,75 @@
+package org.mutabilitydetector.asmoverride;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.objectweb.asm.ClassReader.SKIP_CODE;
+import static org.objectweb.asm.ClassReader.SKIP_DEBUG;
+import static org.objectweb.asm.ClassReader.SKIP_FRAMES;
+
+import org.objectweb.asm.ClassReader;
+
+/**
+ * How much of a class file a visitor needs to see, from the cheapest to the most expensive to parse.
+ * <p>
+ * {@link ClassReader} cannot skip field or method declarations, so {@link #HEADER} and {@link #FIELDS} are read
+ * the same way; they are kept apart so each visitor can state what it actually depends on.
+ *
+ * @see AsmClassVisitor#parseDepth()
+ */
+public enum ParseDepth {
+    /** Class declaration only: access flags, names, superclass and interfaces. */
+    HEADER(SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES),
+    /** Class, field and method declarations, without method bodies. */
+    FIELDS(SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES),
+    /**
+     * Method bodies without debug information. Stack map frames are kept, as some checkers use them to find where
+     * branches join.
+     */
+    CODE(SKIP_DEBUG),
+    /** Everything in the class file, including line numbers and local variable names. */
+    FULL(0);
+
+    private final int readerFlags;
+
+    ParseDepth(int readerFlags) {
+        this.readerFlags = readerFlags;
+    }
+
+    /**
+     * @return the flags to pass to {@link ClassReader#accept(org.objectweb.asm.ClassVisitor, int)}.
+     */
+    public int readerFlags() {
+        return readerFlags;
+    }
+
+    /**
+     * @return the depth which satisfies every one of the given visitors.
+     */
+    public static ParseDepth deepestOf(Iterable<? extends AsmClassVisitor> visitors) {
+        ParseDepth deepest = HEADER;
+        for (AsmClassVisitor visitor : visitors) {
+            if (visitor.parseDepth().compareTo(deepest) > 0) {
+                deepest = visitor.parseDepth();
+            }
+        }
+        return deepest;
+    }
+}
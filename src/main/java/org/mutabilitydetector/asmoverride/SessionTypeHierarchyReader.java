@@ -0,0 +1,93 @@
+package org.mutabilitydetector.asmoverride;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.mutabilitydetector.asm.typehierarchy.TypeHierarchy;
+import org.mutabilitydetector.asm.typehierarchy.TypeHierarchyReader;
+import org.objectweb.asm.Type;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Caches the type hierarchies, and the results of assignability checks between them, read by another
+ * {@link TypeHierarchyReader}.
+ * <p>
+ * One instance is intended to be shared by every verifier created during an analysis session, so that common
+ * supertypes are read from the classpath once rather than once per method analysed. Classes are keyed on the
+ * {@link Type} the verifier asks about, and both caches are bounded in the number of entries they hold.
+ */
+@ThreadSafe
+final class SessionTypeHierarchyReader extends TypeHierarchyReader {
+
+    static final long DEFAULT_MAXIMUM_HIERARCHIES = 50000;
+    static final long DEFAULT_MAXIMUM_ASSIGNABILITY_CHECKS = 500000;
+
+    private final TypeHierarchyReader baseReader;
+    private final Cache<Type, TypeHierarchy> hierarchies;
+    private final Cache<Map.Entry<Type, Type>, Boolean> assignability;
+
+    SessionTypeHierarchyReader(TypeHierarchyReader baseReader) {
+        this(baseReader, DEFAULT_MAXIMUM_HIERARCHIES, DEFAULT_MAXIMUM_ASSIGNABILITY_CHECKS);
+    }
+
+    SessionTypeHierarchyReader(TypeHierarchyReader baseReader, long maximumHierarchies, long maximumAssignabilityChecks) {
+        this.baseReader = baseReader;
+        this.hierarchies = CacheBuilder.newBuilder().maximumSize(maximumHierarchies).build();
+        this.assignability = CacheBuilder.newBuilder().maximumSize(maximumAssignabilityChecks).build();
+    }
+
+    @Override
+    public TypeHierarchy hierarchyOf(final Type type) {
+        if (type.getSort() != Type.OBJECT) {
+            return baseReader.hierarchyOf(type);
+        }
+        return getUnchecked(hierarchies, type, () -> baseReader.hierarchyOf(type));
+    }
+
+    @Override
+    public boolean isAssignableFrom(final Type to, final Type from) {
+        if (to.getSort() != Type.OBJECT || from.getSort() != Type.OBJECT) {
+            return super.isAssignableFrom(to, from);
+        }
+        return getUnchecked(assignability, Maps.immutableEntry(to, from),
+                            () -> SessionTypeHierarchyReader.super.isAssignableFrom(to, from));
+    }
+
+    private static <K, V> V getUnchecked(Cache<K, V> cache, K key, Callable<V> loader) {
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
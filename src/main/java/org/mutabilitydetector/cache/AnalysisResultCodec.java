@@ -0,0 +1,175 @@
+package org.mutabilitydetector.cache;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mutabilitydetector.MutableReasonDetail.newFormattedMutableReasonDetail;
+import static org.mutabilitydetector.locations.CodeLocation.FieldLocation.fieldLocation;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.mutabilitydetector.AnalysisError;
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.IsImmutable;
+import org.mutabilitydetector.MutabilityReason;
+import org.mutabilitydetector.MutableReasonDetail;
+import org.mutabilitydetector.locations.CodeLocation;
+import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
+import org.mutabilitydetector.locations.CodeLocation.FieldLocation;
+import org.mutabilitydetector.locations.CodeLocation.UnknownCodeLocation;
+
+/**
+ * Reads and writes {@link AnalysisResult}s in a compact binary form.
+ * <p>
+ * Only results whose reasons are all {@link MutabilityReason}s can be written, since other {@link org.mutabilitydetector.Reason}
+ * implementations cannot be reconstructed when reading. Use {@link #canEncode(AnalysisResult)} to check first.
+ */
+@Immutable
+public final class AnalysisResultCodec {
+
+    /** Changes whenever the encoding of a result changes, so that results written before can be recognised. */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte UNKNOWN_LOCATION = 0;
+    private static final byte CLASS_LOCATION = 1;
+    private static final byte FIELD_LOCATION = 2;
+
+    private AnalysisResultCodec() { }
+
+    public static boolean canEncode(AnalysisResult result) {
+        for (MutableReasonDetail reason : result.reasons) {
+            if (!(reason.reason() instanceof MutabilityReason)) {
+                return false;
+            }
+            CodeLocation<?> location = reason.codeLocation();
+            if (!(location instanceof UnknownCodeLocation
+                    || location instanceof ClassLocation
+                    || location instanceof FieldLocation)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void write(DataOutput out, AnalysisResult result) throws IOException {
+        if (!canEncode(result)) {
+            throw new IllegalArgumentException("Cannot encode result with custom reasons or locations: " + result);
+        }
+        writeString(out, result.className.asString());
+        out.writeByte(result.isImmutable.ordinal());
+
+        out.writeInt(result.reasons.size());
+        for (MutableReasonDetail reason : result.reasons) {
+            writeString(out, reason.messageTemplate());
+            out.writeInt(reason.messageArguments().size());
+            for (String argument : reason.messageArguments()) {
+                writeString(out, argument);
+            }
+            writeLocation(out, reason.codeLocation());
+            writeString(out, ((MutabilityReason) reason.reason()).name());
+        }
+
+        out.writeInt(result.errors.size());
+        for (AnalysisError error : result.errors) {
+            writeString(out, error.onClass.asString());
+            writeString(out, error.checkerName);
+            writeString(out, error.description);
+        }
+    }
+
+    public static AnalysisResult read(DataInput in) throws IOException {
+        String className = readString(in);
+        IsImmutable isImmutable = IsImmutable.values()[in.readByte()];
+
+        int reasonCount = in.readInt();
+        List<MutableReasonDetail> reasons = new ArrayList<MutableReasonDetail>(reasonCount);
+        for (int i = 0; i < reasonCount; i++) {
+            String messageTemplate = readString(in);
+            Object[] messageArguments = new Object[in.readInt()];
+            for (int j = 0; j < messageArguments.length; j++) {
+                messageArguments[j] = readString(in);
+            }
+            CodeLocation<?> location = readLocation(in);
+            MutabilityReason reason = MutabilityReason.valueOf(readString(in));
+            reasons.add(newFormattedMutableReasonDetail(messageTemplate, location, reason, messageArguments));
+        }
+
+        int errorCount = in.readInt();
+        List<AnalysisError> errors = new ArrayList<AnalysisError>(errorCount);
+        for (int i = 0; i < errorCount; i++) {
+            errors.add(new AnalysisError(dotted(readString(in)), readString(in), readString(in)));
+        }
+
+        return AnalysisResult.analysisResult(dotted(className), isImmutable, reasons, errors);
+    }
+
+    private static void writeLocation(DataOutput out, CodeLocation<?> location) throws IOException {
+        if (location instanceof FieldLocation) {
+            out.writeByte(FIELD_LOCATION);
+            writeString(out, location.typeName());
+            writeString(out, ((FieldLocation) location).fieldName());
+        } else if (location instanceof ClassLocation) {
+            out.writeByte(CLASS_LOCATION);
+            writeString(out, location.typeName());
+        } else {
+            out.writeByte(UNKNOWN_LOCATION);
+        }
+    }
+
+    private static CodeLocation<?> readLocation(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+        case FIELD_LOCATION:
+            ClassLocation owner = new ClassLocation(readString(in));
+            return fieldLocation(readString(in), owner);
+        case CLASS_LOCATION:
+            return new ClassLocation(readString(in));
+        case UNKNOWN_LOCATION:
+            return UnknownCodeLocation.UNKNOWN;
+        default:
+            throw new IOException("Unrecognised code location kind: " + kind);
+        }
+    }
+
+    /**
+     * Unlike {@link DataOutput#writeUTF(String)}, not limited to 64KB, as error descriptions can include stack traces.
+     */
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
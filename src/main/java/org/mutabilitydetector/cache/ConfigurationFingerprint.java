@@ -0,0 +1,152 @@
+package org.mutabilitydetector.cache;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.Configuration;
+import org.mutabilitydetector.MutableReasonDetail;
+import org.mutabilitydetector.checkers.info.CopyMethod;
+import org.mutabilitydetector.locations.Dotted;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Summarises every setting of a {@link Configuration} which can affect analysis results, along with the build of the
+ * analyser itself, so that results persisted under one configuration or by one build are not reused under another.
+ * <p>
+ * The summary is built only from names, strings and file contents, never from identity-based hash codes, so it is
+ * stable across JVMs.
+ */
+final class ConfigurationFingerprint {
+
+    private static final String ANALYSER_BUILD = analyserBuild();
+
+    private ConfigurationFingerprint() { }
+
+    static String of(Configuration configuration) {
+        return of(configuration, ANALYSER_BUILD);
+    }
+
+    @SuppressWarnings("deprecation")
+    static String of(Configuration configuration, String analyserBuild) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        putString(hasher, analyserBuild);
+        putString(hasher, configuration.howToUseHardcodedResults().name());
+        putString(hasher, configuration.exceptionPolicy().name());
+        putString(hasher, configuration.classloadingOption().name());
+        putString(hasher, configuration.reassignedFieldAlgorithm().name());
+        putString(hasher, configuration.analysisMode().name());
+
+        for (String hardcodedResult : sorted(hardcodedResults(configuration.hardcodedResults()))) {
+            putString(hasher, hardcodedResult);
+        }
+        for (String containerClass : sorted(classNames(configuration.immutableContainerClasses()))) {
+            putString(hasher, containerClass);
+        }
+        for (String copyMethod : sorted(copyMethods(configuration.hardcodedCopyMethods().entries()))) {
+            putString(hasher, copyMethod);
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * A digest of the jar, or the directory of class files, the analyser was loaded from. Any change to a checker
+     * changes it, whether or not the version was bumped.
+     * <p>
+     * If the analyser's own classes cannot be read, a random value is used, so that no stored result is ever reused.
+     */
+    static String analyserBuild() {
+        try {
+            Path location = Paths.get(ConfigurationFingerprint.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            Hasher hasher = Hashing.sha256().newHasher();
+            if (Files.isDirectory(location)) {
+                List<Path> classFiles;
+                try (Stream<Path> files = Files.walk(location)) {
+                    classFiles = files.filter(file -> file.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+                }
+                for (Path classFile : classFiles) {
+                    putString(hasher, location.relativize(classFile).toString());
+                    hasher.putBytes(Files.readAllBytes(classFile));
+                }
+            } else {
+                hasher.putBytes(Files.readAllBytes(location));
+            }
+            return hasher.hash().toString();
+        } catch (Exception e) {
+            return "unknown build " + UUID.randomUUID();
+        }
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        hasher.putInt(value.length()).putString(value, UTF_8);
+    }
+
+    private static List<String> hardcodedResults(Map<Dotted, AnalysisResult> results) {
+        List<String> described = new ArrayList<String>();
+        for (AnalysisResult result : results.values()) {
+            StringBuilder description = new StringBuilder()
+                    .append(result.className.asString()).append('=').append(result.isImmutable.name());
+            for (MutableReasonDetail reason : result.reasons) {
+                description.append(':').append(reason.reason().code());
+            }
+            described.add(description.toString());
+        }
+        return described;
+    }
+
+    private static List<String> classNames(Iterable<Dotted> classes) {
+        List<String> names = new ArrayList<String>();
+        for (Dotted className : classes) {
+            names.add(className.asString());
+        }
+        return names;
+    }
+
+    private static List<String> copyMethods(Iterable<Map.Entry<String, CopyMethod>> copyMethods) {
+        List<String> described = new ArrayList<String>();
+        for (Map.Entry<String, CopyMethod> entry : copyMethods) {
+            CopyMethod method = entry.getValue();
+            described.add(entry.getKey() + '=' + method.owner.asString() + '.' + method.name + method.desc + ':' + method.isGeneric);
+        }
+        return described;
+    }
+
+    private static List<String> sorted(List<String> values) {
+        Collections.sort(values);
+        return values;
+    }
+}
@@ -0,0 +1,322 @@
+package org.mutabilitydetector.cache;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.Configuration;
+import org.mutabilitydetector.classpath.ClassFiles;
+import org.mutabilitydetector.locations.Dotted;
+
+import com.google.classpath.ClassPath;
+import com.google.common.base.Optional;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+/**
+ * Stores analysis results in a file, so that later runs can skip analysing classes which have not changed.
+ * <p>
+ * A stored result is only returned when both the bytes of the class file and the fingerprint of the
+ * {@link Configuration} match those it was stored with. A file written under a different configuration, or by an
+ * incompatible version, is ignored and replaced on the next {@link #save()}.
+ * <p>
+ * A result also depends on the classes it refers to, such as the types of its fields. Those are not part of the key,
+ * so on its own the cache is best suited to classes whose dependencies change no more often than they do, such as
+ * libraries. Results stored along with their dependencies can be invalidated precisely with
+ * {@link #invalidateChangedClasses(ClassPath)} before analysis begins, or with
+ * {@link #invalidateChangedClasses(ClassPath, String)}, which only checks each class when a fingerprint of the
+ * classpath differs from the one the cache was last checked against.
+ * <p>
+ * Results carrying analysis errors, or which cannot be encoded, are never returned. Only the hash of their class file
+ * and their dependencies are kept, so that a change to such a class still invalidates the results which depended on
+ * it.
+ */
+@ThreadSafe
+public final class PersistentResultCache {
+
+    private static final int MAGIC = 0x4D445243;
+    private static final int FORMAT_VERSION = 6;
+    private static final String NO_CLASSPATH_FINGERPRINT = "";
+
+    private final File file;
+    private final String configurationFingerprint;
+    private final ConcurrentMap<Dotted, Entry> entries;
+    private volatile String classpathFingerprint;
+
+    private PersistentResultCache(File file,
+                                  String configurationFingerprint,
+                                  String classpathFingerprint,
+                                  Map<Dotted, Entry> entries) {
+        this.file = file;
+        this.configurationFingerprint = configurationFingerprint;
+        this.classpathFingerprint = classpathFingerprint;
+        this.entries = new ConcurrentHashMap<Dotted, Entry>(entries);
+    }
+
+    /**
+     * Reads previously stored results from the given file, if it exists and was written with the same configuration.
+     */
+    public static PersistentResultCache load(File file, Configuration configuration) throws IOException {
+        String fingerprint = ConfigurationFingerprint.of(configuration);
+        Map<Dotted, Entry> entries = new HashMap<Dotted, Entry>();
+        String classpathFingerprint = NO_CLASSPATH_FINGERPRINT;
+        if (file.isFile()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                classpathFingerprint = readEntries(in, fingerprint, entries);
+            } catch (EOFException truncated) {
+                entries.clear();
+                classpathFingerprint = NO_CLASSPATH_FINGERPRINT;
+            }
+        }
+        return new PersistentResultCache(file, fingerprint, classpathFingerprint, entries);
+    }
+
+    /**
+     * @return the classpath fingerprint the stored results were last checked against.
+     */
+    private static String readEntries(DataInputStream in, String fingerprint, Map<Dotted, Entry> entries) throws IOException {
+        if (in.readInt() != MAGIC
+                || in.readInt() != FORMAT_VERSION
+                || in.readInt() != AnalysisResultCodec.FORMAT_VERSION
+                || !in.readUTF().equals(fingerprint)) {
+            return NO_CLASSPATH_FINGERPRINT;
+        }
+        String classpathFingerprint = in.readUTF();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            byte[] hash = new byte[in.readUnsignedByte()];
+            in.readFully(hash);
+            Dotted className;
+            Optional<AnalysisResult> result;
+            if (in.readBoolean()) {
+                result = Optional.of(AnalysisResultCodec.read(in));
+                className = result.get().className;
+            } else {
+                result = Optional.absent();
+                className = Dotted.dotted(in.readUTF());
+            }
+            ImmutableSet.Builder<Dotted> dependencies = ImmutableSet.builder();
+            for (int dependencyCount = in.readInt(); dependencyCount > 0; dependencyCount--) {
+                dependencies.add(Dotted.dotted(in.readUTF()));
+            }
+            entries.put(className, new Entry(HashCode.fromBytes(hash), result, dependencies.build()));
+        }
+        return classpathFingerprint;
+    }
+
+    public Optional<AnalysisResult> lookup(Dotted className, byte[] classBytes) {
+        Entry entry = entries.get(className);
+        return entry != null && entry.contentHash.equals(contentHash(classBytes))
+                ? entry.result
+                : Optional.<AnalysisResult>absent();
+    }
+
+    /**
+     * @return the classes whose results were needed to compute the stored result for the given class, or an empty set
+     *         if nothing is stored for the class.
+     */
+    public Set<Dotted> dependenciesOf(Dotted className) {
+        Entry entry = entries.get(className);
+        return entry != null ? entry.dependencies : ImmutableSet.<Dotted>of();
+    }
+
+    public void store(AnalysisResult result, byte[] classBytes) {
+        store(result, classBytes, ImmutableSet.<Dotted>of());
+    }
+
+    /**
+     * Stores a result along with the classes whose results were needed to compute it.
+     * <p>
+     * A result which has errors, or cannot be encoded, is not kept, but the class still is, so that a change to it
+     * invalidates the results which depended on it.
+     */
+    public void store(AnalysisResult result, byte[] classBytes, Collection<Dotted> dependencies) {
+        Optional<AnalysisResult> kept = result.errors.isEmpty() && AnalysisResultCodec.canEncode(result)
+                ? Optional.of(result)
+                : Optional.<AnalysisResult>absent();
+        entries.put(result.className, new Entry(contentHash(classBytes), kept, ImmutableSet.copyOf(dependencies)));
+    }
+
+    /**
+     * Removes results for classes whose class file has changed or disappeared from the given classpath, along with
+     * results for every class which, directly or transitively, depended on one of them.
+     *
+     * @return the classes whose results were removed.
+     */
+    public Set<Dotted> invalidateChangedClasses(ClassPath classpath) {
+        Set<Dotted> invalidated = invalidateClassesChangedOn(classpath);
+        classpathFingerprint = NO_CLASSPATH_FINGERPRINT;
+        return invalidated;
+    }
+
+    /**
+     * As {@link #invalidateChangedClasses(ClassPath)}, but only when the given fingerprint of the classpath differs
+     * from the one the stored results were last checked against. Reading and hashing every stored class file is
+     * skipped when the classpath has not changed.
+     * <p>
+     * The given fingerprint is saved with the results, so is compared against on the next run.
+     *
+     * @return the classes whose results were removed.
+     * @see org.mutabilitydetector.classpath.ClassPathFingerprint
+     */
+    public Set<Dotted> invalidateChangedClasses(ClassPath classpath, String currentClasspathFingerprint) {
+        if (currentClasspathFingerprint.equals(classpathFingerprint)) {
+            return ImmutableSet.of();
+        }
+        Set<Dotted> invalidated = invalidateClassesChangedOn(classpath);
+        classpathFingerprint = currentClasspathFingerprint;
+        return invalidated;
+    }
+
+    private Set<Dotted> invalidateClassesChangedOn(ClassPath classpath) {
+        SetMultimap<Dotted, Dotted> dependents = HashMultimap.create();
+        Deque<Dotted> toInvalidate = new ArrayDeque<Dotted>();
+        for (Map.Entry<Dotted, Entry> stored : entries.entrySet()) {
+            for (Dotted dependency : stored.getValue().dependencies) {
+                dependents.put(dependency, stored.getKey());
+            }
+            Optional<byte[]> classBytes = ClassFiles.read(classpath, stored.getKey());
+            if (!classBytes.isPresent() || !stored.getValue().contentHash.equals(contentHash(classBytes.get()))) {
+                toInvalidate.add(stored.getKey());
+            }
+        }
+
+        Set<Dotted> invalidated = new HashSet<Dotted>();
+        while (!toInvalidate.isEmpty()) {
+            Dotted className = toInvalidate.remove();
+            if (invalidated.add(className)) {
+                entries.remove(className);
+                toInvalidate.addAll(dependents.get(className));
+            }
+        }
+        return invalidated;
+    }
+
+    /**
+     * @return the number of results which can be returned by {@link #lookup(Dotted, byte[])}.
+     */
+    public int size() {
+        int size = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.result.isPresent()) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Writes all stored results back to the file. The file is replaced as a whole, so a concurrent reader sees either
+     * the old or the new contents.
+     */
+    public void save() throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(directory.toPath());
+        File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+                writeEntries(out);
+            }
+            try {
+                Files.move(temporary.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), file.toPath(), REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    private void writeEntries(DataOutputStream out) throws IOException {
+        Map<Dotted, Entry> snapshot = new HashMap<Dotted, Entry>(entries);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(AnalysisResultCodec.FORMAT_VERSION);
+        out.writeUTF(configurationFingerprint);
+        out.writeUTF(classpathFingerprint);
+        out.writeInt(snapshot.size());
+        for (Map.Entry<Dotted, Entry> stored : snapshot.entrySet()) {
+            Dotted className = stored.getKey();
+            Entry entry = stored.getValue();
+            byte[] hash = entry.contentHash.asBytes();
+            out.writeByte(hash.length);
+            out.write(hash);
+            out.writeBoolean(entry.result.isPresent());
+            if (entry.result.isPresent()) {
+                AnalysisResultCodec.write(out, entry.result.get());
+            } else {
+                out.writeUTF(className.asString());
+            }
+            out.writeInt(entry.dependencies.size());
+            for (Dotted dependency : entry.dependencies) {
+                out.writeUTF(dependency.asString());
+            }
+        }
+    }
+
+    private static HashCode contentHash(byte[] classBytes) {
+        return Hashing.sha256().hashBytes(classBytes);
+    }
+
+    @Immutable
+    private static final class Entry {
+        final HashCode contentHash;
+        final Optional<AnalysisResult> result;
+        final ImmutableSet<Dotted> dependencies;
+
+        Entry(HashCode contentHash, Optional<AnalysisResult> result, ImmutableSet<Dotted> dependencies) {
+            this.contentHash = contentHash;
+            this.result = result;
+            this.dependencies = dependencies;
+        }
+    }
+}
@@ -22,10 +22,14 @@ package org.mutabilitydetector.checkers;
 
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Ordering;
 import org.mutabilitydetector.AnalysisError;
 import org.mutabilitydetector.AnalysisResult;
 import org.mutabilitydetector.IsImmutable;
 import org.mutabilitydetector.MutableReasonDetail;
+import org.mutabilitydetector.SessionStatistics;
+import org.mutabilitydetector.asmoverride.AsmClassVisitor;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
 import org.mutabilitydetector.checkers.info.AnalysisDatabase;
 import org.mutabilitydetector.checkers.info.AnalysisInProgress;
@@ -33,10 +37,17 @@ import org.mutabilitydetector.checkers.info.MutableTypeInformation;
 import org.mutabilitydetector.locations.Dotted;
 
 import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
+import static org.mutabilitydetector.IsImmutable.NOT_IMMUTABLE;
+import static org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode.FULL;
+import static org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode.VERDICT_ONLY;
 
 public final class AllChecksRunner {
 
@@ -44,15 +55,53 @@ public final class AllChecksRunner {
     private final CheckerRunnerFactory checkerRunnerFactory;
     private final AsmVerifierFactory verifierFactory;
     private final Dotted toAnalyse;
+    private final AnalysisMode analysisMode;
+    private final SessionStatistics statistics;
 
     public AllChecksRunner(MutabilityCheckerFactory checkerFactory,
             CheckerRunnerFactory checkerRunnerFactory,
             AsmVerifierFactory verifierFactory,
             Dotted toAnalyse) {
+        this(checkerFactory, checkerRunnerFactory, verifierFactory, toAnalyse, FULL);
+    }
+
+    public AllChecksRunner(MutabilityCheckerFactory checkerFactory,
+            CheckerRunnerFactory checkerRunnerFactory,
+            AsmVerifierFactory verifierFactory,
+            Dotted toAnalyse,
+            AnalysisMode analysisMode) {
+        this(checkerFactory, checkerRunnerFactory, verifierFactory, toAnalyse, analysisMode, SessionStatistics.disabled());
+    }
+
+    public AllChecksRunner(MutabilityCheckerFactory checkerFactory,
+            CheckerRunnerFactory checkerRunnerFactory,
+            AsmVerifierFactory verifierFactory,
+            Dotted toAnalyse,
+            AnalysisMode analysisMode,
+            SessionStatistics statistics) {
         this.factory = checkerFactory;
         this.checkerRunnerFactory = checkerRunnerFactory;
         this.verifierFactory = verifierFactory;
         this.toAnalyse = toAnalyse;
+        this.analysisMode = analysisMode;
+        this.statistics = statistics;
+    }
+
+    /**
+     * How much of the analysis to perform for each class.
+     */
+    public enum AnalysisMode {
+        /**
+         * Run every checker, and report every reason the class is not immutable.
+         */
+        FULL,
+
+        /**
+         * Run the checkers cheapest first, and stop as soon as one finds the class {@link IsImmutable#NOT_IMMUTABLE}.
+         * The verdict is the same as for {@link #FULL}, but a mutable class is reported with only the reasons found
+         * before stopping.
+         */
+        VERDICT_ONLY
     }
 
     public AnalysisResult runCheckers(ImmutableList<AnalysisResult> knownResultsSoFar,
@@ -69,10 +118,18 @@ public final class AllChecksRunner {
                 mutableTypeInformation,
                 analysisInProgress);
 
-        CheckerRunner checkerRunner = checkerRunnerFactory.createRunner();
+        CheckerRunner checkerRunner = checkerRunnerFactory.createRunner().recordingTo(statistics);
+
+        List<CheckerResult> checkerResults;
+        if (mutableTypeInformation.defersTransitiveAnalysis()) {
+            checkerResults = runLookupsFirst(checkerRunner, checkers, knownResultsSoFar, mutableTypeInformation);
+        } else {
+            checkerResults = analysisMode == VERDICT_ONLY
+                    ? checkerRunner.runUntil(cheapestFirst(checkers), toAnalyse, knownResultsSoFar, result -> result.isImmutable == NOT_IMMUTABLE)
+                    : checkerRunner.runAll(checkers, toAnalyse, knownResultsSoFar);
+        }
 
-        for (AsmMutabilityChecker checker : checkers) {
-            CheckerResult checkerResult = checkerRunner.run(checker, toAnalyse, knownResultsSoFar);
+        for (CheckerResult checkerResult : checkerResults) {
             results.put(checkerResult.isImmutable, getNewCount(results, checkerResult.isImmutable));
             reasons.addAll(checkerResult.reasons);
             errors.addAll(checkerResult.errors);
@@ -83,6 +140,74 @@ public final class AllChecksRunner {
         return AnalysisResult.analysisResult(toAnalyse, isImmutable, reasons, errors);
     }
 
+    private List<AsmMutabilityChecker> cheapestFirst(Iterable<AsmMutabilityChecker> checkers) {
+        return Ordering.natural().onResultOf(AsmClassVisitor::parseDepth).sortedCopy(checkers);
+    }
+
+    /**
+     * Runs the checkers which look up other classes as early as the analysis mode allows, and stops once they have
+     * all run if any of them deferred the analysis of another class. Such a result is discarded, so the remaining
+     * checkers are not run. In {@link AnalysisMode#FULL} the checkers which look up other classes run before all the
+     * others; in {@link AnalysisMode#VERDICT_ONLY} they run after the other checkers of the same parse depth.
+     *
+     * @return a result for each checker which ran, in the order the checkers would otherwise have run.
+     */
+    private List<CheckerResult> runLookupsFirst(CheckerRunner checkerRunner,
+                                                Iterable<AsmMutabilityChecker> checkers,
+                                                ImmutableList<AnalysisResult> knownResultsSoFar,
+                                                MutableTypeInformation mutableTypeInformation) {
+        Ordering<AsmMutabilityChecker> othersFirst = Ordering.natural().onResultOf(AsmMutabilityChecker::looksUpOtherClasses);
+        List<AsmMutabilityChecker> usualOrder;
+        List<AsmMutabilityChecker> runOrder;
+        if (analysisMode == VERDICT_ONLY) {
+            usualOrder = cheapestFirst(checkers);
+            runOrder = Ordering.natural().onResultOf(AsmClassVisitor::parseDepth).compound(othersFirst).sortedCopy(checkers);
+        } else {
+            usualOrder = ImmutableList.copyOf(checkers);
+            runOrder = othersFirst.reverse().sortedCopy(checkers);
+        }
+
+        List<CheckerResult> inRunOrder = checkerRunner.runUntil(runOrder, toAnalyse, knownResultsSoFar,
+                new StopsOnceDeferred(runOrder, mutableTypeInformation));
+
+        Map<AsmMutabilityChecker, CheckerResult> resultsByChecker = new IdentityHashMap<>();
+        for (int i = 0; i < inRunOrder.size(); i++) {
+            resultsByChecker.put(runOrder.get(i), inRunOrder.get(i));
+        }
+        List<CheckerResult> checkerResults = newArrayList();
+        for (AsmMutabilityChecker checker : usualOrder) {
+            CheckerResult checkerResult = resultsByChecker.get(checker);
+            if (checkerResult != null) {
+                checkerResults.add(checkerResult);
+            }
+        }
+        return checkerResults;
+    }
+
+    /**
+     * Given each result in the order the checkers run, decides whether to stop running them.
+     */
+    private final class StopsOnceDeferred implements Predicate<CheckerResult> {
+        private final MutableTypeInformation mutableTypeInformation;
+        private final Iterator<AsmMutabilityChecker> checkersRun;
+        private int lookupsToRun;
+
+        StopsOnceDeferred(List<AsmMutabilityChecker> runOrder, MutableTypeInformation mutableTypeInformation) {
+            this.mutableTypeInformation = mutableTypeInformation;
+            this.checkersRun = runOrder.iterator();
+            this.lookupsToRun = Iterables.size(Iterables.filter(runOrder, AsmMutabilityChecker::looksUpOtherClasses));
+        }
+
+        @Override
+        public boolean test(CheckerResult result) {
+            if (checkersRun.next().looksUpOtherClasses()) {
+                lookupsToRun--;
+            }
+            return (analysisMode == VERDICT_ONLY && result.isImmutable == NOT_IMMUTABLE)
+                    || (lookupsToRun == 0 && mutableTypeInformation.hasDeferredAnalyses());
+        }
+    }
+
     private Integer getNewCount(Map<IsImmutable, Integer> results, IsImmutable result) {
         Integer oldCount = results.get(result);
         if (oldCount == null) oldCount = 0;
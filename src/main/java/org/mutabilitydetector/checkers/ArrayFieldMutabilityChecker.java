@@ -26,6 +26,7 @@ import static org.mutabilitydetector.checkers.AccessModifierQuery.field;
 import static org.mutabilitydetector.locations.CodeLocation.FieldLocation.fieldLocation;
 
 import org.mutabilitydetector.MutabilityReason;
+import org.mutabilitydetector.asmoverride.ParseDepth;
 import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.Type;
@@ -60,5 +61,10 @@ public class ArrayFieldMutabilityChecker extends AsmMutabilityChecker {
     private boolean isArray(String desc) {
         return Type.ARRAY == Type.getType(desc).getSort();
     }
-    
+
+    @Override
+    public ParseDepth parseDepth() {
+        return ParseDepth.FIELDS;
+    }
+
 }
@@ -24,6 +24,8 @@ package org.mutabilitydetector.checkers;
 import org.mutabilitydetector.MutableReasonDetail;
 import org.mutabilitydetector.Reason;
 import org.mutabilitydetector.asmoverride.AsmClassVisitor;
+import org.mutabilitydetector.asmoverride.ParseDepth;
+import org.mutabilitydetector.checkers.info.MutableTypeInformation;
 import org.mutabilitydetector.locations.CodeLocation;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.Attribute;
@@ -52,10 +54,27 @@ public abstract class AsmMutabilityChecker extends AsmClassVisitor {
         this.checkerResult = CheckerResult.withNoErrors(reason.createsResult(), reasons);
     }
 
+    /**
+     * As {@link #setResult(String, CodeLocation, Reason)}, but with a message which is only built from the given
+     * {@link String#format(String, Object...)} template and arguments when it is first asked for.
+     */
+    protected void setFormattedResult(String messageTemplate, CodeLocation<?> location, Reason reason, Object... messageArguments) {
+        reasons.add(createFormattedReasonDetail(messageTemplate, location, reason, messageArguments));
+        this.checkerResult = CheckerResult.withNoErrors(reason.createsResult(), reasons);
+    }
+
     public CheckerResult checkerResult() {
         return checkerResult;
     }
 
+    /**
+     * @return true if this checker asks for the results of other classes through {@link MutableTypeInformation}, and
+     *         so may have their analysis deferred.
+     */
+    public boolean looksUpOtherClasses() {
+        return false;
+    }
+
     @Override
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
         ownerClass = name;
@@ -105,4 +124,13 @@ public abstract class AsmMutabilityChecker extends AsmClassVisitor {
         return MutableReasonDetail.newMutableReasonDetail(message, location, reason);
     }
 
+    protected MutableReasonDetail createFormattedReasonDetail(String messageTemplate, CodeLocation<?> location, Reason reason, Object... messageArguments) {
+        return MutableReasonDetail.newFormattedMutableReasonDetail(messageTemplate, location, reason, messageArguments);
+    }
+
+    @Override
+    public ParseDepth parseDepth() {
+        return ParseDepth.CODE;
+    }
+
 }
@@ -26,6 +26,7 @@ import static org.mutabilitydetector.checkers.AccessModifierQuery.method;
 import static org.mutabilitydetector.checkers.AccessModifierQuery.type;
 
 import org.mutabilitydetector.MutabilityReason;
+import org.mutabilitydetector.asmoverride.ParseDepth;
 import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
 import org.objectweb.asm.MethodVisitor;
 
@@ -60,4 +61,9 @@ public final class CanSubclassChecker extends AsmMutabilityChecker {
         }
      }
 
+    @Override
+    public ParseDepth parseDepth() {
+        return ParseDepth.FIELDS;
+    }
+
 }
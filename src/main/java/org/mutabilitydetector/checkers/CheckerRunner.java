@@ -26,14 +26,21 @@ import com.google.classpath.ClassPathFactory;
 import com.google.common.base.Optional;
 import org.mutabilitydetector.AnalysisError;
 import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.SessionStatistics;
 import org.mutabilitydetector.asmoverride.AsmClassVisitor;
+import org.mutabilitydetector.asmoverride.ParseDepth;
+import org.mutabilitydetector.classpath.ClassFiles;
 import org.mutabilitydetector.locations.CodeLocation;
 import org.mutabilitydetector.locations.Dotted;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.tree.ClassNode;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
 
 import static java.lang.String.format;
 import static java.util.Collections.singleton;
@@ -43,31 +50,121 @@ import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.FAIL
 
 public final class CheckerRunner {
 
+    private static final SessionStatistics NOT_RECORDING = SessionStatistics.disabled();
+
     private final ClassPath classpath;
     private final UnhandledExceptionBuilder unhandledExceptionBuilder;
     private final ExceptionPolicy exceptionPolicy;
+    private final SessionStatistics statistics;
 
-    private CheckerRunner(ClassPath classpath, UnhandledExceptionBuilder unhandledExceptionBuilder, ExceptionPolicy exceptionPolicy) {
+    private CheckerRunner(ClassPath classpath,
+                          UnhandledExceptionBuilder unhandledExceptionBuilder,
+                          ExceptionPolicy exceptionPolicy,
+                          SessionStatistics statistics) {
         this.classpath = classpath;
         this.unhandledExceptionBuilder = unhandledExceptionBuilder;
         this.exceptionPolicy = exceptionPolicy;
+        this.statistics = statistics;
     }
 
     public static CheckerRunner createWithClasspath(ClassPath classpath, ExceptionPolicy exceptionPolicy) {
-        return new CheckerRunner(classpath, new UnhandledExceptionBuilder(), exceptionPolicy);
+        return new CheckerRunner(classpath, new UnhandledExceptionBuilder(), exceptionPolicy, NOT_RECORDING);
     }
 
     public static CheckerRunner createWithCurrentClasspath(ExceptionPolicy exceptionPolicy) {
         return createWithClasspath(new ClassPathFactory().createFromJVM(), exceptionPolicy);
     }
     
+    /**
+     * @return a runner which records the time taken to parse classes and to run each checker over them in
+     *         {@link #runAll(Iterable, Dotted, Iterable)} and {@link #runUntil(Iterable, Dotted, Iterable, Predicate)}.
+     */
+    public CheckerRunner recordingTo(SessionStatistics statistics) {
+        return new CheckerRunner(classpath, unhandledExceptionBuilder, exceptionPolicy, statistics);
+    }
+
     public enum ExceptionPolicy {
         FAIL_FAST, CARRY_ON
     }
 
     public CheckerResult run(AsmMutabilityChecker checker, Dotted className, Iterable<AnalysisResult> resultsSoFar) {
         Optional<AnalysisError> potentialError = runVisitor(checker, className, resultsSoFar);
+        return resultOf(checker, className, potentialError);
+    }
+
+    /**
+     * Runs all the given checkers over the class, reading and parsing the class file only once.
+     * <p>
+     * The class is parsed into a {@link ClassNode}, only as deeply as the deepest {@link AsmClassVisitor#parseDepth()}
+     * of the given checkers, and is then replayed into each checker in turn.
+     * An error raised by one checker is handled as in {@link #run(AsmMutabilityChecker, Dotted, Iterable)},
+     * and does not prevent the remaining checkers from visiting the class.
+     *
+     * @return a result for each checker, in the order the checkers were given.
+     */
+    public List<CheckerResult> runAll(Iterable<? extends AsmMutabilityChecker> checkers,
+                                      Dotted className,
+                                      Iterable<AnalysisResult> resultsSoFar) {
+        List<CheckerResult> checkerResults = new ArrayList<CheckerResult>();
+        ParseDepth depth = ParseDepth.deepestOf(checkers);
+        ClassNode classNode;
+        try {
+            classNode = readClassNode(className, depth);
+        } catch (Throwable e) {
+            for (AsmMutabilityChecker checker : checkers) {
+                AnalysisError error = attemptRecovery(checker, className, resultsSoFar, e);
+                checkerResults.add(resultOf(checker, className, Optional.of(error)));
+            }
+            return checkerResults;
+        }
+
+        for (AsmMutabilityChecker checker : checkers) {
+            Optional<AnalysisError> potentialError = replay(classNode, depth, checker, className, resultsSoFar);
+            checkerResults.add(resultOf(checker, className, potentialError));
+        }
+        return checkerResults;
+    }
 
+    /**
+     * Runs the given checkers over the class in order, until one gives a result matching {@code isConclusive}.
+     * <p>
+     * The class is parsed only as deeply as the checker currently running needs, and parsed again only when a later
+     * checker needs to see more of it. Ordering the checkers by their {@link AsmClassVisitor#parseDepth()} means that
+     * a class decided by its declarations alone never has its method bodies parsed.
+     *
+     * @return a result for each checker which ran, in the order the checkers were given.
+     */
+    public List<CheckerResult> runUntil(Iterable<? extends AsmMutabilityChecker> checkers,
+                                        Dotted className,
+                                        Iterable<AnalysisResult> resultsSoFar,
+                                        Predicate<CheckerResult> isConclusive) {
+        List<CheckerResult> checkerResults = new ArrayList<CheckerResult>();
+        ClassNode classNode = null;
+        ParseDepth classNodeDepth = null;
+        Throwable readError = null;
+
+        for (AsmMutabilityChecker checker : checkers) {
+            if (readError == null && (classNode == null || checker.parseDepth().compareTo(classNodeDepth) > 0)) {
+                try {
+                    classNodeDepth = checker.parseDepth();
+                    classNode = readClassNode(className, classNodeDepth);
+                } catch (Throwable e) {
+                    readError = e;
+                }
+            }
+
+            CheckerResult checkerResult = readError != null
+                    ? resultOf(checker, className, Optional.of(attemptRecovery(checker, className, resultsSoFar, readError)))
+                    : resultOf(checker, className, replay(classNode, classNodeDepth, checker, className, resultsSoFar));
+            checkerResults.add(checkerResult);
+            if (isConclusive.test(checkerResult)) {
+                break;
+            }
+        }
+        return checkerResults;
+    }
+
+    private CheckerResult resultOf(AsmMutabilityChecker checker, Dotted className, Optional<AnalysisError> potentialError) {
         if (potentialError.isPresent()) {
             return new CheckerResult(
                     CANNOT_ANALYSE.createsResult(),
@@ -78,12 +175,30 @@ public final class CheckerRunner {
         }
     }
 
+    private Optional<AnalysisError> replay(ClassNode classNode,
+                                           ParseDepth classNodeDepth,
+                                           AsmClassVisitor visitor,
+                                           Dotted className,
+                                           Iterable<AnalysisResult> resultsSoFar) {
+        long startedAt = statistics.startTiming();
+        try {
+            visitor.visitingClassReadAt(classNodeDepth);
+            classNode.accept(visitor);
+        } catch (Throwable e) {
+            return Optional.of(attemptRecovery(visitor, className, resultsSoFar, e));
+        } finally {
+            statistics.checkerFinished(visitor.getClass().getSimpleName(), startedAt);
+        }
+        return Optional.absent();
+    }
+
     public Optional<AnalysisError> runVisitor(AsmClassVisitor visitor, Dotted className, Iterable<AnalysisResult> resultsSoFar) {
         try {
+            visitor.visitingClassReadAt(visitor.parseDepth());
             try {
-                analyseFromStream(visitor, className);
+                analyseFromStream(visitor, className, visitor.parseDepth());
             } catch (Exception e) {
-                analyseFromClassLoader(visitor, className);
+                analyseFromClassLoader(visitor, className, visitor.parseDepth());
             }
         } catch (Throwable e) {
             return Optional.of(attemptRecovery(visitor, className, resultsSoFar, e));
@@ -97,19 +212,35 @@ public final class CheckerRunner {
                 : CodeLocation.UnknownCodeLocation.UNKNOWN;
     }
 
-    private void analyseFromStream(ClassVisitor checker, Dotted dottedClassPath) throws IOException {
-        InputStream classStream = classpath.getResourceAsStream(dottedClassPath.asResource());
-        analyse(checker, classStream);
+    private void analyseFromStream(ClassVisitor checker, Dotted dottedClassPath, ParseDepth depth) throws IOException {
+        Optional<byte[]> classFile = ClassFiles.read(classpath, dottedClassPath);
+        if (!classFile.isPresent()) {
+            throw new IOException("Class not found: " + dottedClassPath);
+        }
+        new ClassReader(classFile.get()).accept(checker, depth.readerFlags());
     }
 
-    private void analyseFromClassLoader(ClassVisitor checker, Dotted className) throws Exception {
+    private void analyseFromClassLoader(ClassVisitor checker, Dotted className, ParseDepth depth) throws Exception {
         InputStream classStream = getClass().getClassLoader().getResourceAsStream(className.asResource());
-        analyse(checker, classStream);
+        analyse(checker, classStream, depth);
     }
 
-    private void analyse(ClassVisitor checker, InputStream classStream) throws IOException {
+    private void analyse(ClassVisitor checker, InputStream classStream, ParseDepth depth) throws IOException {
         ClassReader cr = new ClassReader(classStream);
-        cr.accept(checker, 0);
+        cr.accept(checker, depth.readerFlags());
+    }
+
+    private ClassNode readClassNode(Dotted className, ParseDepth depth) throws Exception {
+        long startedAt = statistics.startTiming();
+        ClassNode classNode = new ClassNode();
+        try {
+            analyseFromStream(classNode, className, depth);
+        } catch (Exception e) {
+            classNode = new ClassNode();
+            analyseFromClassLoader(classNode, className, depth);
+        }
+        statistics.classParsed(startedAt);
+        return classNode;
     }
 
     private AnalysisError attemptRecovery(ClassVisitor visitor,
@@ -40,7 +40,6 @@ import org.objectweb.asm.tree.analysis.Frame;
 import java.util.Map;
 
 import static com.google.common.collect.Maps.newHashMap;
-import static java.lang.String.format;
 import static org.mutabilitydetector.IsImmutable.IMMUTABLE;
 import static org.mutabilitydetector.locations.CodeLocation.FieldLocation.fieldLocation;
 import static org.mutabilitydetector.locations.Dotted.dotted;
@@ -48,7 +47,7 @@ import static org.mutabilitydetector.locations.Dotted.dotted;
 public final class CollectionWithMutableElementTypeToFieldChecker extends AsmMutabilityChecker {
 
     private final MutableTypeInformation mutableTypeInfo;
-    private final AsmVerifierFactory verifierFactory;
+    private final MethodFrameCache frameCache;
     private final ImmutableSet<Dotted> immutableContainerTypes;
     private final JdkCollectionTypes jdkCollectionTypes = new JdkCollectionTypes();
     
@@ -60,8 +59,16 @@ public final class CollectionWithMutableElementTypeToFieldChecker extends AsmMut
             AsmVerifierFactory verifierFactory,
             ImmutableSet<Dotted> immutableContainerTypes,
             AnalysisInProgress analysisInProgress) {
+        this(mutableTypeInfo, new MethodFrameCache(verifierFactory), immutableContainerTypes, analysisInProgress);
+    }
+
+    public CollectionWithMutableElementTypeToFieldChecker(
+            MutableTypeInformation mutableTypeInfo,
+            MethodFrameCache frameCache,
+            ImmutableSet<Dotted> immutableContainerTypes,
+            AnalysisInProgress analysisInProgress) {
         this.mutableTypeInfo = mutableTypeInfo;
-        this.verifierFactory = verifierFactory;
+        this.frameCache = frameCache;
         this.immutableContainerTypes = immutableContainerTypes;
         this.analysisInProgress = analysisInProgress;
     }
@@ -72,9 +79,14 @@ public final class CollectionWithMutableElementTypeToFieldChecker extends AsmMut
         return super.visitField(access, name, desc, signature, value);
     }
     
+    @Override
+    public boolean looksUpOtherClasses() {
+        return true;
+    }
+
     @Override
     public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-        return new AssignCollectionToFieldVisitor(ownerClass, access, name, desc, signature, exceptions, verifierFactory);
+        return new AssignCollectionToFieldVisitor(ownerClass, access, name, desc, signature, exceptions, frameCache);
     }
 
     class AssignCollectionToFieldVisitor extends FieldAssignmentVisitor {
@@ -85,8 +97,8 @@ public final class CollectionWithMutableElementTypeToFieldChecker extends AsmMut
                 String desc,
                 String signature,
                 String[] exceptions, 
-                AsmVerifierFactory verifierFactory) {
-            super(owner, access, name, desc, signature, exceptions, verifierFactory);
+                MethodFrameCache frameCache) {
+            super(owner, access, name, desc, signature, exceptions, frameCache, depthRead());
         }
 
         @Override
@@ -112,9 +124,10 @@ public final class CollectionWithMutableElementTypeToFieldChecker extends AsmMut
                 Iterable<GenericType> genericParameters = collectionField.getGenericParameterTypes();
                 
                 if (!collectionField.isGeneric() || anyGenericParameterTypesAreMutable(genericParameters)) {
-                    setResult(format("Field can have collection with mutable element type (%s) assigned to it.", collectionField.asString()),
+                    setFormattedResult("Field can have collection with mutable element type (%s) assigned to it.",
                               fieldLocation(fieldName, ClassLocation.fromInternalName(ownerClass)),
-                              MutabilityReason.COLLECTION_FIELD_WITH_MUTABLE_ELEMENT_TYPE);
+                              MutabilityReason.COLLECTION_FIELD_WITH_MUTABLE_ELEMENT_TYPE,
+                              collectionField.asString());
                 }
             }
         }
@@ -25,11 +25,12 @@ package org.mutabilitydetector.checkers;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.mutabilitydetector.asmoverride.AsmClassVisitor;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
+import org.mutabilitydetector.asmoverride.ParseDepth;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.FieldInsnNode;
 import org.objectweb.asm.tree.MethodNode;
-import org.objectweb.asm.tree.analysis.Analyzer;
 import org.objectweb.asm.tree.analysis.AnalyzerException;
 import org.objectweb.asm.tree.analysis.BasicValue;
 import org.objectweb.asm.tree.analysis.Frame;
@@ -38,7 +39,8 @@ public abstract class FieldAssignmentVisitor extends MethodNode {
 
     protected List<FieldInsnNode> fieldAssignments = new ArrayList<FieldInsnNode>();
     protected final String owner;
-    private final AsmVerifierFactory verifierFactory;
+    private final MethodFrameCache frameCache;
+    private final ParseDepth parseDepth;
 
     public FieldAssignmentVisitor(String owner,
             int access,
@@ -47,9 +49,27 @@ public abstract class FieldAssignmentVisitor extends MethodNode {
             String signature,
             String[] exceptions,
             AsmVerifierFactory verifierFactory) {
+        this(owner, access, name, desc, signature, exceptions, new MethodFrameCache(verifierFactory), ParseDepth.FULL);
+    }
+
+    /**
+     * @param frameCache
+     *            - frames shared with other visitors of methods of the same class.
+     * @param parseDepth
+     *            - how deeply the class was actually read, as given by {@link AsmClassVisitor#depthRead()}.
+     */
+    public FieldAssignmentVisitor(String owner,
+            int access,
+            String name,
+            String desc,
+            String signature,
+            String[] exceptions,
+            MethodFrameCache frameCache,
+            ParseDepth parseDepth) {
         super(Opcodes.ASM5, access, name, desc, signature, exceptions);
         this.owner = owner;
-        this.verifierFactory = verifierFactory;
+        this.frameCache = frameCache;
+        this.parseDepth = parseDepth;
     }
 
     @Override
@@ -79,10 +99,9 @@ public abstract class FieldAssignmentVisitor extends MethodNode {
 
         if (fieldAssignments.isEmpty()) { return; }
 
-        Analyzer<BasicValue> a = new Analyzer<BasicValue>(verifierFactory.interpreter());
         Frame<BasicValue>[] frames;
         try {
-            frames = a.analyze(owner, this);
+            frames = frameCache.framesOf(owner, this, parseDepth);
 
             for (FieldInsnNode fieldInsnNode : fieldAssignments) {
                 Frame<BasicValue> assignmentFrame = frames[instructions.indexOf(fieldInsnNode)];
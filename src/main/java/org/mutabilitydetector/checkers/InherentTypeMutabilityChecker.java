@@ -25,6 +25,7 @@ package org.mutabilitydetector.checkers;
 import static org.mutabilitydetector.checkers.AccessModifierQuery.type;
 
 import org.mutabilitydetector.MutabilityReason;
+import org.mutabilitydetector.asmoverride.ParseDepth;
 import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
 
 /**
@@ -53,4 +54,9 @@ public final class InherentTypeMutabilityChecker extends AsmMutabilityChecker {
         }
     }
 
+    @Override
+    public ParseDepth parseDepth() {
+        return ParseDepth.HEADER;
+    }
+
 }
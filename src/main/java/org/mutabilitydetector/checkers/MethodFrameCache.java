@@ -0,0 +1,75 @@
+package org.mutabilitydetector.checkers;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
+import org.mutabilitydetector.asmoverride.ParseDepth;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
+
+/**
+ * Holds the result of data-flow analysis for the methods of a single class, so that checkers which each need the
+ * frames of the same method do not each run the {@link Analyzer} over it.
+ * <p>
+ * Frames are indexed by instruction, so sharing them relies on every checker building the method's instruction list
+ * from the same class file, read at the same {@link ParseDepth}. One instance should therefore be used for the
+ * checkers of one class only. Frames are kept separately for each depth, and a method whose instruction list does not
+ * match the frames already computed for it is rejected rather than given frames for the wrong instructions.
+ */
+@NotThreadSafe
+public final class MethodFrameCache {
+
+    private final AsmVerifierFactory verifierFactory;
+    private final Map<String, Frame<BasicValue>[]> framesByMethod = new HashMap<String, Frame<BasicValue>[]>();
+
+    public MethodFrameCache(AsmVerifierFactory verifierFactory) {
+        this.verifierFactory = verifierFactory;
+    }
+
+    /**
+     * @param depth
+     *            - how deeply the class declaring the method was actually read, which is not necessarily the depth
+     *            the asking checker needs.
+     */
+    public Frame<BasicValue>[] framesOf(String owner, MethodNode method, ParseDepth depth) throws AnalyzerException {
+        String key = owner + '.' + method.name + method.desc + '@' + depth;
+        Frame<BasicValue>[] frames = framesByMethod.get(key);
+        if (frames == null) {
+            frames = new Analyzer<BasicValue>(verifierFactory.interpreter()).analyze(owner, method);
+            framesByMethod.put(key, frames);
+        } else if (frames.length != method.instructions.size()) {
+            throw new IllegalStateException(String.format(
+                    "Frames for %s.%s%s were computed over %d instructions, but the method read at %s has %d.",
+                    owner, method.name, method.desc, frames.length, depth, method.instructions.size()));
+        }
+        return frames;
+    }
+}
@@ -56,13 +56,14 @@ public final class MutabilityCheckerFactory {
             MutableTypeInformation mutableTypeInformation,
             AnalysisInProgress analysisInProgress) {
         Collection<AsmMutabilityChecker> checkers = new ArrayList<AsmMutabilityChecker>();
+        MethodFrameCache frameCache = new MethodFrameCache(verifierFactory);
         checkers.add(new CanSubclassChecker());
         checkers.add(new PublishedNonFinalFieldChecker());
         
         if (analysisChoice == NAIVE_PUT_FIELD_ANALYSIS) {
             checkers.add(new NonFinalFieldChecker());
             checkers.add(OldSetterMethodChecker.newSetterMethodChecker(database.requestInformation(PRIVATE_METHOD_INVOCATION),
-                                                                       verifierFactory));
+                                                                       frameCache));
         } else if (analysisChoice == LAZY_INITIALISATION_ANALYSIS) {
             checkers.add(SetterMethodChecker.newInstance(database.requestInformation(PRIVATE_METHOD_INVOCATION)));
         } else {
@@ -72,7 +73,7 @@ public final class MutabilityCheckerFactory {
         checkers.add(new MutableTypeToFieldChecker(
                 database.requestInformation(TYPE_STRUCTURE),
                 mutableTypeInformation,
-                verifierFactory,
+                frameCache,
                 immutableContainerClasses,
                 analysisInProgress));
 
@@ -81,7 +82,7 @@ public final class MutabilityCheckerFactory {
         checkers.add(new EscapedThisReferenceChecker());
         checkers.add(new CollectionWithMutableElementTypeToFieldChecker(
                 mutableTypeInformation,
-                verifierFactory,
+                frameCache,
                 ImmutableSet.copyOf(immutableContainerClasses),
                 analysisInProgress));
         // checkers.add(new InheritedMutabilityChecker(analysisSession));
@@ -49,7 +49,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import static java.lang.String.format;
 import static org.mutabilitydetector.IsImmutable.IMMUTABLE;
 import static org.mutabilitydetector.MutabilityReason.*;
 import static org.mutabilitydetector.locations.CodeLocation.FieldLocation.fieldLocation;
@@ -59,7 +58,7 @@ public final class MutableTypeToFieldChecker extends AsmMutabilityChecker {
 
     private final TypeStructureInformation typeStructureInformation;
     private final MutableTypeInformation mutableTypeInfo;
-    private final AsmVerifierFactory verifierFactory;
+    private final MethodFrameCache frameCache;
     private final Set<Dotted> immutableContainerClasses;
     private final List<String> genericTypesOfClass = Lists.newLinkedList();
     private final Map<String, String> genericFields = Maps.newHashMap();
@@ -71,9 +70,17 @@ public final class MutableTypeToFieldChecker extends AsmMutabilityChecker {
                                      AsmVerifierFactory verifierFactory,
                                      Set<Dotted> immutableContainerClasses,
                                      AnalysisInProgress analysisInProgress) {
+        this(info, mutableTypeInfo, new MethodFrameCache(verifierFactory), immutableContainerClasses, analysisInProgress);
+    }
+
+    public MutableTypeToFieldChecker(TypeStructureInformation info,
+                                     MutableTypeInformation mutableTypeInfo,
+                                     MethodFrameCache frameCache,
+                                     Set<Dotted> immutableContainerClasses,
+                                     AnalysisInProgress analysisInProgress) {
         this.typeStructureInformation = info;
         this.mutableTypeInfo = mutableTypeInfo;
-        this.verifierFactory = verifierFactory;
+        this.frameCache = frameCache;
         this.immutableContainerClasses = immutableContainerClasses;
         this.analysisInProgress = analysisInProgress;
     }
@@ -132,9 +139,14 @@ public final class MutableTypeToFieldChecker extends AsmMutabilityChecker {
         }
     }
 
+    @Override
+    public boolean looksUpOtherClasses() {
+        return true;
+    }
+
     @Override
     public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-        return new AssignMutableTypeToFieldChecker(ownerClass, access, name, desc, signature, exceptions, verifierFactory);
+        return new AssignMutableTypeToFieldChecker(ownerClass, access, name, desc, signature, exceptions, frameCache);
     }
 
     class AssignMutableTypeToFieldChecker extends FieldAssignmentVisitor {
@@ -145,8 +157,8 @@ public final class MutableTypeToFieldChecker extends AsmMutabilityChecker {
                 String desc,
                 String signature,
                 String[] exceptions,
-                AsmVerifierFactory verifierFactory) {
-            super(owner, access, name, desc, signature, exceptions, verifierFactory);
+                MethodFrameCache frameCache) {
+            super(owner, access, name, desc, signature, exceptions, frameCache, depthRead());
         }
 
         @Override
@@ -225,8 +237,8 @@ public final class MutableTypeToFieldChecker extends AsmMutabilityChecker {
         }
 
         private void setAssigningToGenericFieldResult(String fieldName, FieldLocation fieldLocation) {
-            setResult(String.format("Field can have a generic type (%s) assigned to it.", genericTypeOf(fieldName)),
-                    fieldLocation, MUTABLE_TYPE_TO_FIELD);
+            setFormattedResult("Field can have a generic type (%s) assigned to it.",
+                    fieldLocation, MUTABLE_TYPE_TO_FIELD, genericTypeOf(fieldName));
         }
         
         private String genericTypeOf(String fieldName) {
@@ -238,34 +250,33 @@ public final class MutableTypeToFieldChecker extends AsmMutabilityChecker {
         }
 
         private boolean isConcreteType(Dotted className) {
+            mutableTypeInfo.recordDeclarationDependency(dotted(ownerClass), className);
             return !(typeStructureInformation.isTypeAbstract(className) || typeStructureInformation.isTypeInterface(className));
         }
 
         private void setUnsafeWrappingResult(FieldLocation fieldLocation, String wrappingHintMessage) {
-            String message = String.format("Field is not a wrapped collection type.%s", wrappingHintMessage);
-            setResult(message, fieldLocation, ABSTRACT_COLLECTION_TYPE_TO_FIELD);
+            setFormattedResult("Field is not a wrapped collection type.%s",
+                    fieldLocation, ABSTRACT_COLLECTION_TYPE_TO_FIELD, wrappingHintMessage);
         }
 
         private void setWrappingWithoutFirstCopyingResult(FieldLocation fieldLocation, String wrappingHintMessage) {
-            String message = String.format("Attempts to wrap mutable collection type without safely performing a copy first.%s", 
-                    wrappingHintMessage);
-            setResult(message, fieldLocation, ABSTRACT_COLLECTION_TYPE_TO_FIELD);
+            setFormattedResult("Attempts to wrap mutable collection type without safely performing a copy first.%s",
+                    fieldLocation, ABSTRACT_COLLECTION_TYPE_TO_FIELD, wrappingHintMessage);
         }
 
         private void setAbstractFieldAssignmentResult(FieldLocation fieldLocation, Dotted assignedToField) {
-            setResult(format("Field can have an abstract type (%s) assigned to it.", assignedToField),
-                    fieldLocation, ABSTRACT_TYPE_TO_FIELD);
+            setFormattedResult("Field can have an abstract type (%s) assigned to it.",
+                    fieldLocation, ABSTRACT_TYPE_TO_FIELD, assignedToField);
         }
 
         private void setMutableFieldAssignmentResult(FieldLocation fieldLocation, Dotted assignedToField) {
-            setResult("Field can have a mutable type (" + assignedToField + ") " + "assigned to it.",
-                    fieldLocation, MUTABLE_TYPE_TO_FIELD);
+            setFormattedResult("Field can have a mutable type (%s) assigned to it.",
+                    fieldLocation, MUTABLE_TYPE_TO_FIELD, assignedToField);
         }
 
         private void setCyclicReferenceResult(FieldLocation fieldLocation, CyclicReferences.CyclicReference cyclicReference) {
-            setResult("There is a field assigned which creates a cyclic reference. " +
-                            "(" + Joiner.on(" -> ").join(cyclicReference.references) + ")",
-                      fieldLocation, MUTABLE_TYPE_TO_FIELD);
+            setFormattedResult("There is a field assigned which creates a cyclic reference. (%s)",
+                      fieldLocation, MUTABLE_TYPE_TO_FIELD, Joiner.on(" -> ").join(cyclicReference.references));
         }
     }
 }
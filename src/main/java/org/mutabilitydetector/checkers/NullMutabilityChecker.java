@@ -26,6 +26,7 @@ import static org.mutabilitydetector.locations.CodeLocation.ClassLocation.from;
 import static org.mutabilitydetector.locations.Dotted.fromClass;
 
 import org.mutabilitydetector.MutabilityReason;
+import org.mutabilitydetector.asmoverride.ParseDepth;
 
 public final class NullMutabilityChecker extends AsmMutabilityChecker {
 
@@ -35,4 +36,9 @@ public final class NullMutabilityChecker extends AsmMutabilityChecker {
                 MutabilityReason.CANNOT_ANALYSE);
     }
 
+    @Override
+    public ParseDepth parseDepth() {
+        return ParseDepth.HEADER;
+    }
+
 }
@@ -22,7 +22,6 @@ package org.mutabilitydetector.checkers;
 
 
 
-import static java.lang.String.format;
 import static org.mutabilitydetector.checkers.AccessModifierQuery.method;
 import static org.mutabilitydetector.checkers.info.MethodIdentifier.forMethod;
 import static org.mutabilitydetector.locations.CodeLocation.ClassLocation.fromInternalName;
@@ -51,16 +50,20 @@ import org.objectweb.asm.tree.analysis.Frame;
 public final class OldSetterMethodChecker extends AsmMutabilityChecker {
 
     private final PrivateMethodInvocationInformation privateMethodInvocationInfo;
-    private final AsmVerifierFactory verifierFactory;
+    private final MethodFrameCache frameCache;
 
     private OldSetterMethodChecker(PrivateMethodInvocationInformation privateMethodInvocationInfo, 
-                                 AsmVerifierFactory verifierFactory) {
+                                 MethodFrameCache frameCache) {
         this.privateMethodInvocationInfo = privateMethodInvocationInfo;
-        this.verifierFactory = verifierFactory;
+        this.frameCache = frameCache;
     }
 
     public static OldSetterMethodChecker newSetterMethodChecker(PrivateMethodInvocationInformation privateMethodInvocationInfo, AsmVerifierFactory verifierFactory) {
-        return new OldSetterMethodChecker(privateMethodInvocationInfo, verifierFactory);
+        return newSetterMethodChecker(privateMethodInvocationInfo, new MethodFrameCache(verifierFactory));
+    }
+
+    public static OldSetterMethodChecker newSetterMethodChecker(PrivateMethodInvocationInformation privateMethodInvocationInfo, MethodFrameCache frameCache) {
+        return new OldSetterMethodChecker(privateMethodInvocationInfo, frameCache);
     }
 
     @Override
@@ -76,7 +79,7 @@ public final class OldSetterMethodChecker extends AsmMutabilityChecker {
                 desc,
                 signature,
                 exceptions, 
-                verifierFactory);
+                frameCache);
     }
 
     class SetterAssignmentVisitor extends FieldAssignmentVisitor {
@@ -89,8 +92,8 @@ public final class OldSetterMethodChecker extends AsmMutabilityChecker {
                 String desc,
                 String signature,
                 String[] exceptions, 
-                AsmVerifierFactory verifierFactory) {
-            super(ownerName, access, name, desc, signature, exceptions, verifierFactory);
+                MethodFrameCache frameCache) {
+            super(ownerName, access, name, desc, signature, exceptions, frameCache, depthRead());
         }
 
         @Override
@@ -155,9 +158,10 @@ public final class OldSetterMethodChecker extends AsmMutabilityChecker {
         }
 
         private void setIsImmutableResult(String fieldName) {
-            setResult(format("Field [%s] can be reassigned within method [%s]", fieldName, this.name), 
+            setFormattedResult("Field [%s] can be reassigned within method [%s]", 
                       FieldLocation.fieldLocation(fieldName, fromInternalName(owner)), 
-                      MutabilityReason.FIELD_CAN_BE_REASSIGNED);
+                      MutabilityReason.FIELD_CAN_BE_REASSIGNED,
+                      fieldName, this.name);
         }
 
     }
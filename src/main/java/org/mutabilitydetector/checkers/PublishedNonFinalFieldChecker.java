@@ -26,6 +26,7 @@ import static org.mutabilitydetector.checkers.AccessModifierQuery.field;
 import static org.mutabilitydetector.locations.CodeLocation.FieldLocation.fieldLocation;
 
 import org.mutabilitydetector.MutabilityReason;
+import org.mutabilitydetector.asmoverride.ParseDepth;
 import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
 import org.objectweb.asm.FieldVisitor;
 
@@ -40,4 +41,10 @@ public final class PublishedNonFinalFieldChecker extends AsmMutabilityChecker {
         }
         return super.visitField(access, name, desc, signature, value);
     }
+
+    @Override
+    public ParseDepth parseDepth() {
+        return ParseDepth.FIELDS;
+    }
+
 }
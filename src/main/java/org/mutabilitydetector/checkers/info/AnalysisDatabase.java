@@ -22,9 +22,16 @@ package org.mutabilitydetector.checkers.info;
 
 
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.mutabilitydetector.classpath.ClassHeaderIndex;
+
+import com.google.common.base.Optional;
+
+@ThreadSafe
 public final class AnalysisDatabase {
 
     public static final class InfoKey<C> {
@@ -43,44 +50,62 @@ public final class AnalysisDatabase {
 
     public static final InfoKey<TypeStructureInformation> TYPE_STRUCTURE = new InfoKey<TypeStructureInformation>(TypeStructureInformation.class);
 
-    @SuppressWarnings("rawtypes")
-    private final Map infoMap = new HashMap();
+    private final ConcurrentMap<InfoKey<?>, AnalysisInformation> infoMap = new ConcurrentHashMap<>();
 
     private final InformationRetrievalRunner sessionCheckerRunner;
+    private final Optional<ClassHeaderIndex> headerIndex;
+    private final boolean recordsStatistics;
 
-    private AnalysisDatabase(InformationRetrievalRunner sessionCheckerRunner) {
+    private AnalysisDatabase(InformationRetrievalRunner sessionCheckerRunner,
+                             Optional<ClassHeaderIndex> headerIndex,
+                             boolean recordsStatistics) {
         this.sessionCheckerRunner = sessionCheckerRunner;
+        this.headerIndex = headerIndex;
+        this.recordsStatistics = recordsStatistics;
     }
 
     public static AnalysisDatabase newAnalysisDatabase(InformationRetrievalRunner sessionCheckerRunner) {
-        return new AnalysisDatabase(sessionCheckerRunner);
+        return new AnalysisDatabase(sessionCheckerRunner, Optional.<ClassHeaderIndex>absent(), false);
+    }
+
+    /**
+     * @param headerIndex used to answer questions about type structure without visiting each class.
+     */
+    public static AnalysisDatabase newAnalysisDatabase(InformationRetrievalRunner sessionCheckerRunner, ClassHeaderIndex headerIndex) {
+        return newAnalysisDatabase(sessionCheckerRunner, headerIndex, false);
+    }
+
+    /**
+     * @param headerIndex used to answer questions about type structure without visiting each class.
+     * @param recordsStatistics whether the information's caches count their hits and misses.
+     */
+    public static AnalysisDatabase newAnalysisDatabase(InformationRetrievalRunner sessionCheckerRunner,
+                                                       ClassHeaderIndex headerIndex,
+                                                       boolean recordsStatistics) {
+        return new AnalysisDatabase(sessionCheckerRunner, Optional.of(headerIndex), recordsStatistics);
     }
 
     @SuppressWarnings("unchecked")
     public <I extends AnalysisInformation> I requestInformation(InfoKey<I> infoCategory) {
-        return (infoMap.containsKey(infoCategory)) 
-                ? (I) infoMap.get(infoCategory)
-                : createInfoForCategory(infoCategory);
+        return (I) infoMap.computeIfAbsent(infoCategory, this::createInfoForCategory);
     }
 
     private <I> InfoKeyException newException(InfoKey<I> infoCategory) {
         return new InfoKeyException("Programming error in instantiating information class for " + infoCategory.classForInfo().getName());
     }
 
-    @SuppressWarnings("unchecked")
-    private <I extends AnalysisInformation> I createInfoForCategory(InfoKey<I> infoCategory) {
-        I info = null;
+    private AnalysisInformation createInfoForCategory(InfoKey<?> infoCategory) {
+        AnalysisInformation info = null;
         if (infoCategory == PRIVATE_METHOD_INVOCATION) {
-            info = (I) new PrivateMethodInvocationInformation(sessionCheckerRunner);
+            info = new PrivateMethodInvocationInformation(sessionCheckerRunner, recordsStatistics);
         } else if (infoCategory == TYPE_STRUCTURE) {
-            info = (I) new TypeStructureInformation(sessionCheckerRunner);
+            info = new TypeStructureInformation(sessionCheckerRunner, headerIndex, recordsStatistics);
         }
 
         if (info == null) {
             throw newException(infoCategory);
         }
-        
-        infoMap.put(infoCategory, info);
+
         return info;
     }
 }
@@ -20,27 +20,103 @@ package org.mutabilitydetector.checkers.info;
  * #L%
  */
 
-import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import org.mutabilitydetector.locations.Dotted;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The classes whose analysis is underway, in the order their analysis started, which lead to the analysis of
+ * another class.
+ * <p>
+ * Each instance holds only the class whose analysis started most recently and a link to the instance it was started
+ * from, so starting analysis of another class does not copy the classes already in progress. Alongside the link,
+ * each instance keeps the classes in a persistent hash trie. Starting analysis of another class shares every node of
+ * the trie except those on the path to the new class, and {@link #contains(Dotted)} follows a single path whose
+ * length grows with the logarithm of the number of classes in progress, rather than walking the links.
+ * <p>
+ * The deprecated {@link #inProgress} field is still filled from the links when an instance is built, so that code
+ * compiled against it keeps working.
+ */
 public final class AnalysisInProgress {
+
+    private static final AnalysisInProgress NO_ANALYSIS_UNDERWAY = new AnalysisInProgress();
+
+    /**
+     * @deprecated use {@link #inProgress()}.
+     */
+    @Deprecated
     public final ImmutableList<Dotted> inProgress;
 
+    private final Dotted mostRecent;
+    private final AnalysisInProgress startedBefore;
+    private final ClassTrie classes;
+    private final int depth;
+    private final int hashCode;
+
     private AnalysisInProgress() {
+        this.mostRecent = null;
+        this.startedBefore = null;
+        this.classes = ClassTrie.EMPTY;
+        this.depth = 0;
         this.inProgress = ImmutableList.of();
+        this.hashCode = inProgress.hashCode();
     }
 
-    private AnalysisInProgress(ImmutableList<Dotted> inProgress) {
-        this.inProgress = inProgress;
+    private AnalysisInProgress(Dotted mostRecent, AnalysisInProgress startedBefore) {
+        this.mostRecent = mostRecent;
+        this.startedBefore = startedBefore;
+        this.classes = startedBefore.classes.with(mostRecent);
+        this.depth = startedBefore.depth + 1;
+        this.inProgress = classesStartedAfter(NO_ANALYSIS_UNDERWAY);
+        this.hashCode = 31 * startedBefore.hashCode + mostRecent.hashCode();
     }
 
-    public static AnalysisInProgress noAnalysisUnderway() { return new AnalysisInProgress(); }
+    public static AnalysisInProgress noAnalysisUnderway() { return NO_ANALYSIS_UNDERWAY; }
+
+    /**
+     * @return how many analyses are in progress.
+     */
+    public int depth() {
+        return depth;
+    }
 
-    public boolean contains(Dotted clazz) { return inProgress.contains(clazz); }
+    public boolean contains(Dotted clazz) {
+        return classes.contains(clazz);
+    }
 
     public AnalysisInProgress analysisStartedFor(Dotted clazz) {
-        return new AnalysisInProgress(ImmutableList.<Dotted>builder().addAll(inProgress).add(clazz).build());
+        return new AnalysisInProgress(clazz, this);
+    }
+
+    /**
+     * @return the classes in progress, in the order their analysis started.
+     */
+    @SuppressWarnings("deprecation")
+    public ImmutableList<Dotted> inProgress() {
+        return inProgress;
+    }
+
+    /**
+     * @return the classes in progress from the given class onwards, in the order their analysis started.
+     */
+    ImmutableList<Dotted> inProgressSince(Dotted clazz) {
+        checkArgument(contains(clazz), "Analysis of %s is not in progress", clazz);
+        AnalysisInProgress since = this;
+        while (!since.mostRecent.equals(clazz)) {
+            since = since.startedBefore;
+        }
+        return inProgress().subList(since.startedBefore.depth, depth);
+    }
+
+    private ImmutableList<Dotted> classesStartedAfter(AnalysisInProgress earlier) {
+        Dotted[] classes = new Dotted[depth - earlier.depth];
+        AnalysisInProgress current = this;
+        for (int i = classes.length - 1; i >= 0; i--) {
+            classes[i] = current.mostRecent;
+            current = current.startedBefore;
+        }
+        return ImmutableList.copyOf(classes);
     }
 
     @Override
@@ -48,18 +124,88 @@ public final class AnalysisInProgress {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         AnalysisInProgress that = (AnalysisInProgress) o;
-        return Objects.equal(inProgress, that.inProgress);
+        if (hashCode != that.hashCode || depth != that.depth) return false;
+        AnalysisInProgress mine = this;
+        AnalysisInProgress theirs = that;
+        while (mine != theirs) {
+            if (!mine.mostRecent.equals(theirs.mostRecent)) return false;
+            mine = mine.startedBefore;
+            theirs = theirs.startedBefore;
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(inProgress);
+        return hashCode;
     }
 
     @Override
     public String toString() {
         return "AnalysisInProgress{" +
-                "inProgress=" + inProgress +
+                "inProgress=" + inProgress() +
                 '}';
     }
+
+    /**
+     * A persistent binary trie over the bits of each class's hash code. A subtree holding a single class is a leaf;
+     * classes whose hash codes are equal share a leaf once every bit has been used.
+     */
+    private static final class ClassTrie {
+        private static final int HASH_BITS = 32;
+        static final ClassTrie EMPTY = new ClassTrie(ImmutableList.<Dotted>of(), null, null);
+
+        private final ImmutableList<Dotted> leafClasses;
+        private final ClassTrie zero;
+        private final ClassTrie one;
+
+        private ClassTrie(ImmutableList<Dotted> leafClasses, ClassTrie zero, ClassTrie one) {
+            this.leafClasses = leafClasses;
+            this.zero = zero;
+            this.one = one;
+        }
+
+        boolean contains(Dotted clazz) {
+            int hash = spread(clazz.hashCode());
+            ClassTrie node = this;
+            for (int shift = 0; node.isBranch(); shift++) {
+                node = ((hash >>> shift) & 1) == 0 ? node.zero : node.one;
+            }
+            return node.leafClasses.contains(clazz);
+        }
+
+        ClassTrie with(Dotted clazz) {
+            return contains(clazz) ? this : with(clazz, spread(clazz.hashCode()), 0);
+        }
+
+        private ClassTrie with(Dotted clazz, int hash, int shift) {
+            if (isBranch()) {
+                return ((hash >>> shift) & 1) == 0
+                        ? new ClassTrie(null, zero.with(clazz, hash, shift + 1), one)
+                        : new ClassTrie(null, zero, one.with(clazz, hash, shift + 1));
+            } else if (leafClasses.isEmpty() || shift == HASH_BITS) {
+                return new ClassTrie(ImmutableList.<Dotted>builder().addAll(leafClasses).add(clazz).build(), null, null);
+            }
+            return pushDown(shift).with(clazz, hash, shift);
+        }
+
+        /**
+         * @return a branch holding this leaf on the side given by the bit, at the given shift, of its class's hash.
+         */
+        private ClassTrie pushDown(int shift) {
+            int hash = spread(leafClasses.get(0).hashCode());
+            return ((hash >>> shift) & 1) == 0
+                    ? new ClassTrie(null, this, EMPTY)
+                    : new ClassTrie(null, EMPTY, this);
+        }
+
+        private boolean isBranch() {
+            return leafClasses == null;
+        }
+
+        private static int spread(int hashCode) {
+            int hash = hashCode * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
 }
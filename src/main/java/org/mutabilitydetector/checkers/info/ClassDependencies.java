@@ -0,0 +1,209 @@
+package org.mutabilitydetector.checkers.info;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.mutabilitydetector.locations.ClassIds;
+import org.mutabilitydetector.locations.Dotted;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Records which classes the result of analysing a class depended on, as discovered while analysing it.
+ * <p>
+ * A dependency is recorded whenever the analysis of one class needs the result for another, such as the type of one
+ * of its fields, whether that result was already known or had to be computed.
+ * <p>
+ * Each class is given a dense integer id from the graph's own {@link ClassIds}, in the order it is first seen, and
+ * edges are held as arrays of ids in both directions, so the graph stays small even for a scan of a whole classpath.
+ * It can be queried by class name or by id, and exported in Graphviz DOT format with {@link #writeDot(Appendable)}.
+ * <p>
+ * Recording a dependency locks only the edge lists of the two classes involved, so threads analysing different
+ * classes do not contend. Only the first sighting of a class takes a lock shared by the whole graph.
+ */
+@ThreadSafe
+public final class ClassDependencies {
+
+    public static final int UNKNOWN_CLASS = ClassIds.UNKNOWN_CLASS;
+
+    private static final int[] NO_EDGES = new int[0];
+
+    private final ClassIds ids = new ClassIds();
+    /** Only written while holding this object's lock. */
+    private volatile Node[] nodesById = new Node[64];
+    private final AtomicInteger edgeCount = new AtomicInteger();
+
+    public void recordDependency(Dotted dependent, Dotted dependency) {
+        if (dependent.equals(dependency)) {
+            return;
+        }
+        int from = ids.idOf(dependent);
+        int to = ids.idOf(dependency);
+        if (nodeFor(from).dependencies.addIfAbsent(to)) {
+            nodeFor(to).dependents.add(from);
+            edgeCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the classes whose results were needed to analyse the given class.
+     */
+    public Set<Dotted> dependenciesOf(Dotted dependent) {
+        return classNamesOf(dependencyIdsOf(idOf(dependent)));
+    }
+
+    /**
+     * @return the classes whose analysis needed the result of the given class.
+     */
+    public Set<Dotted> dependentsOf(Dotted dependency) {
+        return classNamesOf(dependentIdsOf(idOf(dependency)));
+    }
+
+    /**
+     * @return the id of the given class, or {@link #UNKNOWN_CLASS} if it has not taken part in any dependency.
+     */
+    public int idOf(Dotted className) {
+        return ids.existingIdOf(className);
+    }
+
+    public Dotted classNameOf(int id) {
+        return ids.classNameOf(id);
+    }
+
+    public int[] dependencyIdsOf(int id) {
+        Node node = existingNodeOf(id);
+        return node == null ? NO_EDGES : node.dependencies.toArray();
+    }
+
+    public int[] dependentIdsOf(int id) {
+        Node node = existingNodeOf(id);
+        return node == null ? NO_EDGES : node.dependents.toArray();
+    }
+
+    public int classCount() {
+        return ids.size();
+    }
+
+    public int edgeCount() {
+        return edgeCount.get();
+    }
+
+    /**
+     * Writes the graph in Graphviz DOT format, with an edge from each class to each class it depended on.
+     */
+    public void writeDot(Appendable out) throws IOException {
+        out.append("digraph dependencies {\n");
+        int count = ids.size();
+        for (int from = 0; from < count; from++) {
+            for (int to : dependencyIdsOf(from)) {
+                out.append("  \"").append(ids.classNameOf(from).asString())
+                   .append("\" -> \"").append(ids.classNameOf(to).asString())
+                   .append("\";\n");
+            }
+        }
+        out.append("}\n");
+    }
+
+    /**
+     * A node is created the first time it is needed after its class is given an id, so a reader may briefly find an
+     * id with no node yet; such a class has no edges.
+     */
+    private Node nodeFor(int id) {
+        Node[] byId = nodesById;
+        Node existing = id < byId.length ? byId[id] : null;
+        return existing != null ? existing : addNode(id);
+    }
+
+    private synchronized Node addNode(int id) {
+        Node[] byId = nodesById;
+        if (id >= byId.length) {
+            byId = Arrays.copyOf(byId, Math.max(byId.length * 2, id + 1));
+        } else if (byId[id] != null) {
+            return byId[id];
+        }
+        Node node = new Node();
+        byId[id] = node;
+        nodesById = byId;
+        return node;
+    }
+
+    /**
+     * @return the node of the given class, or null if it has no edges yet.
+     */
+    private Node existingNodeOf(int id) {
+        if (id == UNKNOWN_CLASS) {
+            return null;
+        } else if (id < 0 || id >= ids.size()) {
+            throw new IllegalArgumentException("Unknown class id: " + id);
+        }
+        Node[] byId = nodesById;
+        return id < byId.length ? byId[id] : null;
+    }
+
+    private Set<Dotted> classNamesOf(int[] classIds) {
+        ImmutableSet.Builder<Dotted> names = ImmutableSet.builder();
+        for (int id : classIds) {
+            names.add(ids.classNameOf(id));
+        }
+        return names.build();
+    }
+
+    private static final class Node {
+        final IntList dependencies = new IntList();
+        final IntList dependents = new IntList();
+    }
+
+    @ThreadSafe
+    private static final class IntList {
+        @GuardedBy("this") private int[] values = NO_EDGES;
+        @GuardedBy("this") private int size;
+
+        synchronized void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(4, size * 2));
+            }
+            values[size++] = value;
+        }
+
+        synchronized boolean addIfAbsent(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    return false;
+                }
+            }
+            add(value);
+            return true;
+        }
+
+        synchronized int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
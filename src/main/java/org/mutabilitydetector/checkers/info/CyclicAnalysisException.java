@@ -0,0 +1,48 @@
+package org.mutabilitydetector.checkers.info;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.mutabilitydetector.checkers.MutabilityAnalysisException;
+import org.mutabilitydetector.locations.Dotted;
+
+import static java.lang.String.format;
+
+/**
+ * Thrown by an {@link org.mutabilitydetector.AnalysisSession} when a transitive analysis is requested for a class
+ * which is already being analysed on another thread, and waiting for that result would never complete because the
+ * other thread is itself (directly or indirectly) waiting on the requesting thread.
+ * <p>
+ * This is the concurrent equivalent of finding a class in the {@link AnalysisInProgress}, and is treated by
+ * {@link MutableTypeInformation} in the same way: as a cyclic reference.
+ */
+public final class CyclicAnalysisException extends MutabilityAnalysisException {
+
+    private static final long serialVersionUID = 4283391871129346427L;
+
+    public final Dotted requested;
+
+    public CyclicAnalysisException(Dotted requested) {
+        super(format("Analysis of %s is already in progress, and is waiting on this analysis to complete.", requested));
+        this.requested = requested;
+    }
+
+}
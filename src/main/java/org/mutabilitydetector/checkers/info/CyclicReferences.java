@@ -25,47 +25,162 @@ import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import org.mutabilitydetector.locations.Dotted;
 
 import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
-import static java.util.Collections.newSetFromMap;
-
+/**
+ * Tracks the strongly connected components of the field type graph which have been discovered so far.
+ * <p>
+ * Transitive analysis explores the field type graph depth first, with {@link AnalysisInProgress} as its stack. A
+ * field whose type is already on the stack is a back edge: every class on the stack from that type onwards, plus the
+ * class owning the field, lies on one cycle, and so in one component. Components which share a class are merged, as
+ * in path-based strongly connected component algorithms, using a union-find structure. Once a component is known,
+ * a reference between any two of its members is reported as the same cyclic reference without looking at the stack
+ * again, in amortised constant time.
+ * <p>
+ * Looking for a known component takes no lock: parent links are only ever moved towards the root, with
+ * compare-and-set. Only adding a newly found cycle, and merging it with the components it shares classes with, takes
+ * a lock. A lookup racing with a merge may see the components as they were just before it.
+ */
+@ThreadSafe
 public final class CyclicReferences {
-    private final Set<CyclicReference> cyclicReferenceCache = newSetFromMap(new ConcurrentHashMap<CyclicReference, Boolean>());
+
+    private final ConcurrentMap<Dotted, Node> members = new ConcurrentHashMap<Dotted, Node>();
 
     public Optional<CyclicReference> detectedBetween(Dotted ownerClass, Dotted fieldClass, AnalysisInProgress analysisInProgress) {
-        final CyclicReference potentialCyclicReference = new CyclicReference(fieldClass, ownerClass);
-        if (cyclicReferenceCache.contains(potentialCyclicReference)) {
-            return Optional.of(potentialCyclicReference);
+        Optional<CyclicReference> knownComponent = knownComponentContaining(ownerClass, fieldClass);
+        if (knownComponent.isPresent()) {
+            return knownComponent;
         } else if (fieldClass.equals(ownerClass)) {
-            cyclicReferenceCache.add(potentialCyclicReference);
-            return Optional.of(potentialCyclicReference);
+            return Optional.of(addComponent(ImmutableList.of(ownerClass)));
         } else if (analysisInProgress.contains(fieldClass)) {
-            CyclicReference cyclicReference = new CyclicReference(analysisInProgress);
-            cyclicReferenceCache.add(cyclicReference);
-            return Optional.of(cyclicReference);
+            ImmutableList<Dotted> cycle = ImmutableList.<Dotted>builder()
+                    .addAll(analysisInProgress.inProgressSince(fieldClass))
+                    .add(ownerClass)
+                    .build();
+            return Optional.of(addComponent(cycle));
         } else {
             return Optional.absent();
         }
     }
 
+    /**
+     * Records a cycle which was found through another thread, where the rest of the path is not known.
+     *
+     * @see CyclicAnalysisException
+     */
+    public CyclicReference detectedAcrossThreads(Dotted ownerClass, Dotted fieldClass) {
+        Optional<CyclicReference> knownComponent = knownComponentContaining(ownerClass, fieldClass);
+        return knownComponent.isPresent()
+                ? knownComponent.get()
+                : addComponent(ImmutableList.of(fieldClass, ownerClass));
+    }
+
     public static CyclicReferences newEmptyMutableInstance() {
         return new CyclicReferences();
     }
 
+    private Optional<CyclicReference> knownComponentContaining(Dotted ownerClass, Dotted fieldClass) {
+        Node root = rootOf(ownerClass);
+        if (root != null && root == rootOf(fieldClass)) {
+            return Optional.of(root.component);
+        }
+        return Optional.absent();
+    }
+
+    /**
+     * Merges the cycle with every known component it shares a class with. Merges are serialised, so no class is
+     * added twice and no root is merged into two components.
+     */
+    private synchronized CyclicReference addComponent(ImmutableList<Dotted> cycle) {
+        ImmutableSet.Builder<Dotted> componentMembers = ImmutableSet.builder();
+        List<Dotted> newMembers = new ArrayList<Dotted>();
+        Set<Node> mergedRoots = Sets.newIdentityHashSet();
+        for (Dotted member : cycle) {
+            Node root = rootOf(member);
+            if (root == null) {
+                componentMembers.add(member);
+                newMembers.add(member);
+            } else if (mergedRoots.add(root)) {
+                componentMembers.addAll(root.component.references);
+            }
+        }
+
+        CyclicReference component = new CyclicReference(componentMembers.build().asList());
+        Node newRoot = new Node(null, component);
+        for (Dotted member : newMembers) {
+            members.put(member, new Node(newRoot, null));
+        }
+        for (Node mergedRoot : mergedRoots) {
+            mergedRoot.parent = newRoot;
+        }
+        return component;
+    }
+
+    /**
+     * @return the root of the component containing the given class, or null if it is in no known cycle.
+     */
+    private Node rootOf(Dotted clazz) {
+        Node node = members.get(clazz);
+        if (node == null) {
+            return null;
+        }
+        Node parent = node.parent;
+        for (Node grandparent = parent.parent; grandparent != null; grandparent = parent.parent) {
+            // Path splitting: point each node on the path at its grandparent, unless another thread already moved it.
+            Node.PARENT.compareAndSet(node, parent, grandparent);
+            node = parent;
+            parent = grandparent;
+        }
+        return parent;
+    }
+
+    /**
+     * A class, whose parent is never null, or a component, which is a root until it is merged into another. A parent
+     * only ever changes to one of its own ancestors, or, for a root, to the component it is merged into.
+     */
+    private static final class Node {
+        static final AtomicReferenceFieldUpdater<Node, Node> PARENT =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "parent");
+
+        volatile Node parent;
+        final CyclicReference component;
+
+        Node(Node parent, CyclicReference component) {
+            this.parent = parent;
+            this.component = component;
+        }
+    }
+
+    /**
+     * The classes of one strongly connected component of the field type graph, in the order they were found. Two
+     * cyclic references are equal when they have the same members, whatever their order.
+     */
     @Immutable
     public static final class CyclicReference {
         public final ImmutableList<Dotted> references;
+        private final ImmutableSet<Dotted> members;
 
         public CyclicReference(Dotted first, Dotted second) {
-            this.references = ImmutableList.of(first, second);
+            this(ImmutableList.of(first, second));
         }
 
         public CyclicReference(AnalysisInProgress analysisInProgress) {
-            this.references = analysisInProgress.inProgress;
+            this(analysisInProgress.inProgress());
+        }
+
+        private CyclicReference(ImmutableList<Dotted> references) {
+            this.references = references;
+            this.members = ImmutableSet.copyOf(references);
         }
 
         @Override
@@ -73,12 +188,12 @@ public final class CyclicReferences {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
             CyclicReference that = (CyclicReference) o;
-            return Objects.equal(ImmutableSet.copyOf(references), ImmutableSet.copyOf(that.references));
+            return Objects.equal(members, that.members);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hashCode(references);
+            return members.hashCode();
         }
 
         @Override
@@ -22,6 +22,7 @@ package org.mutabilitydetector.checkers.info;
 
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import org.mutabilitydetector.AnalysisResult;
 import org.mutabilitydetector.AnalysisSession;
@@ -30,6 +31,8 @@ import org.mutabilitydetector.checkers.info.CyclicReferences.CyclicReference;
 import org.mutabilitydetector.locations.Dotted;
 
 import javax.annotation.concurrent.Immutable;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -38,20 +41,87 @@ public final class MutableTypeInformation {
     private final AnalysisSession analysisSession;
     private final Configuration configuration;
     private final CyclicReferences cyclicReferences;
+    private final ClassDependencies dependencies;
+    private final Optional<Set<Dotted>> deferredAnalyses;
 
     public MutableTypeInformation(AnalysisSession analysisSession,
                                   Configuration configuration,
                                   CyclicReferences cyclicReferences) {
+        this(analysisSession, configuration, cyclicReferences, new ClassDependencies());
+    }
+
+    public MutableTypeInformation(AnalysisSession analysisSession,
+                                  Configuration configuration,
+                                  CyclicReferences cyclicReferences,
+                                  ClassDependencies dependencies) {
+        this(analysisSession, configuration, cyclicReferences, dependencies, Optional.<Set<Dotted>>absent());
+    }
+
+    private MutableTypeInformation(AnalysisSession analysisSession,
+                                   Configuration configuration,
+                                   CyclicReferences cyclicReferences,
+                                   ClassDependencies dependencies,
+                                   Optional<Set<Dotted>> deferredAnalyses) {
         this.analysisSession = analysisSession;
         this.configuration = configuration;
         this.cyclicReferences = cyclicReferences;
+        this.dependencies = dependencies;
+        this.deferredAnalyses = deferredAnalyses;
+    }
+
+    /**
+     * Creates an instance which, instead of analysing a class whose result is not yet known, records it in
+     * {@link #deferredAnalyses()} and answers as if that class were immutable.
+     * <p>
+     * A result computed with this instance is only complete if no analysis was deferred. Otherwise the caller is
+     * expected to analyse the deferred classes itself and then analyse the original class again, which keeps
+     * transitive analysis off the call stack. Since such a result is discarded, checkers which do not look up other
+     * classes are not run once an analysis has been deferred.
+     */
+    public static MutableTypeInformation deferringTransitiveAnalysis(AnalysisSession analysisSession,
+                                                                     Configuration configuration,
+                                                                     CyclicReferences cyclicReferences,
+                                                                     ClassDependencies dependencies) {
+        return new MutableTypeInformation(analysisSession, configuration, cyclicReferences, dependencies,
+                Optional.<Set<Dotted>>of(new LinkedHashSet<Dotted>()));
+    }
+
+    /**
+     * @return true if this instance was created by
+     *         {@link #deferringTransitiveAnalysis(AnalysisSession, Configuration, CyclicReferences, ClassDependencies)}.
+     */
+    public boolean defersTransitiveAnalysis() {
+        return deferredAnalyses.isPresent();
+    }
+
+    public boolean hasDeferredAnalyses() {
+        return deferredAnalyses.isPresent() && !deferredAnalyses.get().isEmpty();
+    }
+
+    /**
+     * @return the classes whose analysis was deferred, in the order they were first requested.
+     */
+    public ImmutableList<Dotted> deferredAnalyses() {
+        return deferredAnalyses.isPresent()
+                ? ImmutableList.copyOf(deferredAnalyses.get())
+                : ImmutableList.<Dotted>of();
     }
     
     public ImmutableMultimap<String, CopyMethod> hardcodedCopyMethods() {
         return configuration.hardcodedCopyMethods();
     }
 
+    /**
+     * Records that the result for the owner class depends on the declaration of another class, such as whether it is
+     * abstract or an interface, where that is looked up through {@link TypeStructureInformation} rather than through
+     * {@link #resultOf(Dotted, Dotted, AnalysisInProgress)}.
+     */
+    public void recordDeclarationDependency(Dotted ownerClass, Dotted declaringClass) {
+        dependencies.recordDependency(ownerClass, declaringClass);
+    }
+
     public MutabilityLookup resultOf(Dotted ownerClass, Dotted fieldClass, AnalysisInProgress analysisInProgress) {
+        dependencies.recordDependency(ownerClass, fieldClass);
         Optional<AnalysisResult> alreadyComputedResult = existingResult(fieldClass);
 
         return(alreadyComputedResult.isPresent())
@@ -63,9 +133,16 @@ public final class MutableTypeInformation {
         Optional<CyclicReference> cyclicReference = cyclicReferences.detectedBetween(ownerClass, fieldClass, analysisInProgress);
         if (cyclicReference.isPresent()) {
             return MutabilityLookup.foundCyclicReference(cyclicReference.get());
+        } else if (deferredAnalyses.isPresent()) {
+            deferredAnalyses.get().add(fieldClass);
+            return MutabilityLookup.complete(AnalysisResult.definitelyImmutable(fieldClass));
         } else {
-            AnalysisResult result = analysisSession.processTransitiveAnalysis(fieldClass, analysisInProgress.analysisStartedFor(ownerClass));
-            return MutabilityLookup.complete(result);
+            try {
+                AnalysisResult result = analysisSession.processTransitiveAnalysis(fieldClass, analysisInProgress.analysisStartedFor(ownerClass));
+                return MutabilityLookup.complete(result);
+            } catch (CyclicAnalysisException e) {
+                return MutabilityLookup.foundCyclicReference(cyclicReferences.detectedAcrossThreads(ownerClass, fieldClass));
+            }
         }
 
     }
@@ -24,33 +24,61 @@ package org.mutabilitydetector.checkers.info;
 
 import static org.mutabilitydetector.locations.ClassIdentifier.forClass;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.concurrent.ThreadSafe;
 
 import org.mutabilitydetector.checkers.util.PrivateMethodInvocationAnalyser;
 import org.mutabilitydetector.locations.Dotted;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+@ThreadSafe
 public final class PrivateMethodInvocationInformation implements AnalysisInformation {
 
-    private final Map<Dotted, PrivateMethodInvocationAnalyser> checkerCache = new HashMap<Dotted, PrivateMethodInvocationAnalyser>();
+    private final Cache<Dotted, PrivateMethodInvocationAnalyser> checkerCache;
     private final InformationRetrievalRunner sessionCheckerRunner;
 
     public PrivateMethodInvocationInformation(InformationRetrievalRunner sessionCheckerRunner) {
+        this(sessionCheckerRunner, false);
+    }
+
+    PrivateMethodInvocationInformation(InformationRetrievalRunner sessionCheckerRunner, boolean recordsStatistics) {
         this.sessionCheckerRunner = sessionCheckerRunner;
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+        if (recordsStatistics) {
+            builder.recordStats();
+        }
+        this.checkerCache = builder.build();
+    }
+
+    public CacheStats cacheStats() {
+        return checkerCache.stats();
     }
 
     public boolean isOnlyCalledFromConstructor(MethodIdentifier forMethod) {
+        Dotted className = forMethod.dottedClassName();
         PrivateMethodInvocationAnalyser checker;
-        if (checkerCache.containsKey(forMethod.dottedClassName())) {
-            checker = checkerCache.get(forMethod.dottedClassName());
-        } else {
-            checker = new PrivateMethodInvocationAnalyser();
-            sessionCheckerRunner.run(checker, forClass(forMethod.dottedClassName()));
-            checkerCache.put(forMethod.dottedClassName(), checker);
+        try {
+            checker = checkerCache.get(className, () -> runChecker(className));
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
         }
         return result(checker, forMethod);
     }
 
+    private PrivateMethodInvocationAnalyser runChecker(Dotted className) {
+        PrivateMethodInvocationAnalyser checker = new PrivateMethodInvocationAnalyser();
+        sessionCheckerRunner.run(checker, forClass(className));
+        return checker;
+    }
+
     private boolean result(PrivateMethodInvocationAnalyser checker, MethodIdentifier forMethod) {
         return checker.isPrivateMethodCalledOnlyFromConstructor(forMethod.methodDescriptor());
     }
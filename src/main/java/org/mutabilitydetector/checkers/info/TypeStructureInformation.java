@@ -25,42 +25,86 @@ package org.mutabilitydetector.checkers.info;
 import static org.mutabilitydetector.checkers.util.TypeStructureInformationAnalyser.newAnalyser;
 import static org.mutabilitydetector.locations.ClassIdentifier.forClass;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.concurrent.ThreadSafe;
 
 import org.mutabilitydetector.checkers.util.TypeStructureInformationAnalyser;
+import org.mutabilitydetector.classpath.ClassHeaderIndex;
+import org.mutabilitydetector.classpath.ClassHeaderIndex.ClassHeader;
 import org.mutabilitydetector.locations.Dotted;
 
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Answers whether types are abstract or interfaces.
+ * <p>
+ * When given a {@link ClassHeaderIndex}, answers from the header of the class file. Otherwise, or if the header
+ * cannot be read, the class is visited by a {@link TypeStructureInformationAnalyser}.
+ */
+@ThreadSafe
 public final class TypeStructureInformation implements AnalysisInformation {
 
     private final InformationRetrievalRunner sessionCheckerRunner;
-    private final Map<Dotted, Boolean> isAbstractMap = new HashMap<Dotted, Boolean>();
-    private final Map<Dotted, Boolean> isInterfaceMap = new HashMap<Dotted, Boolean>();
+    private final Optional<ClassHeaderIndex> headerIndex;
+    private final Cache<Dotted, TypeStructureInformationAnalyser> analyserCache;
+
+    public CacheStats cacheStats() {
+        return analyserCache.stats();
+    }
 
     public TypeStructureInformation(InformationRetrievalRunner sessionCheckerRunner) {
+        this(sessionCheckerRunner, Optional.<ClassHeaderIndex>absent());
+    }
+
+    public TypeStructureInformation(InformationRetrievalRunner sessionCheckerRunner, Optional<ClassHeaderIndex> headerIndex) {
+        this(sessionCheckerRunner, headerIndex, false);
+    }
+
+    TypeStructureInformation(InformationRetrievalRunner sessionCheckerRunner,
+                             Optional<ClassHeaderIndex> headerIndex,
+                             boolean recordsStatistics) {
         this.sessionCheckerRunner = sessionCheckerRunner;
+        this.headerIndex = headerIndex;
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+        if (recordsStatistics) {
+            builder.recordStats();
+        }
+        this.analyserCache = builder.build();
     }
 
-    private void runCheckerAndPopulateResultMaps(Dotted className) {
+    private TypeStructureInformationAnalyser runChecker(Dotted className) {
         TypeStructureInformationAnalyser analyser = newAnalyser(className);
         sessionCheckerRunner.run(analyser, forClass(className));
-
-        isAbstractMap.put(className, analyser.isAbstract());
-        isInterfaceMap.put(className, analyser.isInterface());
+        return analyser;
     }
 
-    private Boolean getResultFrom(Dotted className, Map<Dotted, Boolean> resultMap) {
-        if (!resultMap.containsKey(className)) {
-            runCheckerAndPopulateResultMaps(className);
+    private TypeStructureInformationAnalyser analysedStructureOf(Dotted className) {
+        try {
+            return analyserCache.get(className, () -> runChecker(className));
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
         }
-        return resultMap.get(className);
+    }
+
+    private Optional<ClassHeader> headerOf(Dotted className) {
+        return headerIndex.isPresent() ? headerIndex.get().headerOf(className) : Optional.<ClassHeader>absent();
     }
 
     public boolean isTypeAbstract(Dotted className) {
-        return getResultFrom(className, isAbstractMap);
+        Optional<ClassHeader> header = headerOf(className);
+        return header.isPresent() ? header.get().isAbstract() : analysedStructureOf(className).isAbstract();
     }
 
     public boolean isTypeInterface(Dotted className) {
-        return getResultFrom(className, isInterfaceMap);
+        Optional<ClassHeader> header = headerOf(className);
+        return header.isPresent() ? header.get().isInterface() : analysedStructureOf(className).isInterface();
     }
 }
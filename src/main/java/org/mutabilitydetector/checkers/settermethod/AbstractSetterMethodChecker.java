@@ -22,7 +22,6 @@ package org.mutabilitydetector.checkers.settermethod;
 
 
 
-import static java.lang.String.format;
 import static org.mutabilitydetector.checkers.AccessModifierQuery.field;
 import static org.mutabilitydetector.locations.CodeLocation.ClassLocation.fromInternalName;
 import static org.mutabilitydetector.locations.CodeLocation.FieldLocation.fieldLocation;
@@ -180,6 +179,11 @@ abstract class AbstractSetterMethodChecker extends AsmMutabilityChecker {
         super.setResult(message, fromInternalName(classNode.name), reason);
     }
 
+    protected void setFormattedResultForClass(final String messageTemplate, final Reason reason,
+            final Object... messageArguments) {
+        super.setFormattedResult(messageTemplate, fromInternalName(classNode.name), reason, messageArguments);
+    }
+
     final void setNonFinalFieldResult(final String variableName) {
         final String msg = "Field is not final, if shared across threads the Java Memory Model will not"
                 + " guarantee it is initialised before it is read.";
@@ -191,10 +195,15 @@ abstract class AbstractSetterMethodChecker extends AsmMutabilityChecker {
         setResult(message, location, MutabilityReason.NON_FINAL_FIELD);
     }
 
+    final void setFormattedNonFinalFieldResult(final String messageTemplate, final String variableName,
+            final Object... messageArguments) {
+        final FieldLocation location = fieldLocation(variableName, ClassLocation.fromInternalName(ownerClass));
+        setFormattedResult(messageTemplate, location, MutabilityReason.NON_FINAL_FIELD, messageArguments);
+    }
+
     final void setFieldCanBeReassignedResult(final String variableName, final String methodName) {
         final String msgTemplate = "Field [%s] can be reassigned within method [%s]";
-        final String msg = format(msgTemplate, variableName, methodName);
-        setFieldCanBeReassignedResult(msg);
+        setFormattedResultForClass(msgTemplate, MutabilityReason.FIELD_CAN_BE_REASSIGNED, variableName, methodName);
     }
 
     final void setFieldCanBeReassignedResult(final String message) {
@@ -23,7 +23,6 @@ package org.mutabilitydetector.checkers.settermethod;
 
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static java.lang.String.format;
 import static org.objectweb.asm.Opcodes.*;
 
 import java.util.Collection;
@@ -66,11 +65,12 @@ final class AssignmentGuardVerifier {
             final AbstractInsnNode predecessor = controlFlowBlock.getBlockInstructionForIndex(indexOfPredecessor);
             if (isGetInstructionForVariable(predecessor, candidate)) {
                 final String msgTemplate = "The assignment guard for lazy field [%s] is not correct.";
-                final String msg = format(msgTemplate, candidateName);
                 if (isZeroOnlyPossibleInitialValueForVariable() && assignmentGuard.getOpcode() == Opcode.IFEQ) {
-                    setterMethodChecker.setFieldCanBeReassignedResult(msg);
+                    setterMethodChecker.setFormattedResultForClass(msgTemplate, MutabilityReason.FIELD_CAN_BE_REASSIGNED,
+                            candidateName);
                 } else if (!isZeroOnlyPossibleInitialValueForVariable() && assignmentGuard.getOpcode() == Opcode.IFNE) {
-                    setterMethodChecker.setFieldCanBeReassignedResult(msg);
+                    setterMethodChecker.setFormattedResultForClass(msgTemplate, MutabilityReason.FIELD_CAN_BE_REASSIGNED,
+                            candidateName);
                 }
             } else if (isComparisonInsn(predecessor)) {
                 verifyPredecessorOfComparisonInstruction(indexOfPredecessor - 1);
@@ -78,8 +78,8 @@ final class AssignmentGuardVerifier {
                 if (isOtherObjectNotAnInitialValue(assignmentGuard, controlFlowBlock)) {
                     final String msgTemplate = "The compared object is not a possible initial value of lazy field "
                             + "[%s].";
-                    final String msg = format(msgTemplate, candidateName);
-                    setterMethodChecker.setFieldCanBeReassignedResult(msg);
+                    setterMethodChecker.setFormattedResultForClass(msgTemplate, MutabilityReason.FIELD_CAN_BE_REASSIGNED,
+                            candidateName);
                 }
             }
         }
@@ -126,7 +126,7 @@ final class AssignmentGuardVerifier {
             if (isNotPossibleInitialValueOfCandidate(DefaultUnknownTypeValue.getInstanceForNull(), candidate)) {
                 final String msgTemplate = "The assignment guard for lazy field [%s] should check against null. "
                         + "Otherwise the field gets never initialised.";
-                setterMethodChecker.setNonFinalFieldResult(format(msgTemplate, candidateName), candidateName);
+                setterMethodChecker.setFormattedNonFinalFieldResult(msgTemplate, candidateName, candidateName);
             }
         }
     
@@ -221,8 +221,8 @@ final class AssignmentGuardVerifier {
     
     private void setFieldCanBeReassignedResultBecauseOfMissingAssignmentGuards(final FieldNode candidate) {
         final String msgTemplate = "Lazy initialisation requires at least one assignment guard for field [%s]";
-        final String msg = format(msgTemplate, candidate.name);
-        setterMethodChecker.setResultForClass(msg, MutabilityReason.FIELD_CAN_BE_REASSIGNED);
+        setterMethodChecker.setFormattedResultForClass(msgTemplate, MutabilityReason.FIELD_CAN_BE_REASSIGNED,
+                candidate.name);
     }
 
     private void verifyOneValueAssignmentGuard(final FieldNode candidate, final JumpInsn assignmentGuard,
@@ -316,8 +316,8 @@ final class AssignmentGuardVerifier {
         if (isNotPossibleInitialValueOfCandidate(comparativeValue, candidate)) {
             final String msgTemplate = "Assignment for field [%s] guard does not check against a possible "
                     + "initial value";
-            final String msg = String.format(msgTemplate, candidate.name);
-            setterMethodChecker.setResultForClass(msg, MutabilityReason.FIELD_CAN_BE_REASSIGNED);
+            setterMethodChecker.setFormattedResultForClass(msgTemplate, MutabilityReason.FIELD_CAN_BE_REASSIGNED,
+                    candidate.name);
         }
     }
 
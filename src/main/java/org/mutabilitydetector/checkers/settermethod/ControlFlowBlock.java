@@ -27,8 +27,10 @@
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -41,10 +43,15 @@ import javax.annotation.concurrent.NotThreadSafe;
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.JumpInsnNode;
 import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
 import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
 import org.objectweb.asm.tree.analysis.Analyzer;
 import org.objectweb.asm.tree.analysis.AnalyzerException;
 import org.objectweb.asm.tree.analysis.BasicInterpreter;
@@ -88,7 +95,7 @@ final class ControlFlowBlock implements Comparable<ControlFlowBlock> {
         }
 
         public boolean covers(final int index) {
-            return allItems.contains(Integer.valueOf(index));
+            return 0 <= Collections.binarySearch(allItems, Integer.valueOf(index));
         }
 
         @Override
@@ -163,6 +170,15 @@ final class ControlFlowBlock implements Comparable<ControlFlowBlock> {
     } // class Builder
 
 
+    /**
+     * Splits a method into blocks and links each block to the blocks control can flow to from it.
+     * <p>
+     * Each instruction's block is looked up by its index, so linking is linear in the number of control flow edges.
+     * Edges are found by following jumps, switches and exception handlers from the first instruction, as
+     * {@link Analyzer} would, but without its data flow analysis. Only methods using the subroutine instructions
+     * {@code JSR} and {@code RET}, which cannot appear in class files since Java 6, are still given to an
+     * {@link Analyzer} for their edges.
+     */
     @ThreadSafe
     public static final class ControlFlowBlockFactory {
         private final String owner;
@@ -170,28 +186,13 @@ final class ControlFlowBlock implements Comparable<ControlFlowBlock> {
         private final InsnList allInstructions;
         private final List<ControlFlowBlock> controlFlowBlocks;
         private final AtomicInteger currentBlockNumber;
+        private final int[] blockIndexOfInstruction;
 
         private final Analyzer<BasicValue> analyser = new Analyzer<BasicValue>(new BasicInterpreter()) {
             @Override
             protected void newControlFlowEdge(final int src, final int dest) {
                 interlinkControlFlowBlocks(src, dest);
             }
-
-            private void interlinkControlFlowBlocks(final int src, final int dest) {
-                ControlFlowBlock srcBlock = null;
-                ControlFlowBlock destBlock = null;
-                for (final ControlFlowBlock b : controlFlowBlocks) {
-                    if (b.covers(src)) {
-                        srcBlock = b;
-                    } else if (b.covers(dest)) {
-                        destBlock = b;
-                    }
-                }
-                if (null != srcBlock && null != destBlock) {
-                    srcBlock.successors.add(destBlock);
-                    destBlock.predecessors.add(srcBlock);
-                }
-            }
         };
 
         private ControlFlowBlockFactory(final String theOwner, final MethodNode theMethod) {
@@ -200,6 +201,7 @@ final class ControlFlowBlock implements Comparable<ControlFlowBlock> {
             allInstructions = theMethod.instructions;
             controlFlowBlocks = new ArrayList<ControlFlowBlock>();
             currentBlockNumber = new AtomicInteger(0);
+            blockIndexOfInstruction = new int[allInstructions.size()];
         }
 
         public static ControlFlowBlockFactory newInstance(final String owner, final MethodNode method) {
@@ -246,12 +248,115 @@ final class ControlFlowBlock implements Comparable<ControlFlowBlock> {
                     builder = createNewControlFlowBlockBuilderForLabel(insn);
                 }
                 builder.addInstruction(i);
+                blockIndexOfInstruction[i] = controlFlowBlocks.size();
             }
             controlFlowBlocks.add(builder.build());
         }
 
+        private void interlinkControlFlowBlocks(final int src, final int dest) {
+            final int srcBlockIndex = blockIndexOfInstruction[src];
+            final int destBlockIndex = blockIndexOfInstruction[dest];
+            if (srcBlockIndex != destBlockIndex) {
+                final ControlFlowBlock srcBlock = controlFlowBlocks.get(srcBlockIndex);
+                final ControlFlowBlock destBlock = controlFlowBlocks.get(destBlockIndex);
+                srcBlock.successors.add(destBlock);
+                destBlock.predecessors.add(srcBlock);
+            }
+        }
+
         private void analyseMethod() {
-            tryToAnalyseMethod();
+            if (containsSubroutines()) {
+                tryToAnalyseMethod();
+            } else {
+                followControlFlowEdges();
+            }
+        }
+
+        private boolean containsSubroutines() {
+            for (int i = 0; i < allInstructions.size(); i++) {
+                final int opcode = allInstructions.get(i).getOpcode();
+                if (Opcodes.JSR == opcode || Opcodes.RET == opcode) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void followControlFlowEdges() {
+            final int instructionCount = allInstructions.size();
+            final List<List<TryCatchBlockNode>> handlers = handlersOfEachInstruction();
+            final boolean[] reached = new boolean[instructionCount];
+            final Deque<Integer> toVisit = new ArrayDeque<Integer>();
+            reached[0] = true;
+            toVisit.push(Integer.valueOf(0));
+
+            while (!toVisit.isEmpty()) {
+                final int insnIndex = toVisit.pop().intValue();
+                final AbstractInsnNode insn = allInstructions.get(insnIndex);
+                final int opcode = insn.getOpcode();
+                if (insn instanceof JumpInsnNode) {
+                    if (Opcodes.GOTO != opcode) {
+                        followEdge(insnIndex, insnIndex + 1, reached, toVisit);
+                    }
+                    followEdge(insnIndex, indexOf(((JumpInsnNode) insn).label), reached, toVisit);
+                } else if (insn instanceof LookupSwitchInsnNode) {
+                    final LookupSwitchInsnNode lookupSwitch = (LookupSwitchInsnNode) insn;
+                    followEdge(insnIndex, indexOf(lookupSwitch.dflt), reached, toVisit);
+                    for (final LabelNode label : lookupSwitch.labels) {
+                        followEdge(insnIndex, indexOf(label), reached, toVisit);
+                    }
+                } else if (insn instanceof TableSwitchInsnNode) {
+                    final TableSwitchInsnNode tableSwitch = (TableSwitchInsnNode) insn;
+                    followEdge(insnIndex, indexOf(tableSwitch.dflt), reached, toVisit);
+                    for (final LabelNode label : tableSwitch.labels) {
+                        followEdge(insnIndex, indexOf(label), reached, toVisit);
+                    }
+                } else if (Opcodes.ATHROW != opcode && (opcode < Opcodes.IRETURN || opcode > Opcodes.RETURN)) {
+                    followEdge(insnIndex, insnIndex + 1, reached, toVisit);
+                }
+
+                final List<TryCatchBlockNode> insnHandlers = handlers.get(insnIndex);
+                if (null != insnHandlers) {
+                    for (final TryCatchBlockNode handler : insnHandlers) {
+                        reach(indexOf(handler.handler), reached, toVisit);
+                    }
+                }
+            }
+        }
+
+        private void followEdge(final int src, final int dest, final boolean[] reached, final Deque<Integer> toVisit) {
+            if (dest < allInstructions.size()) {
+                interlinkControlFlowBlocks(src, dest);
+                reach(dest, reached, toVisit);
+            }
+        }
+
+        private static void reach(final int insnIndex, final boolean[] reached, final Deque<Integer> toVisit) {
+            if (!reached[insnIndex]) {
+                reached[insnIndex] = true;
+                toVisit.push(Integer.valueOf(insnIndex));
+            }
+        }
+
+        private int indexOf(final LabelNode label) {
+            return allInstructions.indexOf(label);
+        }
+
+        private List<List<TryCatchBlockNode>> handlersOfEachInstruction() {
+            final List<List<TryCatchBlockNode>> result =
+                    new ArrayList<List<TryCatchBlockNode>>(Collections.<List<TryCatchBlockNode>>nCopies(allInstructions.size(), null));
+            for (final TryCatchBlockNode tryCatchBlock : method.tryCatchBlocks) {
+                final int end = indexOf(tryCatchBlock.end);
+                for (int i = indexOf(tryCatchBlock.start); i < end; i++) {
+                    List<TryCatchBlockNode> insnHandlers = result.get(i);
+                    if (null == insnHandlers) {
+                        insnHandlers = new ArrayList<TryCatchBlockNode>(1);
+                        result.set(i, insnHandlers);
+                    }
+                    insnHandlers.add(tryCatchBlock);
+                }
+            }
+            return result;
         }
 
         private void tryToAnalyseMethod() {
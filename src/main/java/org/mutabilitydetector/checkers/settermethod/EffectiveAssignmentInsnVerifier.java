@@ -29,6 +29,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.util.Collection;
 import java.util.List;
 
+import org.mutabilitydetector.MutabilityReason;
+
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
@@ -144,7 +146,8 @@ final class EffectiveAssignmentInsnVerifier {
             if (isCandidateOfPrimitiveType()) {
                 final String msgTemplate = "Value for lazy field [%s] is not a constant but stems from a method which "
                         + "is neither parameterless nor an instance or class method.";
-                setterMethodChecker.setFieldCanBeReassignedResult(String.format(msgTemplate, candidateName));
+                setterMethodChecker.setFormattedResultForClass(msgTemplate, MutabilityReason.FIELD_CAN_BE_REASSIGNED,
+                        candidateName);
             } else {
                 final String message = "Value for lazy field is not a constant but stems from a method which is "
                         + "neither parameterless nor an instance or class method.";
@@ -55,7 +55,6 @@ import java.util.Map;
 import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static java.lang.String.format;
 import static org.mutabilitydetector.checkers.info.MethodIdentifier.forMethod;
 import static org.mutabilitydetector.locations.Slashed.slashed;
 
@@ -227,8 +226,7 @@ public final class SetterMethodChecker extends AbstractSetterMethodChecker {
             final String msgTmpl = "Field [%s] has too many possible initial values for lazy initialisation: [%s]";
             final String candidateName = e.getKey().name;
             final String initialValues = initialValuesToString(initialValuesForCandidate);
-            final String msg = format(msgTmpl, candidateName, initialValues);
-            setResultForClass(msg, MutabilityReason.FIELD_CAN_BE_REASSIGNED);
+            setFormattedResultForClass(msgTmpl, MutabilityReason.FIELD_CAN_BE_REASSIGNED, candidateName, initialValues);
         }
     }
 
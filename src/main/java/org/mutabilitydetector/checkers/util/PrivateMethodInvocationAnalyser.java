@@ -20,6 +20,7 @@ package org.mutabilitydetector.checkers.util;
  * #L%
  */
 
+import org.mutabilitydetector.asmoverride.ParseDepth;
 import org.mutabilitydetector.checkers.MethodIs;
 import org.mutabilitydetector.checkers.MutabilityAnalysisException;
 import org.mutabilitydetector.asmoverride.AsmClassVisitor;
@@ -87,4 +88,9 @@ public final class PrivateMethodInvocationAnalyser extends TypeInformationRetrie
         }
     }
 
+    @Override
+    public ParseDepth parseDepth() {
+        return ParseDepth.CODE;
+    }
+
 }
@@ -21,6 +21,7 @@ package org.mutabilitydetector.checkers.util;
  */
 
 
+import org.mutabilitydetector.asmoverride.ParseDepth;
 import org.mutabilitydetector.checkers.MutabilityAnalysisException;
 import org.mutabilitydetector.checkers.info.TypeInformationRetriever;
 import org.mutabilitydetector.locations.Dotted;
@@ -79,4 +80,9 @@ public class TypeStructureInformationAnalyser extends TypeInformationRetriever {
         isInterface = type(access).isInterface();
     }
 
+    @Override
+    public ParseDepth parseDepth() {
+        return ParseDepth.HEADER;
+    }
+
 }
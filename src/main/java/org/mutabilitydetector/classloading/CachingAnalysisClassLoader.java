@@ -23,16 +23,30 @@ package org.mutabilitydetector.classloading;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
 import java.util.concurrent.ExecutionException;
 
 public final class CachingAnalysisClassLoader implements AnalysisClassLoader {
     
-    private final Cache<String, Class<?>> cache = CacheBuilder.newBuilder().recordStats().build();
+    private final Cache<String, Class<?>> cache;
     private final AnalysisClassLoader classLoader;
     
     public CachingAnalysisClassLoader(AnalysisClassLoader classLoader) {
+        this(classLoader, false);
+    }
+
+    /**
+     * @param recordsStatistics
+     *            - whether loads are counted for {@link #stats()}.
+     */
+    public CachingAnalysisClassLoader(AnalysisClassLoader classLoader, boolean recordsStatistics) {
         this.classLoader = classLoader;
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+        if (recordsStatistics) {
+            builder.recordStats();
+        }
+        this.cache = builder.build();
     }
 
     @Override
@@ -44,4 +58,8 @@ public final class CachingAnalysisClassLoader implements AnalysisClassLoader {
         }
     }
 
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
 }
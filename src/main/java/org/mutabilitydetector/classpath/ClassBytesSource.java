@@ -0,0 +1,151 @@
+package org.mutabilitydetector.classpath;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ResourceFilter;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A {@link ClassPath} which keeps the contents of recently read resources in memory.
+ * <p>
+ * During a session the same class file is read by the checkers, by type hierarchy lookups in the verifier and when
+ * computing content hashes for the result cache. Wrapping the classpath in a {@code ClassBytesSource} means each
+ * resource is read from disk and copied out of its stream once, while it remains in the cache. The cache is bounded
+ * by the total size of the resources it holds.
+ * <p>
+ * Listing and lookup of resources is delegated to the wrapped classpath.
+ *
+ * @see ClassFiles#read(ClassPath, org.mutabilitydetector.locations.Dotted)
+ */
+@ThreadSafe
+public final class ClassBytesSource implements ClassPath {
+
+    public static final long DEFAULT_MAXIMUM_CACHED_BYTES = 64L * 1024 * 1024;
+
+    private final ClassPath delegate;
+    private final Cache<String, Optional<byte[]>> contents;
+    private final ClassHeaderIndex headers;
+
+    private ClassBytesSource(ClassPath delegate, long maximumCachedBytes) {
+        this.delegate = delegate;
+        this.contents = CacheBuilder.newBuilder()
+                .maximumWeight(maximumCachedBytes)
+                .weigher(new ResourceSizeWeigher())
+                .build();
+        this.headers = new ClassHeaderIndex(this);
+    }
+
+    public static ClassBytesSource cached(ClassPath classpath) {
+        return cached(classpath, DEFAULT_MAXIMUM_CACHED_BYTES);
+    }
+
+    /**
+     * @return a source which caches up to the given number of bytes of resource contents read from the classpath.
+     *         If the classpath is already a {@code ClassBytesSource} it is returned unchanged.
+     */
+    public static ClassBytesSource cached(ClassPath classpath, long maximumCachedBytes) {
+        return classpath instanceof ClassBytesSource
+                ? (ClassBytesSource) classpath
+                : new ClassBytesSource(classpath, maximumCachedBytes);
+    }
+
+    /**
+     * @return the contents of the given resource, or absent if it is not on the classpath or cannot be read.
+     */
+    public Optional<byte[]> bytesOf(final String resourceName) {
+        try {
+            return contents.get(resourceName, () -> readFromDelegate(resourceName));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            return Optional.absent();
+        }
+    }
+
+    private Optional<byte[]> readFromDelegate(String resourceName) {
+        try (InputStream resource = delegate.getResourceAsStream(resourceName)) {
+            return resource == null
+                    ? Optional.<byte[]>absent()
+                    : Optional.of(ByteStreams.toByteArray(resource));
+        } catch (IOException e) {
+            return Optional.absent();
+        }
+    }
+
+    /**
+     * @return the index of class headers read from this source, shared by everything which reads from it.
+     */
+    public ClassHeaderIndex headers() {
+        return headers;
+    }
+
+    /**
+     * @return a stream over the cached contents of the resource, or null if it is not on the classpath.
+     */
+    @Override
+    public InputStream getResourceAsStream(String resourceName) {
+        Optional<byte[]> resource = bytesOf(resourceName);
+        return resource.isPresent() ? new ByteArrayInputStream(resource.get()) : null;
+    }
+
+    @Override
+    public boolean isResource(String resourceName) {
+        return delegate.isResource(resourceName);
+    }
+
+    @Override
+    public boolean isPackage(String packageName) {
+        return delegate.isPackage(packageName);
+    }
+
+    @Override
+    public String[] listPackages(String packageName) {
+        return delegate.listPackages(packageName);
+    }
+
+    @Override
+    public String[] listResources(String packageName) {
+        return delegate.listResources(packageName);
+    }
+
+    @Override
+    public String[] findResources(String rootPackageName, ResourceFilter resourceFilter) {
+        return delegate.findResources(rootPackageName, resourceFilter);
+    }
+
+    private static final class ResourceSizeWeigher implements Weigher<String, Optional<byte[]>> {
+        @Override
+        public int weigh(String resourceName, Optional<byte[]> contents) {
+            return resourceName.length() + (contents.isPresent() ? contents.get().length : 0);
+        }
+    }
+}
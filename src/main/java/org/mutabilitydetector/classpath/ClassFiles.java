@@ -0,0 +1,56 @@
+package org.mutabilitydetector.classpath;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.mutabilitydetector.locations.Dotted;
+
+import com.google.classpath.ClassPath;
+import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
+
+public final class ClassFiles {
+
+    private ClassFiles() throws InstantiationException {
+        throw new InstantiationException("This class is not created for instantiation");
+    }
+
+    /**
+     * @return the contents of the class file for the given class, or absent if it is not on the classpath or
+     *         cannot be read.
+     * @see ClassBytesSource
+     */
+    public static Optional<byte[]> read(ClassPath classpath, Dotted className) {
+        if (classpath instanceof ClassBytesSource) {
+            return ((ClassBytesSource) classpath).bytesOf(className.asResource());
+        }
+        try (InputStream classStream = classpath.getResourceAsStream(className.asResource())) {
+            return classStream == null
+                    ? Optional.<byte[]>absent()
+                    : Optional.of(ByteStreams.toByteArray(classStream));
+        } catch (IOException e) {
+            return Optional.absent();
+        }
+    }
+}
@@ -0,0 +1,445 @@
+package org.mutabilitydetector.classpath;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.objectweb.asm.Opcodes.ACC_ABSTRACT;
+import static org.objectweb.asm.Opcodes.ACC_INTERFACE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.mutabilitydetector.locations.ClassIds;
+import org.mutabilitydetector.locations.Dotted;
+import org.objectweb.asm.ClassReader;
+
+import com.google.classpath.ClassPath;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+
+/**
+ * An index of the headers of class files: access flags, superclass, interfaces and number of declared fields.
+ * <p>
+ * Headers are read with {@link ClassReader}, which only scans the constant pool, rather than by visiting the whole
+ * class. A class is read the first time its header is requested, or ahead of time for a batch of classes with
+ * {@link #index(Collection, int)}. Classes which are not on the classpath are looked for through the class loader
+ * of Mutability Detector, in the same way as the checker runner.
+ * <p>
+ * Each class named by the index, whether read or only referred to as a superclass or interface, has an id from the
+ * index's own {@link ClassIds}. Headers are held in primitive arrays indexed by that id: the access flags together
+ * with whether the class has been read, the id of the superclass, the field count, and a range of a shared array of
+ * interface ids. Looking up a header takes no lock. Adding one takes a lock only for the few array writes, after its
+ * class file has been read; once written, a header is never changed.
+ * <p>
+ * The index can be saved to, and restored from, a file.
+ *
+ * @see ClassBytesSource#headers()
+ */
+@ThreadSafe
+public final class ClassHeaderIndex {
+
+    private static final int MAGIC = 0x4D444849;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int NOT_READ = 0;
+    private static final int FOUND = 1 << 16;
+    private static final int NOT_FOUND = 1 << 17;
+    private static final int ACCESS_MASK = 0xFFFF;
+    private static final int NO_SUPERCLASS = ClassIds.UNKNOWN_CLASS;
+
+    private final ClassPath classpath;
+    private final ClassIds ids = new ClassIds();
+    /** Replaced, while holding this object's lock, whenever it needs more room. */
+    private volatile Headers headers = new Headers(64, 64);
+    @GuardedBy("this") private int interfacesUsed;
+    @GuardedBy("this") private int classesRead;
+
+    public ClassHeaderIndex(ClassPath classpath) {
+        this.classpath = classpath;
+    }
+
+    /**
+     * @return the index shared by everything reading from the given classpath, if it is a {@link ClassBytesSource},
+     *         otherwise a new index.
+     */
+    public static ClassHeaderIndex of(ClassPath classpath) {
+        return classpath instanceof ClassBytesSource
+                ? ((ClassBytesSource) classpath).headers()
+                : new ClassHeaderIndex(classpath);
+    }
+
+    /**
+     * @return the header of the given class, or absent if its class file cannot be found or read.
+     */
+    public Optional<ClassHeader> headerOf(Dotted className) {
+        int id = ids.idOf(className);
+        Optional<ClassHeader> indexed = indexedHeaderOf(id);
+        if (indexed != null) {
+            return indexed;
+        }
+        readHeader(id, className);
+        return indexedHeaderOf(id);
+    }
+
+    /**
+     * @return the header of the class with the given id, absent if it was not found, or null if it has not been read.
+     */
+    private Optional<ClassHeader> indexedHeaderOf(int id) {
+        Headers current = headers;
+        int state = current.stateOf(id);
+        if (state == NOT_READ) {
+            return null;
+        }
+        return state == NOT_FOUND ? Optional.<ClassHeader>absent() : Optional.of(new ClassHeader(ids, current, id));
+    }
+
+    /**
+     * Reads the headers of all the given classes which are not yet indexed, on a pool of the given number of threads.
+     *
+     * @throws IllegalStateException if interrupted before every header has been read.
+     */
+    public void index(Collection<Dotted> classNames, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> classNames.parallelStream().forEach(this::headerOf)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while indexing class headers", e);
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the number of classes whose headers have been read, including those found not to exist.
+     */
+    public synchronized int size() {
+        return classesRead;
+    }
+
+    private void readHeader(int id, Dotted className) {
+        Optional<byte[]> classFile = ClassFiles.read(classpath, className);
+        if (!classFile.isPresent()) {
+            classFile = readFromClassLoader(className);
+        }
+        if (!classFile.isPresent()) {
+            addMissing(id);
+            return;
+        }
+        ClassReader reader;
+        try {
+            reader = new ClassReader(classFile.get());
+        } catch (RuntimeException malformedClassFile) {
+            addMissing(id);
+            return;
+        }
+        String[] interfaceNames = reader.getInterfaces();
+        int[] interfaceIds = new int[interfaceNames.length];
+        for (int i = 0; i < interfaceNames.length; i++) {
+            interfaceIds[i] = ids.idOf(Dotted.fromSlashedString(interfaceNames[i]));
+        }
+        String superName = reader.getSuperName();
+        int fieldCount = reader.readUnsignedShort(reader.header + 8 + 2 * interfaceNames.length);
+        add(id,
+            reader.getAccess(),
+            superName == null ? NO_SUPERCLASS : ids.idOf(Dotted.fromSlashedString(superName)),
+            interfaceIds,
+            fieldCount);
+    }
+
+    private Optional<byte[]> readFromClassLoader(Dotted className) {
+        try (InputStream classStream = getClass().getClassLoader().getResourceAsStream(className.asResource())) {
+            return classStream == null
+                    ? Optional.<byte[]>absent()
+                    : Optional.of(ByteStreams.toByteArray(classStream));
+        } catch (IOException e) {
+            return Optional.absent();
+        }
+    }
+
+    private synchronized void addMissing(int id) {
+        Headers target = withRoomFor(0);
+        if (target.stateOf(id) == NOT_READ) {
+            target.states.set(id, NOT_FOUND);
+            classesRead++;
+        }
+        headers = target;
+    }
+
+    /**
+     * Does nothing if the class has already been added by another thread. Every array is written before the state,
+     * so a reader which sees the state also sees the rest of the header.
+     */
+    private synchronized void add(int id, int access, int superClassId, int[] interfaceIds, int fieldCount) {
+        Headers target = withRoomFor(interfaceIds.length);
+        if (target.stateOf(id) == NOT_READ) {
+            target.superClassIds[id] = superClassId;
+            target.fieldCounts[id] = fieldCount;
+            target.firstInterfaces[id] = interfacesUsed;
+            target.interfaceCounts[id] = interfaceIds.length;
+            System.arraycopy(interfaceIds, 0, target.interfaceIds, interfacesUsed, interfaceIds.length);
+            interfacesUsed += interfaceIds.length;
+            target.states.set(id, FOUND | (access & ACCESS_MASK));
+            classesRead++;
+        }
+        headers = target;
+    }
+
+    /**
+     * @return the current headers if they have room for every class given an id so far and the given number of
+     *         further interfaces, otherwise a larger copy of them.
+     */
+    @GuardedBy("this")
+    private Headers withRoomFor(int moreInterfaces) {
+        Headers current = headers;
+        int classesNeeded = ids.size();
+        int interfacesNeeded = interfacesUsed + moreInterfaces;
+        if (classesNeeded <= current.capacity() && interfacesNeeded <= current.interfaceIds.length) {
+            return current;
+        }
+        return current.copyWithCapacity(Math.max(classesNeeded, current.capacity() * 2),
+                                         Math.max(interfacesNeeded, current.interfaceIds.length * 2));
+    }
+
+    /**
+     * Writes the headers read so far to the given file, replacing it atomically.
+     *
+     * @param classpathFingerprint identifies the state of the classpath the headers were read from, so that a stale
+     *        index can be ignored by {@link #restore(File, String)}.
+     */
+    public void save(File file, String classpathFingerprint) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(directory.toPath());
+        File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+                writeHeaders(out, classpathFingerprint);
+            }
+            try {
+                Files.move(temporary.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), file.toPath(), REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    private void writeHeaders(DataOutputStream out, String classpathFingerprint) throws IOException {
+        List<ClassHeader> present = presentHeaders();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(classpathFingerprint);
+        out.writeInt(present.size());
+        for (ClassHeader header : present) {
+            out.writeUTF(header.className().asString());
+            out.writeShort(header.access());
+            out.writeUTF(header.superClass().isPresent() ? header.superClass().get().asString() : "");
+            List<Dotted> interfaces = header.interfaces();
+            out.writeShort(interfaces.size());
+            for (Dotted implemented : interfaces) {
+                out.writeUTF(implemented.asString());
+            }
+            out.writeShort(header.fieldCount());
+        }
+    }
+
+    /**
+     * Adds the headers saved in the given file to this index, if it was saved with the same classpath fingerprint.
+     * Classes already read by this index keep the headers they have.
+     *
+     * @return the number of headers restored, which is zero if the file does not exist or has a different fingerprint.
+     */
+    public int restore(File file, String classpathFingerprint) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(classpathFingerprint)) {
+                return 0;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int id = ids.idOf(Dotted.dotted(in.readUTF()));
+                int access = in.readUnsignedShort();
+                String superClass = in.readUTF();
+                int[] interfaceIds = new int[in.readUnsignedShort()];
+                for (int j = 0; j < interfaceIds.length; j++) {
+                    interfaceIds[j] = ids.idOf(Dotted.dotted(in.readUTF()));
+                }
+                int fieldCount = in.readUnsignedShort();
+                add(id,
+                    access,
+                    superClass.isEmpty() ? NO_SUPERCLASS : ids.idOf(Dotted.dotted(superClass)),
+                    interfaceIds,
+                    fieldCount);
+            }
+            return count;
+        }
+    }
+
+    private List<ClassHeader> presentHeaders() {
+        Headers current = headers;
+        ImmutableList.Builder<ClassHeader> present = ImmutableList.builder();
+        for (int id = 0; id < current.capacity(); id++) {
+            int state = current.stateOf(id);
+            if (state != NOT_READ && state != NOT_FOUND) {
+                present.add(new ClassHeader(ids, current, id));
+            }
+        }
+        return present.build();
+    }
+
+    /**
+     * The arrays holding the headers, indexed by class id. A slot is only read once its state is seen to be set.
+     */
+    private static final class Headers {
+        final AtomicIntegerArray states;
+        final int[] superClassIds;
+        final int[] fieldCounts;
+        final int[] firstInterfaces;
+        final int[] interfaceCounts;
+        final int[] interfaceIds;
+
+        Headers(int classCapacity, int interfaceCapacity) {
+            this(new AtomicIntegerArray(classCapacity),
+                 new int[classCapacity],
+                 new int[classCapacity],
+                 new int[classCapacity],
+                 new int[classCapacity],
+                 new int[interfaceCapacity]);
+        }
+
+        private Headers(AtomicIntegerArray states,
+                        int[] superClassIds,
+                        int[] fieldCounts,
+                        int[] firstInterfaces,
+                        int[] interfaceCounts,
+                        int[] interfaceIds) {
+            this.states = states;
+            this.superClassIds = superClassIds;
+            this.fieldCounts = fieldCounts;
+            this.firstInterfaces = firstInterfaces;
+            this.interfaceCounts = interfaceCounts;
+            this.interfaceIds = interfaceIds;
+        }
+
+        int capacity() {
+            return states.length();
+        }
+
+        int stateOf(int id) {
+            return id < capacity() ? states.get(id) : NOT_READ;
+        }
+
+        Headers copyWithCapacity(int classCapacity, int interfaceCapacity) {
+            AtomicIntegerArray copiedStates = new AtomicIntegerArray(classCapacity);
+            for (int id = 0; id < capacity(); id++) {
+                copiedStates.set(id, states.get(id));
+            }
+            return new Headers(copiedStates,
+                               Arrays.copyOf(superClassIds, classCapacity),
+                               Arrays.copyOf(fieldCounts, classCapacity),
+                               Arrays.copyOf(firstInterfaces, classCapacity),
+                               Arrays.copyOf(interfaceCounts, classCapacity),
+                               Arrays.copyOf(interfaceIds, interfaceCapacity));
+        }
+    }
+
+    /**
+     * The header of one class, read from the arrays of the index. The slots it reads are never written again once the
+     * header has been added.
+     */
+    @Immutable
+    public static final class ClassHeader {
+        private final ClassIds ids;
+        private final Headers headers;
+        private final int id;
+
+        private ClassHeader(ClassIds ids, Headers headers, int id) {
+            this.ids = ids;
+            this.headers = headers;
+            this.id = id;
+        }
+
+        public Dotted className() {
+            return ids.classNameOf(id);
+        }
+
+        public int access() {
+            return headers.states.get(id) & ACCESS_MASK;
+        }
+
+        public boolean isInterface() {
+            return (access() & ACC_INTERFACE) != 0;
+        }
+
+        public boolean isAbstract() {
+            return (access() & ACC_ABSTRACT) != 0;
+        }
+
+        /**
+         * @return the superclass, or absent for {@code java.lang.Object}.
+         */
+        public Optional<Dotted> superClass() {
+            int superClassId = headers.superClassIds[id];
+            return superClassId == NO_SUPERCLASS ? Optional.<Dotted>absent() : Optional.of(ids.classNameOf(superClassId));
+        }
+
+        public List<Dotted> interfaces() {
+            int first = headers.firstInterfaces[id];
+            ImmutableList.Builder<Dotted> interfaces = ImmutableList.builder();
+            for (int i = first; i < first + headers.interfaceCounts[id]; i++) {
+                interfaces.add(ids.classNameOf(headers.interfaceIds[i]));
+            }
+            return interfaces.build();
+        }
+
+        public int fieldCount() {
+            return headers.fieldCounts[id];
+        }
+    }
+}
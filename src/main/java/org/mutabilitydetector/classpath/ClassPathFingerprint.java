@@ -0,0 +1,76 @@
+package org.mutabilitydetector.classpath;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Summarises the state of each entry of a classpath, so that anything derived from the classpath and kept between
+ * runs can be discarded when an entry changes.
+ * <p>
+ * A jar is summarised by its path, size and modification time. A directory is summarised by the same for each class
+ * file beneath it.
+ */
+public final class ClassPathFingerprint {
+
+    private ClassPathFingerprint() throws InstantiationException {
+        throw new InstantiationException("This class is not created for instantiation");
+    }
+
+    public static String of(String[] classpathEntries) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (String entry : classpathEntries) {
+            File file = new File(entry);
+            putFile(hasher, file);
+            if (file.isDirectory()) {
+                putClassFilesBeneath(hasher, file.toPath());
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void putClassFilesBeneath(Hasher hasher, Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            Iterator<Path> classFiles = files.filter(path -> path.toString().endsWith(".class")).sorted().iterator();
+            while (classFiles.hasNext()) {
+                putFile(hasher, classFiles.next().toFile());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            hasher.putLong(System.nanoTime());
+        }
+    }
+
+    private static void putFile(Hasher hasher, File file) {
+        String path = file.getAbsolutePath();
+        hasher.putInt(path.length()).putString(path, UTF_8).putLong(file.length()).putLong(file.lastModified());
+    }
+}
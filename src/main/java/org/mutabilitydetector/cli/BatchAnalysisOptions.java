@@ -22,9 +22,11 @@ package org.mutabilitydetector.cli;
 
 
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory.ClassloadingOption;
+import org.mutabilitydetector.cli.CommandLineOptions.ReportFormat;
 import org.mutabilitydetector.cli.CommandLineOptions.ReportMode;
 
 import java.io.File;
+import java.util.List;
 
 public interface BatchAnalysisOptions {
 
@@ -38,6 +40,8 @@ public interface BatchAnalysisOptions {
 
     ReportMode reportMode();
 
+    ReportFormat reportFormat();
+
     File classListFile();
 
     boolean isUsingClassList();
@@ -47,4 +51,32 @@ public interface BatchAnalysisOptions {
     boolean failFast();
 
     ClassloadingOption classloading();
+
+    int parallelism();
+
+    File resultCacheFile();
+
+    boolean isUsingResultCache();
+
+    boolean incremental();
+
+    File dependencyGraphFile();
+
+    boolean isWritingDependencyGraph();
+
+    File headerIndexFile();
+
+    boolean isUsingHeaderIndex();
+
+    boolean verdictOnly();
+
+    List<String> includedPackages();
+
+    List<String> excludedPackages();
+
+    long resultMemoryBudget();
+
+    boolean showStatistics();
+
+    boolean unsorted();
 }
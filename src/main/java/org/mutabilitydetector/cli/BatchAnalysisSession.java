@@ -22,20 +22,88 @@ package org.mutabilitydetector.cli;
 
 
 
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.StreamSupport;
+
+import org.mutabilitydetector.AnalysisResult;
 import org.mutabilitydetector.AnalysisSession;
 import org.mutabilitydetector.locations.Dotted;
 
+import com.google.common.base.Throwables;
+
+/**
+ * Requests analysis of each of a batch of classes from an underlying {@link AnalysisSession}.
+ * <p>
+ * With a parallelism greater than one, classes are analysed concurrently on a work-stealing pool of that many
+ * threads. The underlying session is responsible for ensuring that a class reached from several workers at once
+ * is still only analysed once. Each result can be handed on as soon as it is known, rather than waiting for the
+ * whole batch.
+ */
 public final class BatchAnalysisSession {
     private final AnalysisSession session;
+    private final int parallelism;
 
     public BatchAnalysisSession(AnalysisSession session) {
+        this(session, 1);
+    }
+
+    public BatchAnalysisSession(AnalysisSession session, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, was " + parallelism);
+        }
         this.session = session;
+        this.parallelism = parallelism;
     }
 
     public AnalysisSession runAnalysis(Iterable<Dotted> classNames) {
-        for (Dotted className : classNames) {
-            session.resultFor(className);
+        return runAnalysis(classNames, result -> { });
+    }
+
+    /**
+     * @param onResult
+     *            - given the result of each class in the batch once its analysis completes. With a parallelism
+     *            greater than one it is called from several threads at once.
+     */
+    public AnalysisSession runAnalysis(Iterable<Dotted> classNames, Consumer<AnalysisResult> onResult) {
+        if (parallelism == 1) {
+            for (Dotted className : classNames) {
+                onResult.accept(session.resultFor(className));
+            }
+        } else {
+            runInParallel(classNames, onResult);
         }
         return session;
     }
+
+    private void runInParallel(Iterable<Dotted> classNames, Consumer<AnalysisResult> onResult) {
+        List<Callable<AnalysisResult>> analyses = StreamSupport.stream(classNames.spliterator(), false)
+                .map(className -> (Callable<AnalysisResult>) () -> {
+                    AnalysisResult result = session.resultFor(className);
+                    onResult.accept(result);
+                    return result;
+                })
+                .collect(toList());
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<AnalysisResult> analysis : pool.invokeAll(analyses)) {
+                analysis.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for analysis to complete", e);
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 }
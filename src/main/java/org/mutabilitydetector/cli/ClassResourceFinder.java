@@ -0,0 +1,225 @@
+package org.mutabilitydetector.cli;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.mutabilitydetector.locations.Dotted;
+
+import com.google.classpath.ClassPath;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Lists the class files on a classpath, walking only the packages which can contain classes to analyse.
+ * <p>
+ * Packages outside the included packages, and every package beneath an excluded package, are skipped without listing
+ * their contents. When no packages are included explicitly, a package can be taken from a <code>-match</code>
+ * pattern anchored with <code>^</code>, such as <code>^com\.acme\.billing\..*</code>. Unanchored patterns may match
+ * anywhere in a class name, so they leave the whole classpath to be walked.
+ * <p>
+ * Resources are returned in the same form as {@link ClassPath#findResources(String, com.google.classpath.ResourceFilter)},
+ * for {@link NamesFromClassResources} to convert and filter.
+ */
+@Immutable
+public final class ClassResourceFinder {
+
+    private static final String ROOT_PACKAGE = "";
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    private final ImmutableList<String> rootPackages;
+    private final ImmutableList<String> excludedPackages;
+
+    /**
+     * @param includedPackages dotted names of the packages to walk, including their subpackages. When empty, the
+     *                         whole classpath is walked.
+     * @param excludedPackages dotted names of the packages to skip, including their subpackages.
+     */
+    public ClassResourceFinder(Collection<String> includedPackages, Collection<String> excludedPackages) {
+        this.rootPackages = includedPackages.isEmpty()
+                ? ImmutableList.of(ROOT_PACKAGE)
+                : includedPackages.stream().map(ClassResourceFinder::slashed).distinct().collect(toImmutableList());
+        this.excludedPackages = excludedPackages.stream().map(ClassResourceFinder::slashed).collect(toImmutableList());
+    }
+
+    public static ClassResourceFinder forMatch(String classNameRegex,
+                                               Collection<String> includedPackages,
+                                               Collection<String> excludedPackages) {
+        Collection<String> packagesToWalk = includedPackages.isEmpty()
+                ? anchoredPackageOf(classNameRegex).asSet()
+                : includedPackages;
+        return new ClassResourceFinder(packagesToWalk, excludedPackages);
+    }
+
+    /**
+     * The package every class matched by the given pattern must be in, if the pattern is anchored to the start of
+     * the class name and begins with a literal package name.
+     */
+    static Optional<String> anchoredPackageOf(String classNameRegex) {
+        if (!classNameRegex.startsWith("^") || classNameRegex.contains("|")) {
+            return Optional.absent();
+        }
+
+        StringBuilder literal = new StringBuilder();
+        int i = 1;
+        while (i < classNameRegex.length()) {
+            char c = classNameRegex.charAt(i);
+            if (c == '\\' && i + 1 < classNameRegex.length() && classNameRegex.charAt(i + 1) == '.') {
+                literal.append('.');
+                i += 2;
+            } else if (Character.isLetterOrDigit(c) || c == '_') {
+                literal.append(c);
+                i++;
+            } else {
+                break;
+            }
+        }
+        if (i < classNameRegex.length() && isOptionalQuantifier(classNameRegex.charAt(i)) && literal.length() > 0) {
+            literal.setLength(literal.length() - 1);
+        }
+
+        int endOfPackage = literal.lastIndexOf(".");
+        return endOfPackage > 0
+                ? Optional.of(literal.substring(0, endOfPackage))
+                : Optional.<String>absent();
+    }
+
+    private static boolean isOptionalQuantifier(char c) {
+        return c == '?' || c == '*' || c == '{';
+    }
+
+    /**
+     * @throws IllegalStateException if interrupted before every package has been walked.
+     */
+    public String[] findClassResources(ClassPath classpath, int parallelism) {
+        Set<String> found = new ConcurrentSkipListSet<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<PackageWalk> walks = new ArrayList<>();
+            for (String rootPackage : rootPackages) {
+                walks.add(new PackageWalk(classpath, rootPackage, found));
+            }
+            pool.submit(() -> RecursiveAction.invokeAll(walks)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while finding classes on the classpath", e);
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return found.toArray(new String[found.size()]);
+    }
+
+    /**
+     * Looks up each of the given classes on the classpath directly, rather than walking packages.
+     *
+     * @return the resources of those given classes which are on the classpath and in the packages this finder walks.
+     */
+    public String[] findClassResources(ClassPath classpath, Collection<Dotted> classNames) {
+        List<String> found = new ArrayList<>();
+        for (Dotted className : classNames) {
+            String resource = className.asResource();
+            String packageName = resource.substring(0, Math.max(resource.lastIndexOf('/'), 0));
+            if (isWalked(packageName) && classpath.isResource(resource)) {
+                found.add(resource);
+            }
+        }
+        return found.toArray(new String[found.size()]);
+    }
+
+    private boolean isWalked(String packageName) {
+        if (isExcluded(packageName)) {
+            return false;
+        }
+        for (String rootPackage : rootPackages) {
+            if (rootPackage.equals(ROOT_PACKAGE)
+                    || packageName.equals(rootPackage)
+                    || packageName.startsWith(rootPackage + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isExcluded(String packageName) {
+        for (String excluded : excludedPackages) {
+            if (packageName.equals(excluded) || packageName.startsWith(excluded + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String slashed(String dottedPackageName) {
+        return dottedPackageName.replace('.', '/');
+    }
+
+    private static String qualified(String packageName, String name) {
+        return packageName.isEmpty() ? name : packageName + "/" + name;
+    }
+
+    private final class PackageWalk extends RecursiveAction {
+
+        private static final long serialVersionUID = 8590726288645095225L;
+
+        private final ClassPath classpath;
+        private final String packageName;
+        private final Set<String> found;
+
+        PackageWalk(ClassPath classpath, String packageName, Set<String> found) {
+            this.classpath = classpath;
+            this.packageName = packageName;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            if (isExcluded(packageName)) {
+                return;
+            }
+            for (String resource : classpath.listResources(packageName)) {
+                if (resource.endsWith(CLASS_FILE_SUFFIX)) {
+                    found.add(qualified(packageName, resource));
+                }
+            }
+
+            List<PackageWalk> subpackages = new ArrayList<>();
+            for (String subpackage : classpath.listPackages(packageName)) {
+                subpackages.add(new PackageWalk(classpath, qualified(packageName, subpackage), found));
+            }
+            invokeAll(subpackages);
+        }
+    }
+}
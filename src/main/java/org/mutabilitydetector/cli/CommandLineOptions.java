@@ -26,6 +26,7 @@ import static java.lang.String.format;
 
 import java.io.File;
 import java.io.PrintStream;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
@@ -35,6 +36,8 @@ import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory.ClassloadingOption;
 
+import com.google.common.base.Splitter;
+
 public class CommandLineOptions implements BatchAnalysisOptions {
 
     private String classpath;
@@ -42,13 +45,29 @@ public class CommandLineOptions implements BatchAnalysisOptions {
     private String match;
     private boolean verbose = false;
     private ReportMode reportMode;
+    private ReportFormat reportFormat = ReportFormat.TEXT;
     private File classListFile;
     private boolean isUsingClassList;
     private boolean reportErrors;
     private boolean failFast = false;
     private boolean showSummary = false;
+    private int parallelism = 1;
+    private File resultCacheFile;
+    private boolean isUsingResultCache;
+    private boolean incremental = false;
+    private File dependencyGraphFile;
+    private boolean isWritingDependencyGraph;
+    private File headerIndexFile;
+    private boolean isUsingHeaderIndex;
+    private boolean verdictOnly = false;
+    private List<String> includedPackages = Collections.emptyList();
+    private List<String> excludedPackages = Collections.emptyList();
+    private long resultMemoryBudget = Long.MAX_VALUE;
+    private boolean showStatistics = false;
+    private boolean unsorted = false;
     
     private final PrintStream errorStream;
+    private final boolean resultsAsText;
     private ClassloadingOption classloadingOption;
 
     private final class ParsingActionImplementation implements ParsingAction {
@@ -59,11 +78,22 @@ public class CommandLineOptions implements BatchAnalysisOptions {
             extractMatch(line);
             extractVerboseOption(line);
             extractReportMode(line);
+            extractReportFormat(line);
             extractClassListFile(line);
             extractShowErrorsOption(line);
             extractFailFastOption(line);
             extractShowSummaryOption(line);
             extractUseExperimentalAsmNonClassloadingSimpleVerifier(line);
+            extractParallelism(line);
+            extractResultCacheFile(line);
+            extractIncrementalOption(line);
+            extractDependencyGraphFile(line);
+            extractHeaderIndexFile(line);
+            extractVerdictOnlyOption(line);
+            extractPackageOptions(line);
+            extractResultMemoryBudget(line);
+            extractShowStatisticsOption(line);
+            extractUnsortedOption(line);
             printHelpIfNoOptionsGiven(line);
         }
     }
@@ -84,14 +114,36 @@ public class CommandLineOptions implements BatchAnalysisOptions {
         }
     }
 
+    public enum ReportFormat {
+        /** Human readable text, sorted by class name. */
+        TEXT,
+        /** One JSON object per class, written as soon as its result is known. */
+        JSONL,
+        /** A header, then each result as a length prefixed record, written as soon as it is known. */
+        BINARY
+    }
+
     public CommandLineOptions(PrintStream errorStream, String... args) {
+        this(errorStream, false, args);
+    }
+
+    public CommandLineOptions(PrintStream errorStream, List<String> args) {
+        this(errorStream, args.toArray(new String[args.size()]));
+    }
+
+    private CommandLineOptions(PrintStream errorStream, boolean resultsAsText, String... args) {
         this.errorStream = errorStream;
+        this.resultsAsText = resultsAsText;
         this.options = createOptions();
         parseOptions(args);
     }
 
-    public CommandLineOptions(PrintStream errorStream, List<String> args) {
-        this(errorStream, args.toArray(new String[args.size()]));
+    /**
+     * Parses options for an analysis whose results are returned as text, as by {@link RunMutabilityDetector#call()},
+     * rejecting the {@link ReportFormat#BINARY} format.
+     */
+    public static CommandLineOptions forResultsAsText(PrintStream errorStream, String... args) {
+        return new CommandLineOptions(errorStream, true, args);
     }
 
     private Options createOptions() {
@@ -120,6 +172,13 @@ public class CommandLineOptions implements BatchAnalysisOptions {
                 true,
                 "Choose what is reported from the analysis. Valid options are " + ReportMode.validModes()
                         + ". If not specified, or doesn't match an available mode, defaults to 'ALL'");
+        createAndAddOption(opts,
+                "format",
+                "Choose how results are written. Valid formats are [TEXT|JSONL|BINARY]. TEXT is sorted by class name, " +
+                "and is written once analysis is complete, unless -unsorted is given. JSONL and BINARY write each result as soon as it is known, " +
+                "in no particular order, and include reason codes, locations and errors. Defaults to TEXT.",
+                "format",
+                "of");
         opts.addOption("h", "help", false, "print this message");
         opts.addOption("e", "reportErrors", false, "Reports on errors in the analysis. Defaults to false.");
         opts.addOption("f", "failFast", false, "When true, encountering an unhandled exception will cause analysis to abort immediately. " +
@@ -128,6 +187,60 @@ public class CommandLineOptions implements BatchAnalysisOptions {
         opts.addOption("n", "nonClassloading", false, "When supplied, use an implementation of ASM's " +
             "SimpleVerifier that does not load classes. This can help avoid issues encountered with class loading. " +
             "Warning: this is experimental, and has not been tested as thoroughly as the classloading version.");
+        createAndAddOption(opts,
+                "threads",
+                "The number of threads used to analyse classes concurrently. Defaults to 1, meaning classes are " +
+                "analysed one after another.",
+                "parallelism",
+                "p");
+        createAndAddOption(opts,
+                "filename",
+                "Store analysis results in <filename>, and reuse them in later runs for classes whose class file and " +
+                "configuration have not changed. If any classpath entry has changed since the last run, results for " +
+                "classes whose class file has changed, and for every class which depended on them, are discarded " +
+                "first. The file is created if it does not exist.",
+                "resultCache",
+                "rc");
+        opts.addOption("i", "incremental", false, "Requires -resultCache. Check every cached class file for changes " +
+                "before analysis, even when no classpath entry appears to have changed.");
+        createAndAddOption(opts,
+                "filename",
+                "After analysis, write the dependencies discovered between classes to <filename>, in Graphviz DOT format. " +
+                "An edge from A to B means that analysing A needed the result for B.",
+                "dependencyGraph",
+                "dg");
+        createAndAddOption(opts,
+                "filename",
+                "Index the headers of every class on the classpath before analysis, and keep the index in <filename> " +
+                "for later runs. The index is rebuilt if any classpath entry has changed.",
+                "headerIndex",
+                "hi");
+        createAndAddOption(opts,
+                "packages",
+                "Comma separated list of packages to look for classes in, including their subpackages. Other packages " +
+                "are not searched, which saves time on large classpaths. If not given, and -match starts with ^ and a " +
+                "package name, such as ^com\\.acme\\..*, only that package is searched.",
+                "includePackages",
+                "ip");
+        createAndAddOption(opts,
+                "packages",
+                "Comma separated list of packages not to look for classes in, including their subpackages.",
+                "excludePackages",
+                "xp");
+        opts.addOption("vo", "verdictOnly", false, "Stop analysing each class as soon as it is found to be mutable. " +
+                "Results are unchanged, but the reasons reported for mutable classes may be incomplete.");
+        createAndAddOption(opts,
+                "megabytes",
+                "Hold at most about <megabytes> of analysis results in full. Beyond that, the least recently used " +
+                "results keep only their first reason, so reasons reported for some mutable classes may be " +
+                "incomplete. Defaults to no limit.",
+                "resultMemory",
+                "rm");
+        opts.addOption("st", "stats", false, "Record how long each checker and the parsing of class files take, and " +
+                "how often caches are hit, and print them to standard error after the results. While analysis runs, " +
+                "they can also be read over JMX as org.mutabilitydetector:type=SessionStatistics.");
+        opts.addOption("us", "unsorted", false, "Write TEXT results as soon as each class is analysed, rather than " +
+                "sorted by class name once analysis is complete. Errors and the summary follow the results.");
 
         return opts;
     }
@@ -168,6 +281,20 @@ public class CommandLineOptions implements BatchAnalysisOptions {
         }
     }
 
+    private void extractReportFormat(CommandLine line) {
+        if (line.hasOption("format")) {
+            String value = line.getOptionValue("format");
+            try {
+                this.reportFormat = ReportFormat.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new CommandLineOptionsException(format("Invalid format [%s]: must be one of TEXT, JSONL or BINARY.", value));
+            }
+            if (resultsAsText && reportFormat == ReportFormat.BINARY) {
+                throw new CommandLineOptionsException("Invalid format [BINARY]: results returned as text must be TEXT or JSONL.");
+            }
+        }
+    }
+
     private void extractShowSummaryOption(CommandLine line) {
         this.showSummary = (line.hasOption("s") || line.hasOption("summary"));
     }
@@ -178,6 +305,94 @@ public class CommandLineOptions implements BatchAnalysisOptions {
             : ClassloadingOption.ENABLED;
     }
 
+    private void extractParallelism(CommandLine line) {
+        if (line.hasOption("parallelism")) {
+            String value = line.getOptionValue("parallelism");
+            try {
+                this.parallelism = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                this.parallelism = 0;
+            }
+            if (this.parallelism < 1) {
+                throw new CommandLineOptionsException(format("Invalid parallelism [%s]: must be a positive whole number.", value));
+            }
+        }
+    }
+
+    private void extractResultCacheFile(CommandLine line) {
+        if (line.hasOption("resultCache")) {
+            this.resultCacheFile = new File(line.getOptionValue("resultCache"));
+            this.isUsingResultCache = true;
+
+            if (resultCacheFile.isDirectory()) {
+                throw new CommandLineOptionsException(
+                        format("Could not use result cache file [%s]: Specified file is a directory.", resultCacheFile.getName()));
+            }
+        }
+    }
+
+    private void extractIncrementalOption(CommandLine line) {
+        this.incremental = line.hasOption("incremental");
+        if (incremental && !isUsingResultCache) {
+            throw new CommandLineOptionsException("Incremental analysis requires a result cache file, given with -resultCache.");
+        }
+    }
+
+    private void extractDependencyGraphFile(CommandLine line) {
+        if (line.hasOption("dependencyGraph")) {
+            this.dependencyGraphFile = new File(line.getOptionValue("dependencyGraph"));
+            this.isWritingDependencyGraph = true;
+        }
+    }
+
+    private void extractHeaderIndexFile(CommandLine line) {
+        if (line.hasOption("headerIndex")) {
+            this.headerIndexFile = new File(line.getOptionValue("headerIndex"));
+            this.isUsingHeaderIndex = true;
+        }
+    }
+
+    private void extractVerdictOnlyOption(CommandLine line) {
+        this.verdictOnly = line.hasOption("verdictOnly");
+    }
+
+    private void extractUnsortedOption(CommandLine line) {
+        this.unsorted = line.hasOption("unsorted");
+    }
+
+    private void extractResultMemoryBudget(CommandLine line) {
+        if (line.hasOption("resultMemory")) {
+            String value = line.getOptionValue("resultMemory");
+            long megabytes;
+            try {
+                megabytes = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                megabytes = 0;
+            }
+            if (megabytes < 1 || megabytes > Long.MAX_VALUE / (1024 * 1024)) {
+                throw new CommandLineOptionsException(format("Invalid result memory [%s]: must be a positive whole number of megabytes.", value));
+            }
+            this.resultMemoryBudget = megabytes * 1024 * 1024;
+        }
+    }
+
+    private void extractShowStatisticsOption(CommandLine line) {
+        this.showStatistics = line.hasOption("stats");
+    }
+
+    private void extractPackageOptions(CommandLine line) {
+        if (line.hasOption("includePackages")) {
+            this.includedPackages = packageList(line.getOptionValue("includePackages"));
+        }
+        if (line.hasOption("excludePackages")) {
+            this.excludedPackages = packageList(line.getOptionValue("excludePackages"));
+        }
+    }
+
+    private List<String> packageList(String commaSeparated) {
+        return Splitter.on(',').trimResults().omitEmptyStrings().splitToList(commaSeparated);
+    }
+
     private void extractVerboseOption(CommandLine line) {
         if (line.hasOption("v") || line.hasOption("verbose")) {
             verbose = true;
@@ -290,6 +505,11 @@ public class CommandLineOptions implements BatchAnalysisOptions {
         return reportMode;
     }
 
+    @Override
+    public ReportFormat reportFormat() {
+        return reportFormat;
+    }
+
     @Override
     public File classListFile() {
         return classListFile;
@@ -314,4 +534,74 @@ public class CommandLineOptions implements BatchAnalysisOptions {
     public ClassloadingOption classloading() {
         return classloadingOption;
     }
+
+    @Override
+    public int parallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public File resultCacheFile() {
+        return resultCacheFile;
+    }
+
+    @Override
+    public boolean isUsingResultCache() {
+        return isUsingResultCache;
+    }
+
+    @Override
+    public boolean incremental() {
+        return incremental;
+    }
+
+    @Override
+    public File dependencyGraphFile() {
+        return dependencyGraphFile;
+    }
+
+    @Override
+    public boolean isWritingDependencyGraph() {
+        return isWritingDependencyGraph;
+    }
+
+    @Override
+    public File headerIndexFile() {
+        return headerIndexFile;
+    }
+
+    @Override
+    public boolean isUsingHeaderIndex() {
+        return isUsingHeaderIndex;
+    }
+
+    @Override
+    public boolean verdictOnly() {
+        return verdictOnly;
+    }
+
+    @Override
+    public boolean unsorted() {
+        return unsorted;
+    }
+
+    @Override
+    public List<String> includedPackages() {
+        return includedPackages;
+    }
+
+    @Override
+    public List<String> excludedPackages() {
+        return excludedPackages;
+    }
+
+    @Override
+    public long resultMemoryBudget() {
+        return resultMemoryBudget;
+    }
+
+    @Override
+    public boolean showStatistics() {
+        return showStatistics;
+    }
 }
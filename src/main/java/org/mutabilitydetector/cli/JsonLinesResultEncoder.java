@@ -0,0 +1,127 @@
+package org.mutabilitydetector.cli;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.mutabilitydetector.AnalysisError;
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.MutableReasonDetail;
+import org.mutabilitydetector.locations.CodeLocation;
+import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
+import org.mutabilitydetector.locations.CodeLocation.FieldLocation;
+
+/**
+ * Writes an {@link AnalysisResult} as a single line of JSON, for example:
+ * 
+ * <pre>
+ * {"class":"a.b.C","result":"NOT_IMMUTABLE","reasons":[{"reason":"NON_FINAL_FIELD","class":"a.b.C","field":"f"}],"errors":[]}
+ * </pre>
+ * 
+ * Each reason has its {@link org.mutabilitydetector.Reason#code() code}, and the class and field it was found at,
+ * when known. Messages are only included when asked for, as they are formatted on demand. Everything is written
+ * straight to the given writer, escaping as it goes, so encoding a result creates no intermediate strings.
+ */
+@Immutable
+final class JsonLinesResultEncoder {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final boolean includeMessages;
+
+    JsonLinesResultEncoder(boolean includeMessages) {
+        this.includeMessages = includeMessages;
+    }
+
+    void write(AnalysisResult result, Writer out) throws IOException {
+        out.write("{\"class\":");
+        writeString(result.className.asString(), out);
+        out.write(",\"result\":\"");
+        out.write(result.isImmutable.name());
+        out.write("\",\"reasons\":[");
+        boolean first = true;
+        for (MutableReasonDetail reason : result.reasons) {
+            if (!first) out.write(',');
+            first = false;
+            writeReason(reason, out);
+        }
+        out.write("],\"errors\":[");
+        first = true;
+        for (AnalysisError error : result.errors) {
+            if (!first) out.write(',');
+            first = false;
+            out.write("{\"checker\":");
+            writeString(error.checkerName, out);
+            out.write(",\"description\":");
+            writeString(error.description, out);
+            out.write('}');
+        }
+        out.write("]}\n");
+    }
+
+    private void writeReason(MutableReasonDetail reason, Writer out) throws IOException {
+        out.write("{\"reason\":");
+        writeString(reason.reason().code(), out);
+        CodeLocation<?> location = reason.codeLocation();
+        if (location instanceof ClassLocation || location instanceof FieldLocation) {
+            out.write(",\"class\":");
+            writeString(location.typeName(), out);
+        }
+        if (location instanceof FieldLocation) {
+            out.write(",\"field\":");
+            writeString(((FieldLocation) location).fieldName(), out);
+        }
+        if (includeMessages) {
+            out.write(",\"message\":");
+            writeString(reason.message(), out);
+        }
+        out.write('}');
+    }
+
+    private static void writeString(String value, Writer out) throws IOException {
+        out.write('"');
+        int unescapedFrom = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            out.write(value, unescapedFrom, i - unescapedFrom);
+            unescapedFrom = i + 1;
+            switch (c) {
+            case '"': out.write("\\\""); break;
+            case '\\': out.write("\\\\"); break;
+            case '\n': out.write("\\n"); break;
+            case '\r': out.write("\\r"); break;
+            case '\t': out.write("\\t"); break;
+            default:
+                out.write("\\u00");
+                out.write(HEX_DIGITS[c >> 4]);
+                out.write(HEX_DIGITS[c & 0xF]);
+            }
+        }
+        out.write(value, unescapedFrom, value.length() - unescapedFrom);
+        out.write('"');
+    }
+}
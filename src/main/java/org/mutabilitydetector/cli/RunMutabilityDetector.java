@@ -24,29 +24,53 @@ import static com.google.classpath.RegExpResourceFilter.ANY;
 import static com.google.classpath.RegExpResourceFilter.ENDS_WITH_CLASS;
 import static org.mutabilitydetector.Configurations.OUT_OF_THE_BOX_CONFIGURATION;
 import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithGivenClassPath;
+import static org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode.FULL;
+import static org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode.VERDICT_ONLY;
 import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.CARRY_ON;
 import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.FAIL_FAST;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.function.Function;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.mutabilitydetector.AnalysisResult;
 import org.mutabilitydetector.AnalysisSession;
 import org.mutabilitydetector.Configuration;
 import org.mutabilitydetector.ConfigurationBuilder;
+import org.mutabilitydetector.SessionStatistics;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory.ClassloadingOption;
 import org.mutabilitydetector.asmoverride.ClassLoadingVerifierFactory;
 import org.mutabilitydetector.asmoverride.NonClassLoadingVerifierFactory;
+import org.mutabilitydetector.cache.PersistentResultCache;
 import org.mutabilitydetector.checkers.ClassPathBasedCheckerRunnerFactory;
 import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
 import org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice;
+import org.mutabilitydetector.checkers.info.ClassDependencies;
+import org.mutabilitydetector.cli.CommandLineOptions.ReportFormat;
 import org.mutabilitydetector.classloading.CachingAnalysisClassLoader;
 import org.mutabilitydetector.classloading.ClassForNameWrapper;
+import org.mutabilitydetector.classpath.ClassBytesSource;
+import org.mutabilitydetector.classpath.ClassHeaderIndex;
+import org.mutabilitydetector.classpath.ClassPathFingerprint;
 import org.mutabilitydetector.locations.Dotted;
 import org.mutabilitydetector.misc.TimingUtil;
 
@@ -60,14 +84,30 @@ import com.google.classpath.RegExpResourceFilter;
  */
 public final class RunMutabilityDetector implements Runnable, Callable<String> {
 
+    private static final int INDEXING_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
     private final ClassPath classpath;
     private final BatchAnalysisOptions options;
     private final NamesFromClassResources namesFromClassResources;
+    private final PrintStream errorStream;
 
     public RunMutabilityDetector(ClassPath classpath, BatchAnalysisOptions options, NamesFromClassResources namesFromClassResources) {
-        this.classpath = classpath;
+        this(classpath, options, namesFromClassResources, System.err);
+    }
+
+    /**
+     * @param errorStream
+     *            where problems which do not stop the analysis, such as failing to read or write a cache file, are
+     *            reported.
+     */
+    public RunMutabilityDetector(ClassPath classpath,
+                                 BatchAnalysisOptions options,
+                                 NamesFromClassResources namesFromClassResources,
+                                 PrintStream errorStream) {
+        this.classpath = ClassBytesSource.cached(classpath);
         this.options = options;
         this.namesFromClassResources = namesFromClassResources;
+        this.errorStream = errorStream;
     }
 
     /**
@@ -75,21 +115,43 @@ public final class RunMutabilityDetector implements Runnable, Callable<String> {
      */
     @Override
     public void run() {
-        StringBuilder output = getResultString();
-        System.out.println(output);
+        try {
+            writeResults(formatter -> formatter.startReport(System.out));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (options.reportFormat() == ReportFormat.TEXT) {
+            System.out.println();
+        }
     }
 
     /**
      * Runs mutability detection, returning the results as a String.
+     * 
+     * @throws IllegalStateException
+     *             if the options ask for the binary format, before any analysis is done. Options parsed with
+     *             {@link CommandLineOptions#forResultsAsText} never do.
      */
     @Override
     public String call() throws Exception {
-        return getResultString().toString();
+        if (options.reportFormat() == ReportFormat.BINARY) {
+            throw new IllegalStateException("Binary results cannot be returned as text.");
+        }
+        StringWriter output = new StringWriter();
+        writeResults(formatter -> formatter.startReport(output));
+        return output.toString();
     }
 
-    private StringBuilder getResultString() {
-        RegExpResourceFilter regExpResourceFilter = new RegExpResourceFilter(ANY, ENDS_WITH_CLASS);
-        String[] findResources = classpath.findResources("", regExpResourceFilter);
+    private void writeResults(Function<SessionResultsFormatter, SessionResultsFormatter.Report> startReport)
+            throws IOException {
+        ClassResourceFinder resourceFinder = ClassResourceFinder
+            .forMatch(options.match(), options.includedPackages(), options.excludedPackages());
+        Collection<Dotted> listedClasses = options.isUsingClassList()
+            ? new ClassListReaderFactory(options.classListFile()).createReader().classListToReport()
+            : Collections.<Dotted>emptySet();
+        String[] findResources = options.isUsingClassList()
+            ? resourceFinder.findClassResources(classpath, listedClasses)
+            : resourceFinder.findClassResources(classpath, INDEXING_PARALLELISM);
         List<Dotted> filtered = namesFromClassResources.asDotted(findResources);
 
         Configuration configuration = new ConfigurationBuilder() {
@@ -98,35 +160,156 @@ public final class RunMutabilityDetector implements Runnable, Callable<String> {
                 mergeHardcodedResultsFrom(OUT_OF_THE_BOX_CONFIGURATION);
                 setExceptionPolicy(options.failFast() ? FAIL_FAST : CARRY_ON);
                 setClassloadingPolicy(options.classloading());
+                setAnalysisMode(options.verdictOnly() ? VERDICT_ONLY : FULL);
+                setResultMemoryBudget(options.resultMemoryBudget());
+                setRecordStatistics(options.showStatistics());
             }
         }.build();
 
         String[] classPathFiles = new ClassPathFactory().parseClasspath(options.classpath());
-        AsmVerifierFactory verifierFactory = options.classloading() == ClassloadingOption.ENABLED
-            ? createClassLoadingVerifierFactory(classPathFiles)
+        ClassHeaderIndex headerIndex = ClassHeaderIndex.of(classpath);
+        String classpathFingerprint = options.isUsingHeaderIndex() || options.isUsingResultCache()
+            ? ClassPathFingerprint.of(classPathFiles)
+            : null;
+        if (options.isUsingHeaderIndex()) {
+            restoreHeaderIndex(headerIndex, options.headerIndexFile(), classpathFingerprint);
+            String[] allResources = classpath.findResources("", new RegExpResourceFilter(ANY, ENDS_WITH_CLASS));
+            headerIndex.index(new NamesFromClassResources(".*").asDotted(allResources), INDEXING_PARALLELISM);
+        } else {
+            headerIndex.index(filtered, INDEXING_PARALLELISM);
+        }
+
+        CachingAnalysisClassLoader classLoader = options.classloading() == ClassloadingOption.ENABLED
+            ? createCachingClassLoader(classPathFiles, configuration.recordsStatistics())
+            : null;
+        AsmVerifierFactory verifierFactory = classLoader != null
+            ? new ClassLoadingVerifierFactory(classLoader)
             : new NonClassLoadingVerifierFactory(classpath);
 
-        AnalysisSession newSession = createWithGivenClassPath(classpath,
-                                                            new ClassPathBasedCheckerRunnerFactory(classpath, configuration.exceptionPolicy()),
-                                                            new MutabilityCheckerFactory(ReassignedFieldAnalysisChoice.NAIVE_PUT_FIELD_ANALYSIS, configuration.immutableContainerClasses()),
-                                                            verifierFactory,
-                                                            configuration);
+        ClassPathBasedCheckerRunnerFactory checkerRunnerFactory = new ClassPathBasedCheckerRunnerFactory(classpath, configuration.exceptionPolicy());
+        MutabilityCheckerFactory checkerFactory = new MutabilityCheckerFactory(ReassignedFieldAnalysisChoice.NAIVE_PUT_FIELD_ANALYSIS, configuration.immutableContainerClasses());
+        PersistentResultCache resultCache = options.isUsingResultCache()
+            ? loadResultCache(options.resultCacheFile(), configuration)
+            : null;
+        if (resultCache != null) {
+            if (options.incremental()) {
+                resultCache.invalidateChangedClasses(classpath);
+            } else {
+                resultCache.invalidateChangedClasses(classpath, classpathFingerprint);
+            }
+        }
 
+        AnalysisSession newSession = resultCache != null
+            ? createWithGivenClassPath(classpath, configuration, verifierFactory, resultCache)
+            : createWithGivenClassPath(classpath, checkerRunnerFactory, checkerFactory, verifierFactory, configuration);
+        if (classLoader != null) {
+            newSession.statistics().registerCache("Class loader", classLoader::stats);
+        }
+        ObjectName statisticsMBean = options.showStatistics() ? registerStatisticsMBean(newSession.statistics()) : null;
 
-        AnalysisSession completedSession = new BatchAnalysisSession(newSession).runAnalysis(filtered);
-        
-        ClassListReaderFactory readerFactory = new ClassListReaderFactory(options.classListFile());
-        
-        TimingUtil timingUtil = new TimingUtil();
-        
-        return new SessionResultsFormatter(options, readerFactory, timingUtil)
-                       .format(completedSession.getResults(), completedSession.getErrors());
+        SessionResultsFormatter formatter = new SessionResultsFormatter(options, listedClasses, new TimingUtil());
+        try (SessionResultsFormatter.Report report = startReport.apply(formatter)) {
+            AnalysisSession completedSession = new BatchAnalysisSession(newSession, options.parallelism())
+                    .runAnalysis(filtered, report::add);
+            finishAnalysis(completedSession, resultCache, headerIndex, classpathFingerprint);
+
+            for (AnalysisResult result : completedSession.getResults()) {
+                report.add(result);
+            }
+            report.finish(completedSession.getErrors());
+        } finally {
+            if (options.showStatistics()) {
+                newSession.statistics().writeTo(System.err);
+                unregisterStatisticsMBean(statisticsMBean);
+            }
+        }
+    }
+
+    private void finishAnalysis(AnalysisSession completedSession,
+                                PersistentResultCache resultCache,
+                                ClassHeaderIndex headerIndex,
+                                String classpathFingerprint) {
+
+        if (resultCache != null) {
+            saveResultCache(resultCache, options.resultCacheFile());
+        }
+        if (options.isUsingHeaderIndex()) {
+            saveHeaderIndex(headerIndex, options.headerIndexFile(), classpathFingerprint);
+        }
+        if (options.isWritingDependencyGraph()) {
+            writeDependencyGraph(completedSession.dependencies(), options.dependencyGraphFile());
+        }
+    }
+
+    private PersistentResultCache loadResultCache(File cacheFile, Configuration configuration) {
+        try {
+            return PersistentResultCache.load(cacheFile, configuration);
+        } catch (IOException e) {
+            reportProblem("Could not read result cache from %s, analysing all classes. Cause: %s", cacheFile, e);
+            return null;
+        }
+    }
+
+    private void saveResultCache(PersistentResultCache resultCache, File cacheFile) {
+        try {
+            resultCache.save();
+        } catch (IOException e) {
+            reportProblem("Could not write result cache to %s. Cause: %s", cacheFile, e);
+        }
+    }
+
+    private void restoreHeaderIndex(ClassHeaderIndex headerIndex, File indexFile, String classpathFingerprint) {
+        try {
+            headerIndex.restore(indexFile, classpathFingerprint);
+        } catch (IOException e) {
+            reportProblem("Could not read class header index from %s, rebuilding it. Cause: %s", indexFile, e);
+        }
+    }
+
+    private void saveHeaderIndex(ClassHeaderIndex headerIndex, File indexFile, String classpathFingerprint) {
+        try {
+            headerIndex.save(indexFile, classpathFingerprint);
+        } catch (IOException e) {
+            reportProblem("Could not write class header index to %s. Cause: %s", indexFile, e);
+        }
+    }
+
+    private void writeDependencyGraph(ClassDependencies dependencies, File graphFile) {
+        try (Writer writer = Files.newBufferedWriter(graphFile.toPath(), StandardCharsets.UTF_8)) {
+            dependencies.writeDot(writer);
+        } catch (IOException e) {
+            reportProblem("Could not write dependency graph to %s. Cause: %s", graphFile, e);
+        }
+    }
+
+    private CachingAnalysisClassLoader createCachingClassLoader(String[] classPathFiles, boolean recordsStatistics) {
+        return new CachingAnalysisClassLoader(
+                new URLFallbackClassLoader(getCustomClassLoader(classPathFiles), new ClassForNameWrapper()),
+                recordsStatistics);
+    }
+
+    private ObjectName registerStatisticsMBean(SessionStatistics statistics) {
+        try {
+            return statistics.registerMBean(ManagementFactory.getPlatformMBeanServer());
+        } catch (JMException e) {
+            reportProblem("Could not make statistics available over JMX. Cause: %s", e);
+            return null;
+        }
+    }
+
+    private void unregisterStatisticsMBean(ObjectName name) {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            reportProblem("Could not unregister statistics from JMX. Cause: %s", e);
+        }
     }
 
-    private ClassLoadingVerifierFactory createClassLoadingVerifierFactory(String[] classPathFiles) {
-        return new ClassLoadingVerifierFactory(
-                new CachingAnalysisClassLoader(
-                        new URLFallbackClassLoader(getCustomClassLoader(classPathFiles), new ClassForNameWrapper())));
+    private void reportProblem(String format, Object... args) {
+        errorStream.println(String.format(format, args));
     }
 
     private URLClassLoader getCustomClassLoader(String[] classPathFiles) {
@@ -137,7 +320,7 @@ public final class RunMutabilityDetector implements Runnable, Callable<String> {
                 URL toAdd = new File(classPathUrl).toURI().toURL();
                 urlList.add(toAdd);
             } catch (MalformedURLException e) {
-                System.err.printf("Classpath option %s is invalid.", classPathUrl);
+                reportProblem("Classpath option %s is invalid.", classPathUrl);
             }
         }
         return new URLClassLoader(urlList.toArray(new URL[urlList.size()]));
@@ -21,28 +21,47 @@ package org.mutabilitydetector.cli;
  */
 
 
-import com.google.common.collect.Ordering;
 import org.mutabilitydetector.AnalysisError;
 import org.mutabilitydetector.AnalysisResult;
 import org.mutabilitydetector.IsImmutable;
 import org.mutabilitydetector.MutableReasonDetail;
+import org.mutabilitydetector.cache.AnalysisResultCodec;
+import org.mutabilitydetector.cli.CommandLineOptions.ReportFormat;
 import org.mutabilitydetector.cli.CommandLineOptions.ReportMode;
 import org.mutabilitydetector.locations.Dotted;
 import org.mutabilitydetector.misc.TimingUtil;
 
 import javax.annotation.concurrent.Immutable;
-import java.io.Serializable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.mutabilitydetector.IsImmutable.IMMUTABLE;
 import static org.mutabilitydetector.IsImmutable.NOT_IMMUTABLE;
 
 @Immutable
 public final class SessionResultsFormatter {
 
+    /** Begins results written in the {@link ReportFormat#BINARY} format. */
+    public static final int BINARY_MAGIC = 0x4D445252;
+    public static final int BINARY_FORMAT_VERSION = 2;
+
     private final boolean verbose;
     private final boolean showSummary;
     private final ReportMode reportMode;
@@ -51,28 +70,91 @@ public final class SessionResultsFormatter {
     private final TimingUtil timingUtil;
     
     public SessionResultsFormatter(BatchAnalysisOptions options, ClassListReaderFactory readerFactory, TimingUtil timingUtil) {
+        this(options, getClassesToReport(options.isUsingClassList(), readerFactory), timingUtil);
+    }
+
+    /**
+     * @param classesToReport the classes read from the class list, if {@link BatchAnalysisOptions#isUsingClassList()}.
+     */
+    public SessionResultsFormatter(BatchAnalysisOptions options, Collection<Dotted> classesToReport, TimingUtil timingUtil) {
         this.options = options;
         this.verbose = options.verbose();
         this.showSummary = options.showSummary();
         this.reportMode = options.reportMode();
-        this.classesToReport = getClassesToReport(options.isUsingClassList(), readerFactory);
+        this.classesToReport = classesToReport;
         this.timingUtil = timingUtil;
     }
 
     public StringBuilder format(Iterable<AnalysisResult> results, Iterable<AnalysisError> errors) {
-        StringBuilder output = new StringBuilder();
+        StringWriter output = new StringWriter();
+        try {
+            format(results, errors, output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new StringBuilder(output.getBuffer());
+    }
+
+    public void format(Iterable<AnalysisResult> results, Iterable<AnalysisError> errors, Writer output) throws IOException {
+        try (Report report = startTextReport(output, new SortedSpillRuns())) {
+            for (AnalysisResult result : results) {
+                report.add(result);
+            }
+            report.finish(errors);
+        }
+    }
+
+    /**
+     * Starts a report, in the format chosen by the options, which results can be added to as soon as each is known,
+     * such as while a batch is still being analysed.
+     * <p>
+     * Text is sorted by class name, so is only written once the report is finished. Each result is formatted as it is
+     * added though, and the text held in sorted runs which spill to temporary files, so neither the results nor the
+     * whole report need to be held in memory to write it. Unsorted text, and other formats, write each result as soon
+     * as it is added.
+     * The given stream is flushed, but not closed, when the report is finished.
+     */
+    public Report startReport(OutputStream output) {
+        switch (options.reportFormat()) {
+        case JSONL:
+            return new JsonLinesReport(new BufferedWriter(new OutputStreamWriter(output, UTF_8)));
+        case BINARY:
+            return new BinaryReport(new DataOutputStream(new BufferedOutputStream(output)));
+        default:
+            return startTextReport(new BufferedWriter(new OutputStreamWriter(output, Charset.defaultCharset())));
+        }
+    }
+
+    /**
+     * As {@link #startReport(OutputStream)}, for formats which are text.
+     * 
+     * @throws IllegalStateException
+     *             if the options ask for the binary format.
+     */
+    public Report startReport(Writer output) {
+        switch (options.reportFormat()) {
+        case JSONL:
+            return new JsonLinesReport(output);
+        case BINARY:
+            throw new IllegalStateException("Binary results cannot be written as text.");
+        default:
+            return startTextReport(output);
+        }
+    }
 
-        appendErrors(errors, output);
-        appendAnalysisResults(results, output);
+    private Report startTextReport(Writer output) {
+        return options.unsorted() ? new UnsortedTextReport(output) : startTextReport(output, new SortedSpillRuns());
+    }
 
-        return output;
+    Report startTextReport(Writer output, SortedSpillRuns runs) {
+        return new TextReport(output, runs);
     }
 
-    private Collection<Dotted> getClassesToReport(boolean isUsingClassList, ClassListReaderFactory readerFactory) {
+    private static Collection<Dotted> getClassesToReport(boolean isUsingClassList, ClassListReaderFactory readerFactory) {
         return isUsingClassList ? readerFactory.createReader().classListToReport() : Collections.<Dotted> emptySet();
     }
 
-    private void appendErrors(Iterable<AnalysisError> errors, StringBuilder output) {
+    private void appendErrors(Iterable<AnalysisError> errors, Writer output) throws IOException {
 
         if (!options.reportErrors()) return;
 
@@ -88,28 +170,7 @@ public final class SessionResultsFormatter {
 
     }
 
-    private void appendAnalysisResults(Iterable<AnalysisResult> results, StringBuilder output) {
-        List<AnalysisResult> sortedList = sortByClassname(results);
-
-        int total = 0;
-        int totalNotImmutable = 0;
-        for (AnalysisResult result : sortedList) {
-            IsImmutable isImmutable = result.isImmutable;
-            if (isImmutable.equals(NOT_IMMUTABLE)) {
-                totalNotImmutable++;
-            }
-            total++;
-            addResultForClass(output, result, isImmutable);
-        }
-
-        if (showSummary) {
-            int totalImmutable = total - totalNotImmutable;
-            appendSummaryOfResults(output, total, totalImmutable, totalNotImmutable);
-        }
-
-    }
-
-    private void appendSummaryOfResults(StringBuilder output, int total, int totalImmutable, int totalMutable) {
+    private void appendSummaryOfResults(Writer output, int total, int totalImmutable, int totalMutable) throws IOException {
         output.append(String.format("%n\t%d %s%n", total, "Total number of classes scanned."));
         output.append(String.format("\t%d %s%n", totalImmutable, "IMMUTABLE class(es)."));
         output.append(String.format("\t%d %s%n", totalMutable,  "NOT_IMMUTABLE class(es)."));
@@ -117,33 +178,28 @@ public final class SessionResultsFormatter {
         output.append(String.format("\t%d %s%n", processRuntime/1000, "seconds runtime."));
     }
 
-    private List<AnalysisResult> sortByClassname(Iterable<AnalysisResult> sessionResults) {
-        return Ordering.from(new ClassnameComparator()).sortedCopy(sessionResults);
-    }
-
-    private void addResultForClass(StringBuilder output, AnalysisResult result, IsImmutable isImmutable) {
+    private boolean isReported(AnalysisResult result) {
 
-        if (options.isUsingClassList() && !classesToReport.contains(result.className)) return;
+        if (options.isUsingClassList() && !classesToReport.contains(result.className)) return false;
 
         if (reportMode.equals(ReportMode.ALL)) {
-            appendClassResult(output, result, isImmutable);
+            return true;
         } else if (reportMode.equals(ReportMode.IMMUTABLE)) {
-            if (result.isImmutable.equals(IMMUTABLE)) {
-                appendClassResult(output, result, isImmutable);
-            }
+            return result.isImmutable.equals(IMMUTABLE);
         } else if (reportMode.equals(ReportMode.MUTABLE)) {
-            if (result.isImmutable.equals(NOT_IMMUTABLE)) {
-                appendClassResult(output, result, isImmutable);
-            }
+            return result.isImmutable.equals(NOT_IMMUTABLE);
         }
+        return false;
 
     }
 
-    private void appendClassResult(StringBuilder output, AnalysisResult result, IsImmutable isImmutable) {
-        output.append(String.format("%s is %s%n", result.className, isImmutable.name()));
+    private String formatClassResult(AnalysisResult result) {
+        StringBuilder output = new StringBuilder();
+        output.append(String.format("%s is %s%n", result.className, result.isImmutable.name()));
         if (!result.isImmutable.equals(IMMUTABLE)) {
             addReasons(result, output);
         }
+        return output.toString();
     }
 
     private void addReasons(AnalysisResult result, StringBuilder output) {
@@ -155,14 +211,196 @@ public final class SessionResultsFormatter {
         }
     }
 
-    private static final class ClassnameComparator implements Comparator<AnalysisResult>, Serializable {
-        private static final long serialVersionUID = 1865374158214841422L;
+    /**
+     * A report being built from results as they become known. Results may be added from several threads; a class
+     * added more than once is only reported the first time. Each result is formatted on the thread adding it, and
+     * only writing the formatted result to the output is done one thread at a time.
+     */
+    @ThreadSafe
+    public abstract class Report implements Closeable {
+
+        private final Set<Dotted> added = ConcurrentHashMap.newKeySet();
+        private int total;
+        private int totalNotImmutable;
+
+        private Report() { }
+
+        public final void add(AnalysisResult result) {
+            if (!added.add(result.className)) return;
+
+            try {
+                FormattedResult formatted = isReported(result) ? format(result) : null;
+                synchronized (this) {
+                    total++;
+                    if (result.isImmutable.equals(NOT_IMMUTABLE)) {
+                        totalNotImmutable++;
+                    }
+                    if (formatted != null) {
+                        formatted.write();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Writes whatever remains of the report once every result has been added.
+         */
+        public final synchronized void finish(Iterable<AnalysisError> errors) throws IOException {
+            finish(errors, total, totalNotImmutable);
+        }
+
+        /**
+         * Formats the given result, without holding the lock on this report.
+         * 
+         * @return writes the formatted result, while holding the lock on this report.
+         */
+        abstract FormattedResult format(AnalysisResult result) throws IOException;
+
+        abstract void finish(Iterable<AnalysisError> errors, int total, int totalNotImmutable) throws IOException;
+
+        @Override
+        public synchronized void close() throws IOException { }
+    }
+
+    @FunctionalInterface
+    interface FormattedResult {
+        void write() throws IOException;
+    }
+
+    private final class TextReport extends Report {
+        private final Writer output;
+        private final SortedSpillRuns runs;
+
+        TextReport(Writer output, SortedSpillRuns runs) {
+            this.output = output;
+            this.runs = runs;
+        }
+
+        @Override
+        FormattedResult format(AnalysisResult result) {
+            String text = formatClassResult(result);
+            return () -> runs.add(result.className.asString(), text);
+        }
+
+        @Override
+        void finish(Iterable<AnalysisError> errors, int total, int totalNotImmutable) throws IOException {
+            appendErrors(errors, output);
+            runs.writeSortedTo(output);
+
+            if (showSummary) {
+                appendSummaryOfResults(output, total, total - totalNotImmutable, totalNotImmutable);
+            }
+            output.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            runs.close();
+        }
+    }
+
+    /**
+     * Writes each result as soon as it is added, so the first results can be read while analysis continues.
+     */
+    private final class UnsortedTextReport extends Report {
+        private final Writer output;
+
+        UnsortedTextReport(Writer output) {
+            this.output = output;
+        }
 
         @Override
-        public int compare(AnalysisResult first, AnalysisResult second) {
-            return first.className.asString().compareToIgnoreCase(second.className.asString());
+        FormattedResult format(AnalysisResult result) {
+            String text = formatClassResult(result);
+            return () -> {
+                output.write(text);
+                output.flush();
+            };
         }
 
+        @Override
+        void finish(Iterable<AnalysisError> errors, int total, int totalNotImmutable) throws IOException {
+            appendErrors(errors, output);
+            if (showSummary) {
+                appendSummaryOfResults(output, total, total - totalNotImmutable, totalNotImmutable);
+            }
+            output.flush();
+        }
+    }
+
+    /**
+     * Errors are written with the result of the class they occurred on, so need nothing more at the end.
+     */
+    private final class JsonLinesReport extends Report {
+        private final Writer output;
+        private final JsonLinesResultEncoder encoder = new JsonLinesResultEncoder(verbose);
+        private final ThreadLocal<CharArrayWriter> lines = ThreadLocal.withInitial(() -> new CharArrayWriter(256));
+
+        JsonLinesReport(Writer output) {
+            this.output = output;
+        }
+
+        @Override
+        FormattedResult format(AnalysisResult result) throws IOException {
+            CharArrayWriter line = lines.get();
+            line.reset();
+            encoder.write(result, line);
+            return () -> line.writeTo(output);
+        }
+
+        @Override
+        void finish(Iterable<AnalysisError> errors, int total, int totalNotImmutable) throws IOException {
+            output.flush();
+        }
+    }
+
+    /**
+     * Starts with {@link #BINARY_MAGIC}, {@link #BINARY_FORMAT_VERSION} and the
+     * {@link AnalysisResultCodec#FORMAT_VERSION}. Each result follows as an int length, then that many bytes as
+     * written by {@link AnalysisResultCodec}. Each thread reuses one buffer to encode and measure its records.
+     */
+    private final class BinaryReport extends Report {
+        private final DataOutputStream output;
+        private final ThreadLocal<RecordBuffer> records = ThreadLocal.withInitial(RecordBuffer::new);
+        private boolean headerWritten;
+
+        BinaryReport(DataOutputStream output) {
+            this.output = output;
+        }
+
+        @Override
+        FormattedResult format(AnalysisResult result) throws IOException {
+            RecordBuffer record = records.get();
+            record.bytes.reset();
+            AnalysisResultCodec.write(record.output, result);
+            return () -> {
+                writeHeaderIfRequired();
+                output.writeInt(record.bytes.size());
+                record.bytes.writeTo(output);
+            };
+        }
+
+        @Override
+        void finish(Iterable<AnalysisError> errors, int total, int totalNotImmutable) throws IOException {
+            writeHeaderIfRequired();
+            output.flush();
+        }
+
+        private void writeHeaderIfRequired() throws IOException {
+            if (!headerWritten) {
+                output.writeInt(BINARY_MAGIC);
+                output.writeInt(BINARY_FORMAT_VERSION);
+                output.writeInt(AnalysisResultCodec.FORMAT_VERSION);
+                headerWritten = true;
+            }
+        }
+    }
+
+    private static final class RecordBuffer {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        final DataOutputStream output = new DataOutputStream(bytes);
     }
 
 }
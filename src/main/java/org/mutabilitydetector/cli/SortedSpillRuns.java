@@ -0,0 +1,226 @@
+package org.mutabilitydetector.cli;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Sorts pieces of report text by a key, without holding all of them in memory.
+ * <p>
+ * Entries are buffered until their text exceeds a limit, then sorted and spilled to a temporary file as a run. When
+ * written out, the runs and whatever is still buffered are merged, so memory use is bounded by the buffer and one
+ * entry per run. Keys are ordered ignoring case, as class names are in the report.
+ */
+@NotThreadSafe
+final class SortedSpillRuns implements Closeable {
+
+    static final int DEFAULT_BUFFERED_CHARS = 4 * 1024 * 1024;
+
+    private static final Comparator<Entry> BY_KEY = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry first, Entry second) {
+            int ignoringCase = first.key.compareToIgnoreCase(second.key);
+            return ignoringCase != 0 ? ignoringCase : first.key.compareTo(second.key);
+        }
+    };
+
+    private final int maxBufferedChars;
+    private final List<Entry> buffer = new ArrayList<>();
+    private final List<File> runs = new ArrayList<>();
+    private long bufferedChars;
+
+    SortedSpillRuns() {
+        this(DEFAULT_BUFFERED_CHARS);
+    }
+
+    SortedSpillRuns(int maxBufferedChars) {
+        this.maxBufferedChars = maxBufferedChars;
+    }
+
+    void add(String key, String text) throws IOException {
+        buffer.add(new Entry(key, text));
+        bufferedChars += key.length() + text.length();
+        if (bufferedChars > maxBufferedChars) {
+            spill();
+        }
+    }
+
+    int spilledRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Writes the text of every entry added so far, in order of their keys.
+     */
+    void writeSortedTo(Writer output) throws IOException {
+        Collections.sort(buffer, BY_KEY);
+        List<Run> sources = new ArrayList<>(runs.size() + 1);
+        try {
+            for (File run : runs) {
+                sources.add(new FileRun(run));
+            }
+            sources.add(new BufferedRun(buffer.iterator()));
+
+            PriorityQueue<Run> merge = new PriorityQueue<>(sources.size(), new Comparator<Run>() {
+                @Override
+                public int compare(Run first, Run second) {
+                    return BY_KEY.compare(first.head(), second.head());
+                }
+            });
+            for (Run source : sources) {
+                if (source.advance()) {
+                    merge.add(source);
+                }
+            }
+            while (!merge.isEmpty()) {
+                Run next = merge.poll();
+                output.write(next.head().text);
+                if (next.advance()) {
+                    merge.add(next);
+                }
+            }
+        } finally {
+            for (Run source : sources) {
+                source.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.clear();
+        for (File run : runs) {
+            Files.deleteIfExists(run.toPath());
+        }
+        runs.clear();
+    }
+
+    private void spill() throws IOException {
+        Collections.sort(buffer, BY_KEY);
+        File run = File.createTempFile("mutability-detector-report", ".run");
+        run.deleteOnExit();
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)))) {
+            for (Entry entry : buffer) {
+                out.writeUTF(entry.key);
+                byte[] text = entry.text.getBytes(UTF_8);
+                out.writeInt(text.length);
+                out.write(text);
+            }
+        }
+        buffer.clear();
+        bufferedChars = 0;
+    }
+
+    private static final class Entry {
+        final String key;
+        final String text;
+
+        Entry(String key, String text) {
+            this.key = key;
+            this.text = text;
+        }
+    }
+
+    private interface Run extends Closeable {
+        boolean advance() throws IOException;
+
+        Entry head();
+    }
+
+    private static final class BufferedRun implements Run {
+        private final Iterator<Entry> entries;
+        private Entry head;
+
+        BufferedRun(Iterator<Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public boolean advance() {
+            head = entries.hasNext() ? entries.next() : null;
+            return head != null;
+        }
+
+        @Override
+        public Entry head() {
+            return head;
+        }
+
+        @Override
+        public void close() { }
+    }
+
+    private static final class FileRun implements Run {
+        private final DataInputStream in;
+        private Entry head;
+
+        FileRun(File run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+        }
+
+        @Override
+        public boolean advance() throws IOException {
+            String key;
+            try {
+                key = in.readUTF();
+            } catch (EOFException e) {
+                head = null;
+                return false;
+            }
+            byte[] text = new byte[in.readInt()];
+            in.readFully(text);
+            head = new Entry(key, new String(text, UTF_8));
+            return true;
+        }
+
+        @Override
+        public Entry head() {
+            return head;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
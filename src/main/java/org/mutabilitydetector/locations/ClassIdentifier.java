@@ -45,7 +45,7 @@ public final class ClassIdentifier {
 
     public static ClassIdentifier forClass(Slashed className) {
         String slashed = className.asString();
-        String dottedString = new ClassNameConverter().dotted(slashed);
+        String dottedString = ClassNameConverter.CONVERTER.dotted(slashed);
 
         return forClass(dotted(dottedString));
     }
@@ -0,0 +1,91 @@
+package org.mutabilitydetector.locations;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Dense integer ids for class names, given in the order each name is first seen.
+ * <p>
+ * A table belongs to one session, or to one structure within it, such as the dependency graph or the class header
+ * index. Ids are therefore small enough to index arrays, and the names are released along with the session rather
+ * than being held for the life of the JVM. Looking up the id of a name already seen takes no lock; only the first
+ * sighting of a name takes a lock shared by the whole table.
+ */
+@ThreadSafe
+public final class ClassIds {
+
+    public static final int UNKNOWN_CLASS = -1;
+
+    private final ConcurrentMap<Dotted, Integer> ids = new ConcurrentHashMap<Dotted, Integer>();
+    /** Only written while holding this object's lock; {@link #size} is written last. */
+    private volatile Dotted[] classNamesById = new Dotted[64];
+    private volatile int size;
+
+    /**
+     * @return the id of the given class, giving it the next id if it has none yet.
+     */
+    public int idOf(Dotted className) {
+        Integer id = ids.get(className);
+        return id != null ? id : addClass(className);
+    }
+
+    /**
+     * @return the id of the given class, or {@link #UNKNOWN_CLASS} if it has not been given one.
+     */
+    public int existingIdOf(Dotted className) {
+        Integer id = ids.get(className);
+        return id != null ? id : UNKNOWN_CLASS;
+    }
+
+    public Dotted classNameOf(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown class id: " + id);
+        }
+        return classNamesById[id];
+    }
+
+    /**
+     * @return the number of classes given an id, which is one more than the highest id.
+     */
+    public int size() {
+        return size;
+    }
+
+    private synchronized int addClass(Dotted className) {
+        Integer existing = ids.get(className);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        if (id == classNamesById.length) {
+            classNamesById = Arrays.copyOf(classNamesById, id * 2);
+        }
+        classNamesById[id] = className;
+        size = id + 1;
+        ids.put(className, id);
+        return id;
+    }
+}
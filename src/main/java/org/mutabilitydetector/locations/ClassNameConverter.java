@@ -23,6 +23,7 @@ package org.mutabilitydetector.locations;
 
 
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import javax.annotation.concurrent.Immutable;
 
 /**
@@ -34,16 +35,32 @@ public final class ClassNameConverter {
     public static final ClassNameConverter CONVERTER = new ClassNameConverter();
 
     public String dotted(final String givenClassName) {
-        return SINGLE_DIMENSIONAL_IF_ARRAY
-                .andThen(REMOVE_ARRAY_DESCRIPTOR_IF_REFERENCE_TYPE)
-                .andThen(REMOVE_REFERENCE_DESCRIPTOR_IF_REFERENCE_TYPE)
-                .andThen(REMOVE_CLASS_EXTENSION)
-                .andThen(REMOVE_TRAILING_SEMICOLON)
-                .andThen(REPLACE_SLASHES_WITH_DOTS)
-                .apply(givenClassName);
+        return isAlreadyDotted(givenClassName)
+                ? givenClassName
+                : TO_DOTTED.apply(givenClassName);
     }
 
-    private static final Function<String, String> SINGLE_DIMENSIONAL_IF_ARRAY = s -> s.replaceAll("\\[+", "[");
+    /**
+     * Most names given are already in dotted form, and would pass through every conversion unchanged. Checking for
+     * that with a single scan avoids allocating a new string at each step.
+     */
+    private static boolean isAlreadyDotted(String className) {
+        if (className.startsWith("L") || className.endsWith(".class")) {
+            return false;
+        }
+        for (int i = 0; i < className.length(); i++) {
+            char c = className.charAt(i);
+            if (c == '[' || c == ';' || c == '/') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final Pattern REPEATED_ARRAY_DIMENSIONS = Pattern.compile("\\[+");
+
+    private static final Function<String, String> SINGLE_DIMENSIONAL_IF_ARRAY =
+            s -> REPEATED_ARRAY_DIMENSIONS.matcher(s).replaceAll("[");
 
     private static final Function<String, String> REMOVE_ARRAY_DESCRIPTOR_IF_REFERENCE_TYPE =
             s -> s.startsWith("[L") ? s.replace("[L", "") : s;
@@ -56,6 +73,13 @@ public final class ClassNameConverter {
 
     private static final Function<String, String> REMOVE_TRAILING_SEMICOLON = s -> s.replace(";", "");
 
-    private static final Function<String, String> REPLACE_SLASHES_WITH_DOTS = s -> s.replace("/", ".");
+    private static final Function<String, String> REPLACE_SLASHES_WITH_DOTS = s -> s.replace('/', '.');
+
+    private static final Function<String, String> TO_DOTTED = SINGLE_DIMENSIONAL_IF_ARRAY
+            .andThen(REMOVE_ARRAY_DESCRIPTOR_IF_REFERENCE_TYPE)
+            .andThen(REMOVE_REFERENCE_DESCRIPTOR_IF_REFERENCE_TYPE)
+            .andThen(REMOVE_CLASS_EXTENSION)
+            .andThen(REMOVE_TRAILING_SEMICOLON)
+            .andThen(REPLACE_SLASHES_WITH_DOTS);
     
 }
@@ -107,7 +107,7 @@ public abstract class CodeLocation<T extends CodeLocation<T>> implements Compara
         }
 
         public static ClassLocation fromInternalName(String internalClassName) {
-            String dottedClassName = new ClassNameConverter().dotted(internalClassName);
+            String dottedClassName = ClassNameConverter.CONVERTER.dotted(internalClassName);
             return new ClassLocation(dottedClassName);
         }
 
@@ -25,9 +25,22 @@ import org.objectweb.asm.Type;
 
 import javax.annotation.concurrent.Immutable;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import static org.mutabilitydetector.locations.ClassNameConverter.CONVERTER;
+
+/**
+ * A class name in dotted form, e.g. {@code java.lang.Object}.
+ * <p>
+ * Instances are weakly interned: while a name is in use there is only one instance for it, so most comparisons are
+ * decided by identity, and names no longer referenced by any session can be garbage collected.
+ */
 @Immutable
 public final class Dotted extends ClassName {
 
+    private static final Interner<Dotted> INTERNED = Interners.newWeakInterner();
+
     private Dotted(String className) {
         super(className);
     }
@@ -47,17 +60,15 @@ public final class Dotted extends ClassName {
     }
 
     public static Dotted dotted(String className) {
-        return new Dotted(new ClassNameConverter().dotted(className));
+        return INTERNED.intern(new Dotted(CONVERTER.dotted(className)));
     }
 
     public static Dotted fromSlashed(Slashed className) {
-        String converted = new ClassNameConverter().dotted(className.asString());
-        return dotted(converted);
+        return dotted(CONVERTER.dotted(className.asString()));
     }
 
     public static Dotted fromSlashedString(String className) {
-        String dottedClassNameString = new ClassNameConverter().dotted(className);
-        return dotted(dottedClassNameString);
+        return dotted(CONVERTER.dotted(className));
     }
 
     public static Dotted fromClass(Class<?> clazz) {
@@ -69,7 +80,7 @@ public final class Dotted extends ClassName {
     }
 
     public String asResource() {
-        return asString().replace(".", "/").concat(".class");
+        return asString().replace('.', '/').concat(".class");
     }
 
 }
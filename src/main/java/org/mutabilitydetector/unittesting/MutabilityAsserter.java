@@ -40,6 +40,7 @@ import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
 import org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice;
 import org.mutabilitydetector.classloading.CachingAnalysisClassLoader;
 import org.mutabilitydetector.classloading.ClassForNameWrapper;
+import org.mutabilitydetector.classpath.ClassBytesSource;
 import org.mutabilitydetector.locations.Dotted;
 import org.mutabilitydetector.unittesting.internal.AssertionReporter;
 import org.mutabilitydetector.unittesting.matchers.reasons.WithAllowedReasonsMatcher;
@@ -83,7 +84,7 @@ public class MutabilityAsserter {
      * @see Configurations#OUT_OF_THE_BOX_CONFIGURATION
      */
     public static MutabilityAsserter configured(Configuration configuration) {
-        ClassPath classpath = new ClassPathFactory().createFromJVM();
+        ClassPath classpath = ClassBytesSource.cached(new ClassPathFactory().createFromJVM());
 
         AsmVerifierFactory verifierFactory = configuration.classloadingOption() == ClassloadingOption.ENABLED
             ? new ClassLoadingVerifierFactory(new CachingAnalysisClassLoader(new ClassForNameWrapper()))
@@ -23,13 +23,36 @@ package org.mutabilitydetector;
 
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.isIn;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.mutabilitydetector.TestUtil.analysisDatabase;
 import static org.mutabilitydetector.TestUtil.testingVerifierFactory;
+import static org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode.VERDICT_ONLY;
 import static org.mutabilitydetector.unittesting.MutabilityMatchers.areImmutable;
 
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mutabilitydetector.asmoverride.NonClassLoadingVerifierFactory;
 import org.mutabilitydetector.benchmarks.ImmutableExample;
+import org.mutabilitydetector.benchmarks.ImmutableProvidedOtherClassIsImmutable;
+import org.mutabilitydetector.benchmarks.MutableByHavingPublicNonFinalField;
+import org.mutabilitydetector.benchmarks.cyclic.ImmutableClassA;
+import org.mutabilitydetector.benchmarks.cyclic.ImmutableClassB;
+import org.mutabilitydetector.cache.PersistentResultCache;
 import org.mutabilitydetector.checkers.AllChecksRunner;
 import org.mutabilitydetector.checkers.CheckerRunnerFactory;
 import org.mutabilitydetector.checkers.ClassPathBasedCheckerRunnerFactory;
@@ -38,12 +61,29 @@ import org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldA
 import org.mutabilitydetector.checkers.info.AnalysisInProgress;
 import org.mutabilitydetector.checkers.info.CyclicReferences;
 import org.mutabilitydetector.checkers.info.MutableTypeInformation;
+import org.mutabilitydetector.locations.CodeLocation;
 import org.mutabilitydetector.locations.Dotted;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 
+import java.io.File;
+import java.io.InputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class AnalysisSessionTest {
 
+    @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
     private final Dotted immutableClass = Dotted.fromClass(ImmutableExample.class);
     
     @Test
@@ -75,5 +115,267 @@ public class AnalysisSessionTest {
         assertThat(result, areImmutable());
     }
 
-    
+    @Test(timeout = 30000)
+    public void concurrentRequestsForTheSameClassesShareASingleAnalysis() throws Exception {
+        AnalysisSession analysisSession = TestUtil.testAnalysisSession();
+        Dotted classA = Dotted.fromClass(ImmutableClassA.class);
+        Dotted classB = Dotted.fromClass(ImmutableClassB.class);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<AnalysisResult>> requests = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Dotted toAnalyse = i % 2 == 0 ? classA : classB;
+            requests.add(() -> {
+                start.await();
+                return analysisSession.resultFor(toAnalyse);
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<AnalysisResult>> results = new ArrayList<>();
+            for (Callable<AnalysisResult> request : requests) {
+                results.add(executor.submit(request));
+            }
+            start.countDown();
+
+            for (Future<AnalysisResult> result : results) {
+                AnalysisResult expected = analysisSession.resultsByClass().get(result.get().className);
+                assertThat(result.get(), sameInstance(expected));
+            }
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void recordsDependenciesDiscoveredDuringAnalysis() throws Exception {
+        AnalysisSession analysisSession = TestUtil.testAnalysisSession();
+        Dotted classA = Dotted.fromClass(ImmutableClassA.class);
+
+        analysisSession.resultFor(classA);
+
+        assertThat(analysisSession.dependencies().dependenciesOf(classA), hasItem(Dotted.fromClass(ImmutableClassB.class)));
+    }
+
+    public static final class HoldsAbstractTypes {
+        private final AbstractList<String> list;
+        private final Runnable task;
+
+        public HoldsAbstractTypes(AbstractList<String> list, Runnable task) {
+            this.list = list;
+            this.task = task;
+        }
+    }
+
+    @Test
+    public void recordsDependenciesOnAbstractFieldTypes() throws Exception {
+        AnalysisSession analysisSession = TestUtil.testAnalysisSession();
+        Dotted holder = Dotted.fromClass(HoldsAbstractTypes.class);
+
+        analysisSession.resultFor(holder);
+
+        assertThat(analysisSession.dependencies().dependenciesOf(holder),
+                hasItems(Dotted.fromClass(AbstractList.class), Dotted.fromClass(Runnable.class)));
+    }
+
+    @Test
+    public void analysesLongChainsOfFieldTypesWithoutNestingOneAnalysisInsideAnother() throws Exception {
+        int chainLength = 2000;
+        File packageFolder = folder.newFolder("chain");
+        for (int link = 0; link < chainLength; link++) {
+            Files.write(linkClass(link, link + 1 < chainLength), new File(packageFolder, "Link" + link + ".class"));
+        }
+        ClassPath classpath = new ClassPathFactory().createFromPath(
+                System.getProperty("sun.boot.class.path") + File.pathSeparator + folder.getRoot().getPath());
+        AnalysisSession analysisSession = DefaultCachingAnalysisSession.createWithGivenClassPath(classpath,
+                null,
+                null,
+                new NonClassLoadingVerifierFactory(classpath),
+                Configurations.OUT_OF_THE_BOX_CONFIGURATION);
+
+        AnalysisResult result = analysisSession.resultFor(Dotted.dotted("chain.Link0"));
+
+        assertThat(result.isImmutable, equalTo(IsImmutable.IMMUTABLE));
+        assertThat(analysisSession.resultsByClass().get(Dotted.dotted("chain.Link" + (chainLength - 1))).isImmutable,
+                equalTo(IsImmutable.IMMUTABLE));
+    }
+
+    /**
+     * A final class with a final field holding the next class in the chain, assigned in its constructor.
+     */
+    private static byte[] linkClass(int link, boolean hasNext) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, "chain/Link" + link, null,
+                "java/lang/Object", null);
+        String nextDescriptor = "Lchain/Link" + (link + 1) + ";";
+        if (hasNext) {
+            writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "next", nextDescriptor, null, null).visitEnd();
+        }
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>",
+                hasNext ? "(" + nextDescriptor + ")V" : "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        if (hasNext) {
+            constructor.visitVarInsn(Opcodes.ALOAD, 0);
+            constructor.visitVarInsn(Opcodes.ALOAD, 1);
+            constructor.visitFieldInsn(Opcodes.PUTFIELD, "chain/Link" + link, "next", nextDescriptor);
+        }
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    @Test
+    public void resultsBeyondTheMemoryBudgetKeepTheirVerdict() throws Exception {
+        Dotted mutableClass = Dotted.fromClass(MutableByHavingPublicNonFinalField.class);
+        Configuration tinyBudget = new ConfigurationBuilder() {
+            @Override public void configure() {
+                setResultMemoryBudget(1);
+            }
+        }.build();
+
+        AnalysisResult fullResult = TestUtil.testAnalysisSession().resultFor(mutableClass);
+        AnalysisSession analysisSession = DefaultCachingAnalysisSession
+                .createWithGivenClassPath(new ClassPathFactory().createFromJVM(), null, null, testingVerifierFactory(), tinyBudget);
+        analysisSession.resultFor(mutableClass);
+
+        AnalysisResult heldResult = analysisSession.resultsByClass().get(mutableClass);
+        assertThat(heldResult.isImmutable, equalTo(fullResult.isImmutable));
+        assertThat(heldResult.reasons, hasSize(1));
+        assertThat(heldResult.reasons, everyItem(isIn(fullResult.reasons)));
+    }
+
+    @Test
+    public void recordsTimeTakenByEachCheckerWhenAskedTo() throws Exception {
+        Dotted mutableClass = Dotted.fromClass(MutableByHavingPublicNonFinalField.class);
+        Configuration recordingStatistics = new ConfigurationBuilder() {
+            @Override public void configure() {
+                setRecordStatistics(true);
+            }
+        }.build();
+
+        AnalysisSession analysisSession = DefaultCachingAnalysisSession
+                .createWithGivenClassPath(new ClassPathFactory().createFromJVM(), null, null, testingVerifierFactory(), recordingStatistics);
+        analysisSession.resultFor(mutableClass);
+
+        SessionStatistics statistics = analysisSession.statistics();
+        assertThat(statistics.getClassesAnalysed(), greaterThan(0L));
+        assertThat(statistics.parseTime().count, greaterThan(0L));
+        assertThat(statistics.checkerTimes(), hasKey("PublishedNonFinalFieldChecker"));
+        assertThat(statistics.cacheStats(), hasKey("Analysed classes"));
+    }
+
+    @Test
+    public void onlyChecksWhichLookUpOtherClassesRunAgainWhenAFieldTypeWasNotYetAnalysed() throws Exception {
+        Configuration recordingStatistics = new ConfigurationBuilder() {
+            @Override public void configure() {
+                setRecordStatistics(true);
+            }
+        }.build();
+
+        AnalysisSession analysisSession = DefaultCachingAnalysisSession
+                .createWithGivenClassPath(new ClassPathFactory().createFromJVM(), null, null, testingVerifierFactory(), recordingStatistics);
+        analysisSession.resultFor(Dotted.fromClass(ImmutableProvidedOtherClassIsImmutable.class));
+
+        SessionStatistics statistics = analysisSession.statistics();
+        assertThat(statistics.getClassesAnalysed(), equalTo(2L));
+        assertThat(statistics.checkerTimes().get("MutableTypeToFieldChecker").count, equalTo(3L));
+        assertThat(statistics.checkerTimes().get("CanSubclassChecker").count, equalTo(2L));
+    }
+
+    @Test
+    public void recordsNoTimingsByDefault() throws Exception {
+        AnalysisSession analysisSession = TestUtil.testAnalysisSession();
+        analysisSession.resultFor(Dotted.fromClass(MutableByHavingPublicNonFinalField.class));
+
+        assertThat(analysisSession.statistics().getClassesAnalysed(), equalTo(0L));
+        assertThat(analysisSession.statistics().checkerTimes().isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void verdictOnlyAnalysisStopsAtTheFirstReasonForMutability() throws Exception {
+        Dotted mutableClass = Dotted.fromClass(MutableByHavingPublicNonFinalField.class);
+        Configuration verdictOnly = new ConfigurationBuilder() {
+            @Override public void configure() {
+                setAnalysisMode(VERDICT_ONLY);
+            }
+        }.build();
+
+        AnalysisResult fullResult = TestUtil.testAnalysisSession().resultFor(mutableClass);
+        AnalysisResult verdictOnlyResult = DefaultCachingAnalysisSession
+                .createWithGivenClassPath(new ClassPathFactory().createFromJVM(), null, null, testingVerifierFactory(), verdictOnly)
+                .resultFor(mutableClass);
+
+        assertThat(verdictOnlyResult.isImmutable, equalTo(fullResult.isImmutable));
+        assertThat(verdictOnlyResult.reasons, hasSize(1));
+        assertThat(verdictOnlyResult.reasons, everyItem(isIn(fullResult.reasons)));
+        assertThat(fullResult.reasons.size() > 1, equalTo(true));
+    }
+
+    @Test
+    public void resultsFromPersistentCacheAreUsedInsteadOfAnalysingUnchangedClasses() throws Exception {
+        ClassPath classpath = new ClassPathFactory().createFromJVM();
+        PersistentResultCache resultCache = PersistentResultCache.load(new File(folder.getRoot(), "results.bin"),
+                Configurations.OUT_OF_THE_BOX_CONFIGURATION);
+        AnalysisResult persisted = AnalysisResult.analysisResult(immutableClass,
+                IsImmutable.NOT_IMMUTABLE,
+                MutableReasonDetail.newMutableReasonDetail("persisted",
+                        CodeLocation.ClassLocation.from(immutableClass),
+                        MutabilityReason.CAN_BE_SUBCLASSED));
+        try (InputStream classBytes = classpath.getResourceAsStream(immutableClass.asResource())) {
+            resultCache.store(persisted, ByteStreams.toByteArray(classBytes));
+        }
+
+        AnalysisSession analysisSession = DefaultCachingAnalysisSession.createWithGivenClassPath(classpath,
+                Configurations.OUT_OF_THE_BOX_CONFIGURATION,
+                testingVerifierFactory(),
+                resultCache);
+
+        assertThat(analysisSession.resultFor(immutableClass), equalTo(persisted));
+    }
+
+    @Test
+    public void classesAPersistedResultDependedOnAreStillAnalysed() throws Exception {
+        ClassPath classpath = new ClassPathFactory().createFromJVM();
+        Dotted dependency = Dotted.fromClass(ImmutableClassA.class);
+        PersistentResultCache resultCache = PersistentResultCache.load(new File(folder.getRoot(), "results.bin"),
+                Configurations.OUT_OF_THE_BOX_CONFIGURATION);
+        try (InputStream classBytes = classpath.getResourceAsStream(immutableClass.asResource())) {
+            resultCache.store(AnalysisResult.definitelyImmutable(immutableClass),
+                    ByteStreams.toByteArray(classBytes),
+                    Collections.singleton(dependency));
+        }
+
+        AnalysisSession analysisSession = DefaultCachingAnalysisSession.createWithGivenClassPath(classpath,
+                Configurations.OUT_OF_THE_BOX_CONFIGURATION,
+                testingVerifierFactory(),
+                resultCache);
+        analysisSession.resultFor(immutableClass);
+
+        assertThat(analysisSession.resultsByClass().containsKey(dependency), equalTo(true));
+        assertThat(analysisSession.dependencies().dependenciesOf(immutableClass), contains(dependency));
+    }
+
+    @Test
+    public void resultsOfAnalysisAreAddedToPersistentCache() throws Exception {
+        PersistentResultCache resultCache = PersistentResultCache.load(new File(folder.getRoot(), "results.bin"),
+                Configurations.OUT_OF_THE_BOX_CONFIGURATION);
+        AnalysisSession analysisSession = DefaultCachingAnalysisSession.createWithGivenClassPath(
+                new ClassPathFactory().createFromJVM(),
+                Configurations.OUT_OF_THE_BOX_CONFIGURATION,
+                testingVerifierFactory(),
+                resultCache);
+
+        AnalysisResult result = analysisSession.resultFor(immutableClass);
+
+        try (InputStream classBytes = getClass().getClassLoader().getResourceAsStream(immutableClass.asResource())) {
+            assertThat(resultCache.lookup(immutableClass, ByteStreams.toByteArray(classBytes)).get(), equalTo(result));
+        }
+    }
+
 }
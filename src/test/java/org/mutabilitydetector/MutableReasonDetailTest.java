@@ -22,7 +22,24 @@ package org.mutabilitydetector;
 
 
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+import static org.mutabilitydetector.AnalysisResult.analysisResult;
+import static org.mutabilitydetector.MutableReasonDetail.newFormattedMutableReasonDetail;
+import static org.mutabilitydetector.MutableReasonDetail.newMutableReasonDetail;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+import java.util.IllegalFormatException;
+
 import org.junit.Test;
+import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
+
+import com.google.common.base.Strings;
 
 public class MutableReasonDetailTest {
 
@@ -40,5 +57,102 @@ public class MutableReasonDetailTest {
     public void doesNotPermitNullReason() throws Exception {
         MutableReasonDetail.newMutableReasonDetail("unused message", TestUtil.unusedCodeLocation(), null);
     }
+
+    @Test
+    public void formatsMessageFromTemplateAndArguments() throws Exception {
+        MutableReasonDetail reason = newFormattedMutableReasonDetail("Field can have a mutable type (%s) assigned to it.",
+                TestUtil.unusedCodeLocation(), MutabilityReason.MUTABLE_TYPE_TO_FIELD, new StringBuilder("a.b.C"));
+
+        assertThat(reason.message(), is("Field can have a mutable type (a.b.C) assigned to it."));
+        assertThat(reason.messageTemplate(), is("Field can have a mutable type (%s) assigned to it."));
+        assertThat(reason.messageArguments(), contains("a.b.C"));
+    }
+
+    @Test
+    public void messageWithoutArgumentsIsUsedAsItIs() throws Exception {
+        MutableReasonDetail reason = newMutableReasonDetail("100% mutable, see %s",
+                TestUtil.unusedCodeLocation(), MutabilityReason.NULL_REASON);
+
+        assertThat(reason.message(), is("100% mutable, see %s"));
+    }
+
+    @Test
+    public void formattedMessageWithoutArgumentsIsUsedAsItIs() throws Exception {
+        MutableReasonDetail reason = newFormattedMutableReasonDetail("100% mutable, see %s",
+                TestUtil.unusedCodeLocation(), MutabilityReason.NULL_REASON);
+
+        assertThat(reason.message(), is("100% mutable, see %s"));
+    }
+
+    @Test
+    public void reasonsWithSameTemplateAndArgumentsAreEqual() throws Exception {
+        MutableReasonDetail first = newFormattedMutableReasonDetail("Field [%s]", TestUtil.unusedCodeLocation(),
+                MutabilityReason.NON_FINAL_FIELD, "x");
+        MutableReasonDetail second = newFormattedMutableReasonDetail("Field [%s]", TestUtil.unusedCodeLocation(),
+                MutabilityReason.NON_FINAL_FIELD, "x");
+        MutableReasonDetail other = newFormattedMutableReasonDetail("Field [%s]", TestUtil.unusedCodeLocation(),
+                MutabilityReason.NON_FINAL_FIELD, "y");
+
+        assertThat(first, equalTo(second));
+        assertThat(first.hashCode(), equalTo(second.hashCode()));
+        assertThat(first, not(equalTo(other)));
+    }
+
+    @Test
+    public void reasonsWithTheSameMessageAreEqualWhetherOrNotTheyWereFormatted() throws Exception {
+        MutableReasonDetail fromTemplate = newFormattedMutableReasonDetail("Field [%s]", TestUtil.unusedCodeLocation(),
+                MutabilityReason.NON_FINAL_FIELD, "x");
+        MutableReasonDetail asItIs = newMutableReasonDetail("Field [x]", TestUtil.unusedCodeLocation(),
+                MutabilityReason.NON_FINAL_FIELD);
+
+        assertThat(fromTemplate, equalTo(asItIs));
+        assertThat(asItIs, equalTo(fromTemplate));
+        assertThat(fromTemplate.hashCode(), equalTo(asItIs.hashCode()));
+    }
+
+    @Test
+    public void messageIsOnlyFormattedOnce() throws Exception {
+        MutableReasonDetail reason = newFormattedMutableReasonDetail("Field [%s]", TestUtil.unusedCodeLocation(),
+                MutabilityReason.NON_FINAL_FIELD, "x");
+
+        assertThat(reason.message(), sameInstance(reason.message()));
+    }
+
+    @Test
+    public void buildingAResultDoesNotFormatTheMessagesOfItsReasons() throws Exception {
+        MutableReasonDetail unformattable = newFormattedMutableReasonDetail("Field has %d assignments",
+                TestUtil.unusedCodeLocation(), MutabilityReason.NON_FINAL_FIELD, "not a number");
+
+        AnalysisResult result = analysisResult("a.b.C", IsImmutable.NOT_IMMUTABLE, unformattable);
+
+        assertThat(result.reasons, contains(unformattable));
+        try {
+            unformattable.message();
+            fail("Formatting the message should fail, so it cannot have been built with the result");
+        } catch (IllegalFormatException expected) { }
+    }
+
+    @Test
+    public void shortArgumentsAndLocationsAreShared() throws Exception {
+        MutableReasonDetail first = newFormattedMutableReasonDetail("Field [%s]", ClassLocation.from(dotted("a.b.C")),
+                MutabilityReason.NON_FINAL_FIELD, new String("field"));
+        MutableReasonDetail second = newFormattedMutableReasonDetail("Field [%s]", ClassLocation.from(dotted("a.b.C")),
+                MutabilityReason.NON_FINAL_FIELD, new String("field"));
+
+        assertThat(first.messageArguments().get(0), sameInstance(second.messageArguments().get(0)));
+        assertThat(first.codeLocation(), sameInstance((Object) second.codeLocation()));
+    }
+
+    @Test
+    public void longArgumentsAreNotInterned() throws Exception {
+        String longArgument = Strings.repeat("a.very.long.Path -> ", 20);
+        MutableReasonDetail first = newFormattedMutableReasonDetail("Cycle: %s", TestUtil.unusedCodeLocation(),
+                MutabilityReason.MUTABLE_TYPE_TO_FIELD, new String(longArgument));
+        MutableReasonDetail second = newFormattedMutableReasonDetail("Cycle: %s", TestUtil.unusedCodeLocation(),
+                MutabilityReason.MUTABLE_TYPE_TO_FIELD, new String(longArgument));
+
+        assertThat(first.messageArguments().get(0), not(sameInstance(second.messageArguments().get(0))));
+        assertThat(first, equalTo(second));
+    }
     
 }
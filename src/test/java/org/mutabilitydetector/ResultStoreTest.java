@@ -0,0 +1,182 @@
+package org.mutabilitydetector;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.mutabilitydetector.locations.CodeLocation;
+import org.mutabilitydetector.locations.Dotted;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mutabilitydetector.AnalysisResult.analysisResult;
+import static org.mutabilitydetector.AnalysisResult.definitelyImmutable;
+import static org.mutabilitydetector.IsImmutable.NOT_IMMUTABLE;
+import static org.mutabilitydetector.MutabilityReason.CAN_BE_SUBCLASSED;
+import static org.mutabilitydetector.MutabilityReason.NON_FINAL_FIELD;
+import static org.mutabilitydetector.MutableReasonDetail.newMutableReasonDetail;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+public class ResultStoreTest {
+
+    private final Dotted mutableClass = dotted("some.MutableClass");
+    private final MutableReasonDetail firstReason = reason("can be subclassed", CAN_BE_SUBCLASSED);
+    private final MutableReasonDetail secondReason = reason("has a non-final field", NON_FINAL_FIELD);
+    private final AnalysisError error = new AnalysisError(mutableClass, "SomeChecker", "went wrong");
+    private final AnalysisResult detailedResult = analysisResult(mutableClass,
+            NOT_IMMUTABLE,
+            asList(firstReason, secondReason),
+            Collections.singletonList(error));
+
+    @Test
+    public void keepsEveryResultInFullWithoutABudget() {
+        ResultStore store = new ResultStore(Collections.<Dotted, AnalysisResult>emptyMap(), ResultStore.UNBOUNDED);
+
+        store.put(detailedResult);
+
+        assertThat(store.get(mutableClass), sameInstance(detailedResult));
+        assertThat(store.values(), contains(detailedResult));
+    }
+
+    @Test
+    public void countsLookupsOnlyWhenRecordingStatistics() {
+        ResultStore recording = new ResultStore(Collections.<Dotted, AnalysisResult>emptyMap(), ResultStore.UNBOUNDED, true);
+        ResultStore notRecording = new ResultStore(Collections.<Dotted, AnalysisResult>emptyMap(), ResultStore.UNBOUNDED, false);
+
+        recording.get(mutableClass);
+        notRecording.get(mutableClass);
+
+        assertThat(recording.stats().requestCount(), equalTo(1L));
+        assertThat(notRecording.stats().requestCount(), equalTo(0L));
+    }
+
+    @Test
+    public void evictedResultsRemainAvailableInCompactForm() {
+        ResultStore store = new ResultStore(Collections.<Dotted, AnalysisResult>emptyMap(), 1);
+
+        store.put(detailedResult);
+
+        AnalysisResult compactResult = store.get(mutableClass);
+        assertThat(compactResult.isImmutable, equalTo(NOT_IMMUTABLE));
+        assertThat(compactResult.reasons, contains(firstReason));
+        assertThat(compactResult.errors, contains(error));
+        assertThat(store.asMap().get(mutableClass), equalTo(compactResult));
+    }
+
+    @Test(timeout = 30000)
+    public void resultsBeingEvictedByOtherThreadsAreNeverMissing() throws Exception {
+        ResultStore store = new ResultStore(Collections.<Dotted, AnalysisResult>emptyMap(), 2000);
+        int threads = 4;
+        int classesPerThread = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < classesPerThread; i++) {
+                        Dotted className = dotted("some.Class" + thread + "_" + i);
+                        store.put(analysisResult(className, NOT_IMMUTABLE, asList(firstReason, secondReason)));
+                        for (int earlier = 0; earlier <= i; earlier += 17) {
+                            assertThat(store.get(dotted("some.Class" + thread + "_" + earlier)), notNullValue());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(store.asMap().size(), equalTo(threads * classesPerThread));
+    }
+
+    @Test
+    public void pinnedResultsAreNeverEvicted() {
+        AnalysisResult pinned = analysisResult(dotted("some.HardcodedClass"),
+                NOT_IMMUTABLE,
+                asList(firstReason, secondReason));
+        ResultStore store = new ResultStore(ImmutableMap.of(pinned.className, pinned), 1);
+
+        store.put(detailedResult);
+
+        assertThat(store.get(pinned.className), sameInstance(pinned));
+        assertThat(store.asMap().keySet(), containsInAnyOrder(pinned.className, mutableClass));
+    }
+
+    @Test
+    public void resultsWithAtMostOneReasonAreAlreadyCompact() {
+        AnalysisResult immutable = definitelyImmutable(dotted("some.ImmutableClass"));
+
+        assertThat(ResultStore.compactFormOf(immutable), sameInstance(immutable));
+    }
+
+    @Test
+    public void resultsWithMoreReasonsWeighMore() {
+        AnalysisResult oneReason = analysisResult(mutableClass, NOT_IMMUTABLE, firstReason);
+
+        assertThat(ResultStore.estimatedWeightOf(detailedResult), greaterThan(ResultStore.estimatedWeightOf(oneReason)));
+    }
+
+    @Test
+    public void resultsHeldWithinTheBudgetAreHeldOnlyInFull() {
+        ResultStore store = new ResultStore(Collections.<Dotted, AnalysisResult>emptyMap(), 1000000);
+
+        store.put(detailedResult);
+
+        assertThat(store.get(mutableClass), sameInstance(detailedResult));
+        assertThat(store.asMap().get(mutableClass), sameInstance(detailedResult));
+    }
+
+    @Test
+    public void longerMessagesWeighMore() {
+        AnalysisResult shortMessage = analysisResult(mutableClass, NOT_IMMUTABLE, reason("short", NON_FINAL_FIELD));
+        AnalysisResult longMessage = analysisResult(mutableClass,
+                NOT_IMMUTABLE,
+                reason("a much longer message, written for this reason alone", NON_FINAL_FIELD));
+
+        assertThat(ResultStore.estimatedWeightOf(longMessage), greaterThan(ResultStore.estimatedWeightOf(shortMessage)));
+    }
+
+    private MutableReasonDetail reason(String message, MutabilityReason reason) {
+        return newMutableReasonDetail(message, CodeLocation.ClassLocation.from(mutableClass), reason);
+    }
+}
@@ -0,0 +1,113 @@
+package org.mutabilitydetector;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+public class SessionStatisticsTest {
+
+    @Test
+    public void recordsTimeForEachCheckerAndForParsing() throws Exception {
+        SessionStatistics statistics = SessionStatistics.enabled();
+
+        statistics.checkerFinished("SomeChecker", statistics.startTiming());
+        statistics.checkerFinished("SomeChecker", statistics.startTiming());
+        statistics.checkerFinished("OtherChecker", statistics.startTiming());
+        statistics.classParsed(statistics.startTiming());
+
+        assertThat(statistics.checkerTimes().get("SomeChecker").count, is(2L));
+        assertThat(statistics.checkerTimes().get("OtherChecker").count, is(1L));
+        assertThat(statistics.parseTime().count, is(1L));
+    }
+
+    @Test
+    public void recordsTheDeepestTransitiveAnalysis() throws Exception {
+        SessionStatistics statistics = SessionStatistics.enabled();
+
+        statistics.analysisStarted(0);
+        statistics.analysisStarted(3);
+        statistics.analysisStarted(1);
+
+        assertThat(statistics.getClassesAnalysed(), is(3L));
+        assertThat(statistics.getMaximumTransitiveDepth(), is(3));
+    }
+
+    @Test
+    public void recordsNothingWhenDisabled() throws Exception {
+        SessionStatistics statistics = SessionStatistics.disabled();
+
+        long startedAt = statistics.startTiming();
+        statistics.checkerFinished("SomeChecker", startedAt);
+        statistics.classParsed(startedAt);
+        statistics.analysisStarted(2);
+
+        assertThat(startedAt, is(0L));
+        assertThat(statistics.checkerTimes().isEmpty(), is(true));
+        assertThat(statistics.parseTime().count, is(0L));
+        assertThat(statistics.getClassesAnalysed(), is(0L));
+        assertThat(statistics.getMaximumTransitiveDepth(), is(0));
+    }
+
+    @Test
+    public void readsHitRatesFromRegisteredCaches() throws Exception {
+        Cache<String, String> cache = CacheBuilder.newBuilder().recordStats().build();
+        cache.put("a", "A");
+        cache.getIfPresent("a");
+        cache.getIfPresent("b");
+        SessionStatistics statistics = SessionStatistics.disabled();
+
+        statistics.registerCache("Letters", cache::stats);
+
+        assertThat(statistics.getCacheHitRates(), hasEntry("Letters", 0.5));
+        StringBuilder summary = new StringBuilder();
+        statistics.writeTo(summary);
+        assertThat(summary.toString(), containsString("50.0% hit rate, 1 hits, 1 misses"));
+    }
+
+    @Test
+    public void canBeReadAsAnMXBean() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        SessionStatistics statistics = SessionStatistics.enabled();
+        statistics.analysisStarted(4);
+
+        ObjectName first = statistics.registerMBean(server);
+        ObjectName second = SessionStatistics.enabled().registerMBean(server);
+
+        assertThat(server.getAttribute(first, "MaximumTransitiveDepth"), equalTo((Object) 4));
+        assertThat(server.getAttribute(first, "CheckerTimeMillis") instanceof TabularData, is(true));
+        assertThat(second, not(equalTo(first)));
+    }
+}
@@ -0,0 +1,92 @@
+package org.mutabilitydetector.asmoverride;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.mutabilitydetector.asm.typehierarchy.TypeHierarchyReader;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Type;
+
+public class SessionTypeHierarchyReaderTest {
+
+    private final CountingTypeHierarchyReader baseReader = new CountingTypeHierarchyReader();
+
+    @Test
+    public void readsEachClassOnceAcrossManyLookups() {
+        SessionTypeHierarchyReader reader = new SessionTypeHierarchyReader(baseReader);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(reader.isAssignableFrom(Type.getType(Collection.class), Type.getType(ArrayList.class)), is(true));
+            assertThat(reader.isAssignableFrom(Type.getType(List.class), Type.getType(String.class)), is(false));
+            assertThat(reader.isInterface(Type.getType(Collection.class)), is(true));
+        }
+
+        for (AtomicInteger reads : baseReader.reads.values()) {
+            assertThat(reads.get(), is(1));
+        }
+    }
+
+    @Test
+    public void agreesWithUncachedReaderOnAssignability() {
+        SessionTypeHierarchyReader reader = new SessionTypeHierarchyReader(baseReader);
+        TypeHierarchyReader uncached = new TypeHierarchyReader();
+        Type[] types = { Type.getType(Object.class), Type.getType(Collection.class), Type.getType(List.class),
+                         Type.getType(ArrayList.class), Type.getType(String.class), Type.getType(int[].class) };
+
+        for (Type to : types) {
+            for (Type from : types) {
+                assertThat(to + " from " + from, reader.isAssignableFrom(to, from), is(uncached.isAssignableFrom(to, from)));
+            }
+        }
+    }
+
+    @Test
+    public void rereadsClassesEvictedFromABoundedCache() {
+        SessionTypeHierarchyReader reader = new SessionTypeHierarchyReader(baseReader, 1, 1);
+
+        reader.hierarchyOf(Type.getType(Collection.class));
+        reader.hierarchyOf(Type.getType(String.class));
+        reader.hierarchyOf(Type.getType(Collection.class));
+
+        assertThat(baseReader.reads.get(Type.getInternalName(Collection.class)).get(), is(2));
+    }
+
+    private static final class CountingTypeHierarchyReader extends TypeHierarchyReader {
+        final ConcurrentMap<String, AtomicInteger> reads = new ConcurrentHashMap<>();
+
+        @Override
+        protected ClassReader reader(Type t) throws IOException {
+            reads.computeIfAbsent(t.getInternalName(), name -> new AtomicInteger()).incrementAndGet();
+            return super.reader(t);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.mutabilitydetector.cache;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mutabilitydetector.AnalysisResult.analysisResult;
+import static org.mutabilitydetector.MutableReasonDetail.newFormattedMutableReasonDetail;
+import static org.mutabilitydetector.MutableReasonDetail.newMutableReasonDetail;
+import static org.mutabilitydetector.locations.CodeLocation.FieldLocation.fieldLocation;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import org.junit.Test;
+import org.mutabilitydetector.AnalysisError;
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.IsImmutable;
+import org.mutabilitydetector.MutabilityReason;
+import org.mutabilitydetector.MutableReasonDetail;
+import org.mutabilitydetector.Reason;
+import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
+import org.mutabilitydetector.locations.CodeLocation.UnknownCodeLocation;
+
+public class AnalysisResultCodecTest {
+
+    @Test
+    public void resultWithReasonsAndErrorsSurvivesRoundTrip() throws Exception {
+        ClassLocation owner = new ClassLocation("a.b.C");
+        AnalysisResult result = analysisResult(dotted("a.b.C"),
+                IsImmutable.NOT_IMMUTABLE,
+                asList(newMutableReasonDetail("can be subclassed", owner, MutabilityReason.CAN_BE_SUBCLASSED),
+                       newMutableReasonDetail("field is mutable", fieldLocation("field", owner), MutabilityReason.NON_FINAL_FIELD),
+                       newMutableReasonDetail("somewhere", UnknownCodeLocation.UNKNOWN, MutabilityReason.CANNOT_ANALYSE)),
+                singletonList(new AnalysisError(dotted("a.b.C"), "SomeChecker", "it went wrong")));
+
+        AnalysisResult read = roundTrip(result);
+
+        assertThat(read.className, equalTo(result.className));
+        assertThat(read.isImmutable, equalTo(result.isImmutable));
+        assertThat(read.reasons, equalTo(result.reasons));
+        AnalysisError error = read.errors.iterator().next();
+        assertThat(error.onClass, equalTo(dotted("a.b.C")));
+        assertThat(error.checkerName, equalTo("SomeChecker"));
+        assertThat(error.description, equalTo("it went wrong"));
+    }
+
+    @Test
+    public void templatedReasonSurvivesRoundTripWithoutBeingFormatted() throws Exception {
+        ClassLocation owner = new ClassLocation("a.b.C");
+        AnalysisResult result = analysisResult(dotted("a.b.C"),
+                IsImmutable.NOT_IMMUTABLE,
+                newFormattedMutableReasonDetail("Field [%s] can be reassigned within method [%s]",
+                        owner, MutabilityReason.FIELD_CAN_BE_REASSIGNED, "field", "setField"));
+
+        MutableReasonDetail read = roundTrip(result).reasons.iterator().next();
+
+        assertThat(read, equalTo(result.reasons.iterator().next()));
+        assertThat(read.messageArguments(), contains("field", "setField"));
+        assertThat(read.message(), is("Field [field] can be reassigned within method [setField]"));
+    }
+
+    @Test
+    public void immutableResultSurvivesRoundTrip() throws Exception {
+        AnalysisResult result = AnalysisResult.definitelyImmutable("a.b.C");
+
+        assertThat(roundTrip(result), equalTo(result));
+    }
+
+    @Test
+    public void cannotEncodeResultWithReasonNotDefinedByMutabilityDetector() throws Exception {
+        Reason customReason = new Reason() {
+            @Override public String description() { return "custom"; }
+            @Override public String code() { return "CUSTOM"; }
+            @Override public IsImmutable createsResult() { return IsImmutable.NOT_IMMUTABLE; }
+            @Override public boolean isOneOf(Reason... reasons) { return false; }
+        };
+        MutableReasonDetail reason = newMutableReasonDetail("custom", new ClassLocation("a.b.C"), customReason);
+
+        assertThat(AnalysisResultCodec.canEncode(analysisResult("a.b.C", IsImmutable.NOT_IMMUTABLE, reason)), is(false));
+    }
+
+    private AnalysisResult roundTrip(AnalysisResult result) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AnalysisResultCodec.write(new DataOutputStream(bytes), result);
+        return AnalysisResultCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
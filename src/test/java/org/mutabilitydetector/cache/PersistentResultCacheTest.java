@@ -0,0 +1,230 @@
+package org.mutabilitydetector.cache;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static java.util.Arrays.asList;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mutabilitydetector.AnalysisResult.analysisResult;
+import static org.mutabilitydetector.AnalysisResult.definitelyImmutable;
+import static org.mutabilitydetector.Configurations.NO_CONFIGURATION;
+import static org.mutabilitydetector.Configurations.OUT_OF_THE_BOX_CONFIGURATION;
+import static org.mutabilitydetector.MutableReasonDetail.newMutableReasonDetail;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mutabilitydetector.AnalysisError;
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.IsImmutable;
+import org.mutabilitydetector.MutabilityReason;
+import org.mutabilitydetector.MutableReasonDetail;
+import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
+import org.mutabilitydetector.locations.Dotted;
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.DirectoryClassPath;
+
+public class PersistentResultCacheTest {
+
+    @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final byte[] classBytes = { 1, 2, 3, 4 };
+    private final MutableReasonDetail reason =
+            newMutableReasonDetail("can be subclassed", new ClassLocation("a.b.C"), MutabilityReason.CAN_BE_SUBCLASSED);
+    private final AnalysisResult result = analysisResult("a.b.C", IsImmutable.NOT_IMMUTABLE, reason);
+
+    @Test
+    public void resultsAreAvailableAfterSavingAndLoading() throws Exception {
+        File file = new File(folder.getRoot(), "results.bin");
+        PersistentResultCache cache = PersistentResultCache.load(file, NO_CONFIGURATION);
+        cache.store(result, classBytes);
+        cache.save();
+
+        PersistentResultCache reloaded = PersistentResultCache.load(file, NO_CONFIGURATION);
+
+        assertThat(reloaded.lookup(dotted("a.b.C"), classBytes).get(), equalTo(result));
+    }
+
+    @Test
+    public void resultIsNotReturnedWhenClassBytesHaveChanged() throws Exception {
+        PersistentResultCache cache = PersistentResultCache.load(new File(folder.getRoot(), "results.bin"), NO_CONFIGURATION);
+        cache.store(result, classBytes);
+
+        assertThat(cache.lookup(dotted("a.b.C"), new byte[] { 1, 2, 3, 5 }).isPresent(), is(false));
+    }
+
+    @Test
+    public void resultsSavedUnderDifferentConfigurationAreIgnored() throws Exception {
+        File file = new File(folder.getRoot(), "results.bin");
+        PersistentResultCache cache = PersistentResultCache.load(file, NO_CONFIGURATION);
+        cache.store(result, classBytes);
+        cache.save();
+
+        PersistentResultCache reloaded = PersistentResultCache.load(file, OUT_OF_THE_BOX_CONFIGURATION);
+
+        assertThat(reloaded.lookup(dotted("a.b.C"), classBytes).isPresent(), is(false));
+    }
+
+    @Test
+    public void resultsWithErrorsAreNotStored() throws Exception {
+        PersistentResultCache cache = PersistentResultCache.load(new File(folder.getRoot(), "results.bin"), NO_CONFIGURATION);
+        AnalysisResult withError = analysisResult(dotted("a.b.C"),
+                IsImmutable.COULD_NOT_ANALYSE,
+                singletonList(reason),
+                singletonList(new AnalysisError(dotted("a.b.C"), "SomeChecker", "it went wrong")));
+
+        cache.store(withError, classBytes);
+
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void invalidatesChangedClassesAndClassesWhichDependedOnThem() throws Exception {
+        File file = new File(folder.getRoot(), "results.bin");
+        PersistentResultCache cache = PersistentResultCache.load(file, NO_CONFIGURATION);
+        cache.store(definitelyImmutable("a.Changed"), classBytes);
+        cache.store(definitelyImmutable("a.DependsOnChanged"), classBytes, asList(dotted("a.Changed")));
+        cache.store(definitelyImmutable("a.DependsTransitively"), classBytes, asList(dotted("a.DependsOnChanged")));
+        cache.store(definitelyImmutable("a.Unrelated"), classBytes, asList(dotted("a.Unchanged")));
+        cache.store(definitelyImmutable("a.Unchanged"), classBytes);
+        cache.save();
+
+        ClassPath classpath = mock(ClassPath.class);
+        when(classpath.getResourceAsStream(anyString())).thenAnswer(invocation -> new ByteArrayInputStream(classBytes));
+        when(classpath.getResourceAsStream("a/Changed.class")).thenReturn(new ByteArrayInputStream(new byte[] { 9 }));
+
+        PersistentResultCache reloaded = PersistentResultCache.load(file, NO_CONFIGURATION);
+        Set<Dotted> invalidated = reloaded.invalidateChangedClasses(classpath);
+
+        assertThat(invalidated, containsInAnyOrder(dotted("a.Changed"), dotted("a.DependsOnChanged"), dotted("a.DependsTransitively")));
+        assertThat(reloaded.lookup(dotted("a.DependsTransitively"), classBytes).isPresent(), is(false));
+        assertThat(reloaded.lookup(dotted("a.Unrelated"), classBytes).isPresent(), is(true));
+        assertThat(reloaded.size(), is(2));
+    }
+
+    @Test
+    public void changeToADependencyWhoseResultWasNotStoredStillInvalidatesItsDependents() throws Exception {
+        File classes = folder.newFolder("classes");
+        File dependencyFile = classFile(classes, "a/HadErrors.class", new byte[] { 5 });
+        classFile(classes, "a/DependsOnIt.class", classBytes);
+        File file = new File(folder.getRoot(), "results.bin");
+        PersistentResultCache cache = PersistentResultCache.load(file, NO_CONFIGURATION);
+        cache.store(analysisResult(dotted("a.HadErrors"),
+                IsImmutable.COULD_NOT_ANALYSE,
+                singletonList(reason),
+                singletonList(new AnalysisError(dotted("a.HadErrors"), "SomeChecker", "it went wrong"))), new byte[] { 5 });
+        cache.store(definitelyImmutable("a.DependsOnIt"), classBytes, asList(dotted("a.HadErrors")));
+        cache.save();
+        Files.write(dependencyFile.toPath(), new byte[] { 6 });
+
+        PersistentResultCache reloaded = PersistentResultCache.load(file, NO_CONFIGURATION);
+        assertThat(reloaded.lookup(dotted("a.HadErrors"), new byte[] { 5 }).isPresent(), is(false));
+        Set<Dotted> invalidated = reloaded.invalidateChangedClasses(new DirectoryClassPath(classes));
+
+        assertThat(invalidated, containsInAnyOrder(dotted("a.HadErrors"), dotted("a.DependsOnIt")));
+        assertThat(reloaded.lookup(dotted("a.DependsOnIt"), classBytes).isPresent(), is(false));
+    }
+
+    private static File classFile(File directory, String resource, byte[] contents) throws Exception {
+        File classFile = new File(directory, resource);
+        Files.createDirectories(classFile.getParentFile().toPath());
+        Files.write(classFile.toPath(), contents);
+        return classFile;
+    }
+
+    @Test
+    public void invalidatesClassesNoLongerOnClasspath() throws Exception {
+        PersistentResultCache cache = PersistentResultCache.load(new File(folder.getRoot(), "results.bin"), NO_CONFIGURATION);
+        cache.store(result, classBytes);
+
+        assertThat(cache.invalidateChangedClasses(mock(ClassPath.class)), contains(dotted("a.b.C")));
+    }
+
+    @Test
+    public void classesAreOnlyCheckedForChangesWhenTheClasspathFingerprintDiffers() throws Exception {
+        File file = new File(folder.getRoot(), "results.bin");
+        PersistentResultCache cache = PersistentResultCache.load(file, NO_CONFIGURATION);
+        cache.store(result, classBytes);
+        assertThat(cache.invalidateChangedClasses(classpathOf(classBytes), "first").isEmpty(), is(true));
+        cache.save();
+
+        PersistentResultCache reloaded = PersistentResultCache.load(file, NO_CONFIGURATION);
+        ClassPath changed = classpathOf(new byte[] { 9 });
+
+        assertThat(reloaded.invalidateChangedClasses(changed, "first").isEmpty(), is(true));
+        assertThat(reloaded.invalidateChangedClasses(changed, "second"), contains(dotted("a.b.C")));
+    }
+
+    @Test
+    public void dependenciesOfStoredResultsAreAvailable() throws Exception {
+        PersistentResultCache cache = PersistentResultCache.load(new File(folder.getRoot(), "results.bin"), NO_CONFIGURATION);
+        cache.store(result, classBytes, asList(dotted("a.b.D")));
+
+        assertThat(cache.dependenciesOf(dotted("a.b.C")), contains(dotted("a.b.D")));
+        assertThat(cache.dependenciesOf(dotted("a.b.Unknown")).isEmpty(), is(true));
+    }
+
+    @Test
+    public void unreadableFileIsTreatedAsEmpty() throws Exception {
+        File file = folder.newFile("results.bin");
+        Files.write(file.toPath(), new byte[] { 0, 1 });
+
+        assertThat(PersistentResultCache.load(file, NO_CONFIGURATION).size(), is(0));
+    }
+
+    private static ClassPath classpathOf(byte[] classBytes) {
+        ClassPath classpath = mock(ClassPath.class);
+        when(classpath.getResourceAsStream(anyString())).thenAnswer(invocation -> new ByteArrayInputStream(classBytes));
+        return classpath;
+    }
+
+    @Test
+    public void resultsStoredByOneBuildOfTheAnalyserAreNotReusedByAnother() throws Exception {
+        assertThat(ConfigurationFingerprint.of(NO_CONFIGURATION, "build one"),
+                not(equalTo(ConfigurationFingerprint.of(NO_CONFIGURATION, "build two"))));
+    }
+
+    @Test
+    public void theBuildOfTheAnalyserIsIdentifiedByItsOwnClasses() throws Exception {
+        String build = ConfigurationFingerprint.analyserBuild();
+
+        assertThat(build, not(startsWith("unknown build")));
+        assertThat(ConfigurationFingerprint.analyserBuild(), equalTo(build));
+    }
+}
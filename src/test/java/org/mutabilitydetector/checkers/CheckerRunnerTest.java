@@ -21,15 +21,28 @@ package org.mutabilitydetector.checkers;
  */
 
 
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
 import com.google.common.base.Throwables;
 import org.junit.Test;
 import org.mutabilitydetector.AnalysisError;
 import org.mutabilitydetector.AnalysisResult;
 import org.mutabilitydetector.IsImmutable;
+import org.mutabilitydetector.asmoverride.ParseDepth;
 import org.mutabilitydetector.benchmarks.ImmutableExample;
+import org.mutabilitydetector.benchmarks.MutableByExtendingMutableType;
 import org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
 
 import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
@@ -39,6 +52,10 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mutabilitydetector.TestUtil.testingVerifierFactory;
 import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.FAIL_FAST;
 import static org.mutabilitydetector.locations.Dotted.fromClass;
 
@@ -139,6 +156,120 @@ public class CheckerRunnerTest {
                         "dependencies outwith the given class path."));
     }
 
+    @Test
+    public void runningAllCheckersReadsTheClassOnlyOnce() throws Exception {
+        ClassPath classPath = spy(new ClassPathFactory().createFromJVM());
+        CheckerRunner checkerRunner = CheckerRunner.createWithClasspath(classPath, FAIL_FAST);
+
+        List<CheckerResult> results = checkerRunner.runAll(
+                asList(new CanSubclassChecker(), new PublishedNonFinalFieldChecker(), new NonFinalFieldChecker()),
+                fromClass(ImmutableExample.class),
+                Collections.<AnalysisResult>emptyList());
+
+        assertThat(results, hasSize(3));
+        verify(classPath, times(1)).getResourceAsStream(fromClass(ImmutableExample.class).asResource());
+    }
+
+    @Test
+    public void errorInOneCheckerDoesNotPreventOtherCheckersFromRunning() throws Exception {
+        CheckerRunner checkerRunner = CheckerRunner.createWithCurrentClasspath(ExceptionPolicy.CARRY_ON);
+
+        List<CheckerResult> results = checkerRunner.runAll(
+                asList(checkerWhichThrows(new NullPointerException()), new CanSubclassChecker()),
+                fromClass(MutableByExtendingMutableType.class),
+                Collections.<AnalysisResult>emptyList());
+
+        assertThat(results.get(0).isImmutable, is(IsImmutable.COULD_NOT_ANALYSE));
+        assertThat(results.get(0).errors, hasSize(1));
+        assertThat(results.get(1).isImmutable, is(IsImmutable.NOT_IMMUTABLE));
+        assertThat(results.get(1).errors, hasSize(0));
+    }
+
+    @Test
+    public void checkersWhichOnlyNeedDeclarationsAreNotGivenMethodBodies() throws Exception {
+        CodeObservingChecker checker = new CodeObservingChecker(ParseDepth.FIELDS);
+
+        CheckerRunner.createWithCurrentClasspath(FAIL_FAST)
+                .runAll(asList(checker, new CanSubclassChecker()), fromClass(ImmutableExample.class), Collections.<AnalysisResult>emptyList());
+
+        assertThat(checker.methods > 0, is(true));
+        assertThat(checker.methodBodies, is(0));
+    }
+
+    @Test
+    public void classIsReadDeeplyEnoughForTheDeepestChecker() throws Exception {
+        CodeObservingChecker fieldsOnly = new CodeObservingChecker(ParseDepth.FIELDS);
+        CodeObservingChecker needsCode = new CodeObservingChecker(ParseDepth.CODE);
+
+        CheckerRunner.createWithCurrentClasspath(FAIL_FAST)
+                .runAll(asList(fieldsOnly, needsCode), fromClass(ImmutableExample.class), Collections.<AnalysisResult>emptyList());
+
+        assertThat(needsCode.methodBodies > 0, is(true));
+        assertThat(needsCode.lineNumbers, is(0));
+    }
+
+    @Test
+    public void singleVisitorIsGivenDebugInformationOnlyWhenItAsksForItAll() throws Exception {
+        CodeObservingChecker needsCode = new CodeObservingChecker(ParseDepth.CODE);
+        CodeObservingChecker needsEverything = new CodeObservingChecker(ParseDepth.FULL);
+        CheckerRunner checkerRunner = CheckerRunner.createWithCurrentClasspath(FAIL_FAST);
+
+        checkerRunner.run(needsCode, fromClass(ImmutableExample.class), Collections.<AnalysisResult>emptyList());
+        checkerRunner.run(needsEverything, fromClass(ImmutableExample.class), Collections.<AnalysisResult>emptyList());
+
+        assertThat(needsCode.lineNumbers, is(0));
+        assertThat(needsEverything.lineNumbers > 0, is(true));
+    }
+
+    @Test
+    public void runningUntilAConclusiveResultSkipsTheRemainingCheckers() throws Exception {
+        CodeObservingChecker notReached = new CodeObservingChecker(ParseDepth.CODE);
+
+        List<CheckerResult> results = CheckerRunner.createWithCurrentClasspath(FAIL_FAST).runUntil(
+                asList(new CanSubclassChecker(), notReached),
+                fromClass(MutableByExtendingMutableType.class),
+                Collections.<AnalysisResult>emptyList(),
+                result -> result.isImmutable == IsImmutable.NOT_IMMUTABLE);
+
+        assertThat(results, hasSize(1));
+        assertThat(results.get(0).isImmutable, is(IsImmutable.NOT_IMMUTABLE));
+        assertThat(notReached.methods, is(0));
+    }
+
+    @Test
+    public void runningUntilAConclusiveResultReadsTheClassDeeperOnlyWhenACheckerNeedsIt() throws Exception {
+        CodeObservingChecker fieldsOnly = new CodeObservingChecker(ParseDepth.FIELDS);
+        CodeObservingChecker needsCode = new CodeObservingChecker(ParseDepth.CODE);
+
+        List<CheckerResult> results = CheckerRunner.createWithCurrentClasspath(FAIL_FAST).runUntil(
+                asList(fieldsOnly, needsCode),
+                fromClass(ImmutableExample.class),
+                Collections.<AnalysisResult>emptyList(),
+                result -> result.isImmutable == IsImmutable.NOT_IMMUTABLE);
+
+        assertThat(results, hasSize(2));
+        assertThat(fieldsOnly.methodBodies, is(0));
+        assertThat(needsCode.methodBodies > 0, is(true));
+    }
+
+    @Test
+    public void checkersSharingFramesAreToldTheDepthTheClassWasActuallyReadAt() throws Exception {
+        MethodFrameCache sharedFrames = new MethodFrameCache(testingVerifierFactory());
+        CheckerRunner checkerRunner = CheckerRunner.createWithCurrentClasspath(FAIL_FAST);
+
+        checkerRunner.runUntil(asList(new FrameSharingChecker(sharedFrames, ParseDepth.CODE)),
+                fromClass(MethodFrameCacheTest.AssignsFields.class),
+                Collections.<AnalysisResult>emptyList(),
+                result -> false);
+        List<CheckerResult> results = checkerRunner.runAll(
+                asList(new FrameSharingChecker(sharedFrames, ParseDepth.CODE), new FrameSharingChecker(sharedFrames, ParseDepth.FULL)),
+                fromClass(MethodFrameCacheTest.AssignsFields.class),
+                Collections.<AnalysisResult>emptyList());
+
+        assertThat(results.get(0).errors, hasSize(0));
+        assertThat(results.get(1).errors, hasSize(0));
+    }
+
     private AsmMutabilityChecker checkerWhichThrows(Throwable toBeThrown) {
         return new ExceptionThrowingMutabilityChecker(toBeThrown);
     }
@@ -157,4 +288,64 @@ public class CheckerRunnerTest {
         }
     }
 
+    private static class CodeObservingChecker extends AsmMutabilityChecker {
+
+        private final ParseDepth parseDepth;
+        int methods = 0;
+        int methodBodies = 0;
+        int lineNumbers = 0;
+
+        CodeObservingChecker(ParseDepth parseDepth) {
+            this.parseDepth = parseDepth;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            methods++;
+            return new MethodVisitor(Opcodes.ASM5) {
+                @Override
+                public void visitCode() {
+                    methodBodies++;
+                }
+
+                @Override
+                public void visitLineNumber(int line, Label start) {
+                    lineNumbers++;
+                }
+            };
+        }
+
+        @Override
+        public ParseDepth parseDepth() {
+            return parseDepth;
+        }
+    }
+
+    private static class FrameSharingChecker extends AsmMutabilityChecker {
+
+        private final MethodFrameCache frameCache;
+        private final ParseDepth parseDepth;
+
+        FrameSharingChecker(MethodFrameCache frameCache, ParseDepth parseDepth) {
+            this.frameCache = frameCache;
+            this.parseDepth = parseDepth;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            return new FieldAssignmentVisitor(ownerClass, access, name, desc, signature, exceptions, frameCache, depthRead()) {
+                @Override
+                protected void visitFieldAssignmentFrame(Frame<BasicValue> assignmentFrame,
+                                                         FieldInsnNode fieldInsnNode,
+                                                         BasicValue stackValue) {
+                }
+            };
+        }
+
+        @Override
+        public ParseDepth parseDepth() {
+            return parseDepth;
+        }
+    }
+
 }
@@ -0,0 +1,109 @@
+package org.mutabilitydetector.checkers;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mutabilitydetector.TestUtil.testingVerifierFactory;
+import static org.mutabilitydetector.asmoverride.ParseDepth.CODE;
+import static org.mutabilitydetector.asmoverride.ParseDepth.FULL;
+
+import org.junit.Test;
+import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
+import org.mutabilitydetector.asmoverride.ParseDepth;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
+
+public class MethodFrameCacheTest {
+
+    public static final class AssignsFields {
+        private int first;
+        private int second;
+
+        public void setFirst(int first) {
+            this.first = first;
+        }
+
+        public void setSecond(int second) {
+            this.second = second;
+        }
+    }
+
+    private final String owner = Type.getInternalName(AssignsFields.class);
+    private final AsmVerifierFactory verifierFactory = spy(testingVerifierFactory());
+    private final MethodFrameCache frameCache = new MethodFrameCache(verifierFactory);
+
+    @Test
+    public void framesForTheSameMethodAreOnlyComputedOnce() throws Exception {
+        Frame<BasicValue>[] first = frameCache.framesOf(owner, readMethod("setFirst", CODE), CODE);
+        Frame<BasicValue>[] second = frameCache.framesOf(owner, readMethod("setFirst", CODE), CODE);
+
+        assertThat(second, sameInstance(first));
+        verify(verifierFactory, times(1)).interpreter();
+    }
+
+    @Test
+    public void framesForDifferentMethodsAreComputedSeparately() throws Exception {
+        Frame<BasicValue>[] first = frameCache.framesOf(owner, readMethod("setFirst", CODE), CODE);
+        Frame<BasicValue>[] second = frameCache.framesOf(owner, readMethod("setSecond", CODE), CODE);
+
+        assertThat(second, not(sameInstance(first)));
+        verify(verifierFactory, times(2)).interpreter();
+    }
+
+    @Test
+    public void framesForTheSameMethodReadAtDifferentDepthsAreComputedSeparately() throws Exception {
+        Frame<BasicValue>[] code = frameCache.framesOf(owner, readMethod("setFirst", CODE), CODE);
+        Frame<BasicValue>[] full = frameCache.framesOf(owner, readMethod("setFirst", FULL), FULL);
+
+        assertThat(full, not(sameInstance(code)));
+        assertThat(full.length, greaterThan(code.length));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsAMethodWhoseInstructionsDoNotMatchTheFramesAlreadyComputed() throws Exception {
+        frameCache.framesOf(owner, readMethod("setFirst", CODE), CODE);
+
+        frameCache.framesOf(owner, readMethod("setFirst", FULL), CODE);
+    }
+
+    private MethodNode readMethod(String name, ParseDepth depth) throws Exception {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(AssignsFields.class.getName()).accept(classNode, depth.readerFlags());
+        for (MethodNode method : classNode.methods) {
+            if (method.name.equals(name)) {
+                return method;
+            }
+        }
+        throw new AssertionError("No method named " + name);
+    }
+}
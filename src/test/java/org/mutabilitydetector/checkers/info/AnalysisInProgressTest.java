@@ -0,0 +1,108 @@
+package org.mutabilitydetector.checkers.info;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.mutabilitydetector.locations.Dotted;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.mutabilitydetector.checkers.info.AnalysisInProgress.noAnalysisUnderway;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+public class AnalysisInProgressTest {
+
+    private final Dotted a = dotted("a.A");
+    private final Dotted b = dotted("b.B");
+    private final Dotted c = dotted("c.C");
+
+    @Test
+    public void listsClassesInTheOrderTheirAnalysisStarted() {
+        AnalysisInProgress inProgress = noAnalysisUnderway().analysisStartedFor(a).analysisStartedFor(b).analysisStartedFor(c);
+
+        assertThat(noAnalysisUnderway().inProgress(), is(empty()));
+        assertThat(inProgress.inProgress(), contains(a, b, c));
+        assertThat(inProgress.inProgressSince(b), contains(b, c));
+    }
+
+    @Test
+    public void startingAnalysisOfAnotherClassLeavesTheOriginalUnchanged() {
+        AnalysisInProgress original = noAnalysisUnderway().analysisStartedFor(a);
+
+        original.analysisStartedFor(b);
+
+        assertThat(original.inProgress(), contains(a));
+        assertThat(original.contains(b), is(false));
+    }
+
+    @Test
+    public void containsClassesWhoseHashCodesAreEqualToAClassInProgress() {
+        Dotted aa = dotted("x.Aa");
+        Dotted bb = dotted("x.BB");
+        AnalysisInProgress inProgress = noAnalysisUnderway().analysisStartedFor(aa).analysisStartedFor(b);
+
+        assertThat(aa.hashCode(), is(bb.hashCode()));
+        assertThat(inProgress.contains(aa), is(true));
+        assertThat(inProgress.contains(bb), is(false));
+        assertThat(inProgress.analysisStartedFor(bb).contains(bb), is(true));
+        assertThat(inProgress.analysisStartedFor(bb).contains(aa), is(true));
+    }
+
+    @Test
+    public void containsEveryClassOfADeepChainAndNoOthers() {
+        AnalysisInProgress inProgress = noAnalysisUnderway();
+        for (int i = 0; i < 200; i++) {
+            inProgress = inProgress.analysisStartedFor(dotted("deep.Chain" + i));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            assertThat(inProgress.contains(dotted("deep.Chain" + i)), is(true));
+            assertThat(inProgress.contains(dotted("deep.NotInChain" + i)), is(false));
+        }
+        assertThat(inProgress.depth(), is(200));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void stillExposesTheClassesInProgressAsAField() {
+        AnalysisInProgress inProgress = noAnalysisUnderway().analysisStartedFor(a).analysisStartedFor(b);
+
+        assertThat(inProgress.inProgress, contains(a, b));
+        assertThat(inProgress.inProgress, equalTo(inProgress.inProgress()));
+    }
+
+    @Test
+    public void isEqualToAnotherWithTheSameClassesInTheSameOrder() {
+        AnalysisInProgress inProgress = noAnalysisUnderway().analysisStartedFor(a).analysisStartedFor(b);
+        AnalysisInProgress sameClasses = noAnalysisUnderway().analysisStartedFor(a).analysisStartedFor(b);
+
+        assertThat(inProgress, equalTo(sameClasses));
+        assertThat(inProgress.hashCode(), equalTo(sameClasses.hashCode()));
+        assertThat(inProgress.hashCode(), equalTo(ImmutableList.of(a, b).hashCode()));
+        assertThat(inProgress, not(equalTo(noAnalysisUnderway().analysisStartedFor(b).analysisStartedFor(a))));
+        assertThat(inProgress, not(equalTo(noAnalysisUnderway().analysisStartedFor(a))));
+    }
+}
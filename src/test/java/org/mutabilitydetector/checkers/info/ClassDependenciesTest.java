@@ -0,0 +1,131 @@
+package org.mutabilitydetector.checkers.info;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class ClassDependenciesTest {
+
+    private final ClassDependencies dependencies = new ClassDependencies();
+
+    @Test
+    public void recordsDependenciesInBothDirections() throws Exception {
+        dependencies.recordDependency(dotted("a.Owner"), dotted("a.FieldType"));
+        dependencies.recordDependency(dotted("a.Owner"), dotted("a.OtherFieldType"));
+        dependencies.recordDependency(dotted("a.OtherOwner"), dotted("a.FieldType"));
+
+        assertThat(dependencies.dependenciesOf(dotted("a.Owner")), containsInAnyOrder(dotted("a.FieldType"), dotted("a.OtherFieldType")));
+        assertThat(dependencies.dependentsOf(dotted("a.FieldType")), containsInAnyOrder(dotted("a.Owner"), dotted("a.OtherOwner")));
+    }
+
+    @Test
+    public void classDoesNotDependOnItself() throws Exception {
+        dependencies.recordDependency(dotted("a.Owner"), dotted("a.Owner"));
+
+        assertThat(dependencies.dependenciesOf(dotted("a.Owner")), empty());
+    }
+
+    @Test
+    public void classesAreGivenDenseIdsInOrderOfFirstAppearance() throws Exception {
+        dependencies.recordDependency(dotted("a.Owner"), dotted("a.FieldType"));
+        dependencies.recordDependency(dotted("a.OtherOwner"), dotted("a.FieldType"));
+
+        assertThat(dependencies.idOf(dotted("a.Owner")), is(0));
+        assertThat(dependencies.idOf(dotted("a.FieldType")), is(1));
+        assertThat(dependencies.idOf(dotted("a.OtherOwner")), is(2));
+        assertThat(dependencies.idOf(dotted("a.Unknown")), is(ClassDependencies.UNKNOWN_CLASS));
+        assertThat(dependencies.classNameOf(2), equalTo(dotted("a.OtherOwner")));
+        assertThat(dependencies.dependentIdsOf(1), equalTo(new int[] { 0, 2 }));
+        assertThat(dependencies.classCount(), is(3));
+    }
+
+    @Test
+    public void repeatedDependencyIsOnlyRecordedOnce() throws Exception {
+        dependencies.recordDependency(dotted("a.Owner"), dotted("a.FieldType"));
+        dependencies.recordDependency(dotted("a.Owner"), dotted("a.FieldType"));
+
+        assertThat(dependencies.edgeCount(), is(1));
+        assertThat(dependencies.dependentIdsOf(dependencies.idOf(dotted("a.FieldType"))).length, is(1));
+    }
+
+    @Test
+    public void canBeExportedInDotFormat() throws Exception {
+        dependencies.recordDependency(dotted("a.Owner"), dotted("a.FieldType"));
+        StringBuilder dot = new StringBuilder();
+
+        dependencies.writeDot(dot);
+
+        assertThat(dot.toString(), equalTo("digraph dependencies {\n  \"a.Owner\" -> \"a.FieldType\";\n}\n"));
+    }
+
+    @Test(timeout = 30000)
+    public void dependenciesRecordedConcurrentlyAreAllKept() throws Exception {
+        int threads = 8;
+        int owners = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> recorders = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                recorders.add(executor.submit(() -> {
+                    start.await();
+                    for (int owner = 0; owner < owners; owner++) {
+                        dependencies.recordDependency(dotted("a.Owner" + owner), dotted("a.FieldType"));
+                        dependencies.recordDependency(dotted("a.Owner" + owner), dotted("a.FieldType" + owner));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> recorder : recorders) {
+                recorder.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(dependencies.edgeCount(), is(owners * 2));
+        assertThat(dependencies.classCount(), is(owners * 2 + 1));
+        assertThat(dependencies.dependentsOf(dotted("a.FieldType")).size(), is(owners));
+    }
+
+    @Test
+    public void unknownClassHasNoDependenciesOrDependents() throws Exception {
+        assertThat(dependencies.dependenciesOf(dotted("a.Unknown")), empty());
+        assertThat(dependencies.dependentsOf(dotted("a.Unknown")), empty());
+    }
+}
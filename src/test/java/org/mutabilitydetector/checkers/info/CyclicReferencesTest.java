@@ -0,0 +1,155 @@
+package org.mutabilitydetector.checkers.info;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Optional;
+import org.junit.Test;
+import org.mutabilitydetector.checkers.info.CyclicReferences.CyclicReference;
+import org.mutabilitydetector.locations.Dotted;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.mutabilitydetector.checkers.info.AnalysisInProgress.noAnalysisUnderway;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+public class CyclicReferencesTest {
+
+    private final Dotted a = dotted("a.A");
+    private final Dotted b = dotted("b.B");
+    private final Dotted c = dotted("c.C");
+    private final Dotted d = dotted("d.D");
+    private final Dotted e = dotted("e.E");
+
+    private final CyclicReferences cyclicReferences = CyclicReferences.newEmptyMutableInstance();
+
+    @Test
+    public void findsNoCycleWhenFieldTypeIsNotInProgress() {
+        AnalysisInProgress inProgress = noAnalysisUnderway().analysisStartedFor(a);
+
+        assertThat(cyclicReferences.detectedBetween(b, c, inProgress).isPresent(), is(false));
+    }
+
+    @Test
+    public void cycleContainsOnlyTheClassesFromTheFieldTypeToTheOwner() {
+        AnalysisInProgress inProgress = noAnalysisUnderway().analysisStartedFor(a).analysisStartedFor(b).analysisStartedFor(c);
+
+        Optional<CyclicReference> cycle = cyclicReferences.detectedBetween(d, b, inProgress);
+
+        assertThat(cycle.get().references, contains(b, c, d));
+    }
+
+    @Test
+    public void referenceBetweenAnyMembersOfAKnownCycleIsFoundWithoutAnalysisInProgress() {
+        cyclicReferences.detectedBetween(c, a, noAnalysisUnderway().analysisStartedFor(a).analysisStartedFor(b));
+
+        Optional<CyclicReference> cycle = cyclicReferences.detectedBetween(b, c, noAnalysisUnderway());
+
+        assertThat(cycle.get().references, contains(a, b, c));
+    }
+
+    @Test
+    public void cyclesSharingAClassAreMergedIntoOneComponent() {
+        cyclicReferences.detectedBetween(b, a, noAnalysisUnderway().analysisStartedFor(a));
+        cyclicReferences.detectedBetween(d, c, noAnalysisUnderway().analysisStartedFor(c));
+        cyclicReferences.detectedBetween(c, b, noAnalysisUnderway().analysisStartedFor(b));
+
+        Optional<CyclicReference> cycle = cyclicReferences.detectedBetween(a, d, noAnalysisUnderway());
+
+        assertThat(cycle.get().references, containsInAnyOrder(a, b, c, d));
+        assertThat(cyclicReferences.detectedBetween(a, e, noAnalysisUnderway()).isPresent(), is(false));
+    }
+
+    @Test
+    public void classReferringToItselfIsACycleOfOne() {
+        Optional<CyclicReference> cycle = cyclicReferences.detectedBetween(a, a, noAnalysisUnderway());
+
+        assertThat(cycle.get().references, contains(a));
+        assertThat(cyclicReferences.detectedBetween(a, b, noAnalysisUnderway()).isPresent(), is(false));
+    }
+
+    @Test
+    public void cycleFoundAcrossThreadsJoinsAKnownComponent() {
+        cyclicReferences.detectedBetween(b, a, noAnalysisUnderway().analysisStartedFor(a));
+
+        CyclicReference cycle = cyclicReferences.detectedAcrossThreads(c, b);
+
+        assertThat(cycle.references, containsInAnyOrder(a, b, c));
+    }
+
+    @Test
+    public void cyclesMergedByManyThreadsAtOnceEndUpInOneComponent() throws Exception {
+        final int classes = 200;
+        final Dotted[] names = new Dotted[classes];
+        for (int i = 0; i < classes; i++) {
+            names[i] = dotted("cycle.C" + i);
+        }
+        int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> merges = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            merges.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int i = offset; i < classes - 1; i += 2) {
+                        cyclicReferences.detectedAcrossThreads(names[i], names[i + 1]);
+                        cyclicReferences.detectedBetween(names[i + 1], names[offset], noAnalysisUnderway());
+                    }
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> merge : merges) {
+            merge.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Optional<CyclicReference> cycle = cyclicReferences.detectedBetween(names[0], names[classes - 1], noAnalysisUnderway());
+
+        assertThat(cycle.get().references, containsInAnyOrder(names));
+    }
+
+    @Test
+    public void cyclicReferencesWithTheSameMembersAreEqualWithEqualHashCodesWhateverTheirOrder() {
+        CyclicReference forwards = new CyclicReference(a, b);
+        CyclicReference backwards = new CyclicReference(b, a);
+
+        assertThat(forwards, equalTo(backwards));
+        assertThat(forwards.hashCode(), equalTo(backwards.hashCode()));
+        assertThat(forwards, not(equalTo(new CyclicReference(a, c))));
+    }
+}
@@ -37,6 +37,7 @@ import java.util.Collections;
 
 import static java.util.Collections.singleton;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.mockito.Matchers.any;
@@ -111,6 +112,21 @@ public class MutableTypeInformationTest {
         assertThat(mutabilityLookup.foundCyclicReference, is(false));
     }
     
+    @Test
+    public void defersAnalysisOfFieldTypeWhenItIsNotAlreadyAvailable() {
+        when(session.resultsByClass()).thenReturn(Collections.<Dotted, AnalysisResult>emptyMap());
+
+        MutableTypeInformation information = MutableTypeInformation.deferringTransitiveAnalysis(session,
+                NO_CONFIGURATION,
+                CyclicReferences.newEmptyMutableInstance(),
+                new ClassDependencies());
+
+        MutabilityLookup mutabilityLookup = information.resultOf(mutabilityAskedOnBehalfOf, needToKnowMutabilityOf, NO_ANALYSIS_IN_PROGRESS);
+        assertThat(mutabilityLookup.foundCyclicReference, is(false));
+        assertThat(information.deferredAnalyses(), contains(needToKnowMutabilityOf));
+        verify(session, never()).processTransitiveAnalysis(any(Dotted.class), any(AnalysisInProgress.class));
+    }
+
     @Test
     public void canConfigureAnalysisSessionToHardcodeResultForClass() throws Exception {
         final AnalysisResult harcodedResult = AnalysisResult.analysisResult("some.type.i.say.is.Immutable", IsImmutable.IMMUTABLE);
@@ -124,5 +140,27 @@ public class MutableTypeInformationTest {
         assertThat(information.resultOf(mutabilityAskedOnBehalfOf, dotted("some.type.i.say.is.Immutable"), NO_ANALYSIS_IN_PROGRESS).result,
                 sameInstance(harcodedResult));
     }
-    
+
+    @Test
+    public void recordsThatOwnerClassDependsOnFieldClass() throws Exception {
+        when(session.resultsByClass()).thenReturn(ImmutableMap.of(needToKnowMutabilityOf, result));
+        ClassDependencies dependencies = new ClassDependencies();
+
+        MutableTypeInformation information = new MutableTypeInformation(session, NO_CONFIGURATION, CyclicReferences.newEmptyMutableInstance(), dependencies);
+        information.resultOf(mutabilityAskedOnBehalfOf, needToKnowMutabilityOf, NO_ANALYSIS_IN_PROGRESS);
+
+        assertThat(dependencies.dependenciesOf(mutabilityAskedOnBehalfOf), contains(needToKnowMutabilityOf));
+        assertThat(dependencies.dependentsOf(needToKnowMutabilityOf), contains(mutabilityAskedOnBehalfOf));
+    }
+
+    @Test
+    public void recordsThatOwnerClassDependsOnDeclarationOfAnotherClass() throws Exception {
+        ClassDependencies dependencies = new ClassDependencies();
+
+        MutableTypeInformation information = new MutableTypeInformation(session, NO_CONFIGURATION, CyclicReferences.newEmptyMutableInstance(), dependencies);
+        information.recordDeclarationDependency(mutabilityAskedOnBehalfOf, needToKnowMutabilityOf);
+
+        assertThat(dependencies.dependenciesOf(mutabilityAskedOnBehalfOf), contains(needToKnowMutabilityOf));
+    }
+
 }
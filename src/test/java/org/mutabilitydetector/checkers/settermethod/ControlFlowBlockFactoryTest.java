@@ -0,0 +1,101 @@
+package org.mutabilitydetector.checkers.settermethod;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.objectweb.asm.Opcodes.ACC_ABSTRACT;
+import static org.objectweb.asm.Opcodes.ACC_NATIVE;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.mutabilitydetector.checkers.settermethod.ControlFlowBlock.ControlFlowBlockFactory;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicInterpreter;
+import org.objectweb.asm.tree.analysis.BasicValue;
+
+public class ControlFlowBlockFactoryTest {
+
+    @Test
+    public void linksTheSameBlocksAsTheControlFlowEdgesFoundByAnalyzer() throws Exception {
+        for (Class<?> toAnalyse : new Class<?>[] { String.class, Pattern.class, ClassReader.class, ControlFlowBlock.class }) {
+            ClassNode classNode = classNodeOf(toAnalyse);
+            for (MethodNode method : classNode.methods) {
+                if ((method.access & (ACC_ABSTRACT | ACC_NATIVE)) == 0) {
+                    assertLinksMatchAnalyzer(classNode.name, method);
+                }
+            }
+        }
+    }
+
+    private static ClassNode classNodeOf(Class<?> toAnalyse) throws IOException {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(toAnalyse.getName()).accept(classNode, 0);
+        return classNode;
+    }
+
+    private static void assertLinksMatchAnalyzer(String owner, MethodNode method) throws AnalyzerException {
+        List<ControlFlowBlock> blocks = ControlFlowBlockFactory.newInstance(owner, method).getAllControlFlowBlocksForMethod();
+        Set<String> expectedLinks = linksFromAnalyzer(owner, method, blocks);
+
+        for (ControlFlowBlock predecessor : blocks) {
+            for (ControlFlowBlock successor : blocks) {
+                String link = predecessor.getBlockNumber() + "->" + successor.getBlockNumber();
+                assertThat(owner + "." + method.name + method.desc + " " + link,
+                        predecessor.isDirectPredecessorOf(successor),
+                        is(expectedLinks.contains(link)));
+            }
+        }
+    }
+
+    private static Set<String> linksFromAnalyzer(String owner, MethodNode method, List<ControlFlowBlock> blocks) throws AnalyzerException {
+        Set<String> links = new HashSet<String>();
+        new Analyzer<BasicValue>(new BasicInterpreter()) {
+            @Override
+            protected void newControlFlowEdge(int src, int dest) {
+                ControlFlowBlock srcBlock = blockCovering(src, blocks);
+                ControlFlowBlock destBlock = blockCovering(dest, blocks);
+                if (srcBlock != null && destBlock != null && srcBlock != destBlock) {
+                    links.add(srcBlock.getBlockNumber() + "->" + destBlock.getBlockNumber());
+                }
+            }
+        }.analyze(owner, method);
+        return links;
+    }
+
+    private static ControlFlowBlock blockCovering(int instructionIndex, List<ControlFlowBlock> blocks) {
+        for (ControlFlowBlock block : blocks) {
+            if (block.covers(instructionIndex)) {
+                return block;
+            }
+        }
+        return null;
+    }
+}
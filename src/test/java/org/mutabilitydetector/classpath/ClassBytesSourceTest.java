@@ -0,0 +1,84 @@
+package org.mutabilitydetector.classpath;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+import org.mutabilitydetector.locations.Dotted;
+
+import com.google.classpath.ClassPath;
+import com.google.common.io.ByteStreams;
+
+public class ClassBytesSourceTest {
+
+    private final ClassPath classpath = mock(ClassPath.class);
+
+    @Test
+    public void readsEachResourceFromTheUnderlyingClassPathOnce() throws Exception {
+        when(classpath.getResourceAsStream("a/B.class")).thenReturn(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+        ClassBytesSource source = ClassBytesSource.cached(classpath);
+
+        assertThat(source.bytesOf("a/B.class").get(), is(new byte[] { 1, 2, 3 }));
+        assertThat(ByteStreams.toByteArray(source.getResourceAsStream("a/B.class")), is(new byte[] { 1, 2, 3 }));
+        assertThat(ClassFiles.read(source, Dotted.dotted("a.B")).get(), is(new byte[] { 1, 2, 3 }));
+
+        verify(classpath, times(1)).getResourceAsStream("a/B.class");
+    }
+
+    @Test
+    public void missingResourceIsAbsentAndHasNoStream() {
+        ClassBytesSource source = ClassBytesSource.cached(classpath);
+
+        assertThat(source.bytesOf("not/There.class").isPresent(), is(false));
+        assertThat(source.getResourceAsStream("not/There.class"), nullValue());
+    }
+
+    @Test
+    public void wrappingAnExistingSourceReturnsIt() {
+        ClassBytesSource source = ClassBytesSource.cached(classpath);
+
+        assertThat(ClassBytesSource.cached(source), sameInstance(source));
+    }
+
+    @Test
+    public void evictsContentsBeyondTheMaximumSize() {
+        when(classpath.getResourceAsStream("a/B.class"))
+                .thenReturn(new ByteArrayInputStream(new byte[100]), new ByteArrayInputStream(new byte[100]));
+        when(classpath.getResourceAsStream("a/C.class")).thenReturn(new ByteArrayInputStream(new byte[100]));
+        ClassBytesSource source = ClassBytesSource.cached(classpath, 150);
+
+        source.bytesOf("a/B.class");
+        source.bytesOf("a/C.class");
+        source.bytesOf("a/B.class");
+
+        verify(classpath, times(2)).getResourceAsStream("a/B.class");
+    }
+}
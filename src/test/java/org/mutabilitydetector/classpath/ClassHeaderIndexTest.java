@@ -0,0 +1,152 @@
+package org.mutabilitydetector.classpath;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+import static org.mutabilitydetector.locations.Dotted.fromClass;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mutabilitydetector.classpath.ClassHeaderIndex.ClassHeader;
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+
+public class ClassHeaderIndexTest {
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ClassPath classpath = new ClassPathFactory().createFromJVM();
+
+    @SuppressWarnings("unused")
+    abstract static class Fixture extends AbstractList<String> implements RandomAccess, Serializable {
+        private int first;
+        private String second;
+        private static final long serialVersionUID = 1L;
+    }
+
+    interface FixtureInterface extends Serializable { }
+
+    @Test
+    public void readsAccessSuperclassInterfacesAndFieldCountFromHeader() {
+        ClassHeader header = new ClassHeaderIndex(classpath).headerOf(fromClass(Fixture.class)).get();
+
+        assertThat(header.isAbstract(), is(true));
+        assertThat(header.isInterface(), is(false));
+        assertThat(header.superClass().get(), is(fromClass(AbstractList.class)));
+        assertThat(header.interfaces(), contains(fromClass(RandomAccess.class), fromClass(Serializable.class)));
+        assertThat(header.fieldCount(), is(3));
+    }
+
+    @Test
+    public void interfacesAreAbstractInterfaces() {
+        ClassHeader header = new ClassHeaderIndex(classpath).headerOf(fromClass(FixtureInterface.class)).get();
+
+        assertThat(header.isInterface(), is(true));
+        assertThat(header.isAbstract(), is(true));
+        assertThat(header.fieldCount(), is(0));
+    }
+
+    @Test
+    public void readsClassesOutsideTheClassPathThroughTheClassLoader() {
+        ClassHeader header = new ClassHeaderIndex(classpath).headerOf(fromClass(Object.class)).get();
+
+        assertThat(header.superClass().isPresent(), is(false));
+    }
+
+    @Test
+    public void classWhichCannotBeFoundHasNoHeader() {
+        ClassHeaderIndex index = new ClassHeaderIndex(classpath);
+
+        assertThat(index.headerOf(dotted("does.not.Exist")).isPresent(), is(false));
+        assertThat(index.size(), is(1));
+    }
+
+    @Test
+    public void superclassesAndInterfacesAreNotReadUntilAskedFor() {
+        ClassHeaderIndex index = new ClassHeaderIndex(classpath);
+
+        index.headerOf(fromClass(Fixture.class));
+        assertThat(index.size(), is(1));
+
+        index.headerOf(fromClass(AbstractList.class));
+        assertThat(index.size(), is(2));
+    }
+
+    @Test
+    public void indexesABatchOfClassesInParallel() {
+        ClassHeaderIndex index = new ClassHeaderIndex(classpath);
+
+        index.index(asList(fromClass(Fixture.class), fromClass(FixtureInterface.class), fromClass(String.class)), 3);
+
+        assertThat(index.size(), is(3));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failsRatherThanLeavingThePartialIndexWhenInterrupted() {
+        ClassHeaderIndex index = new ClassHeaderIndex(classpath);
+
+        Thread.currentThread().interrupt();
+        try {
+            index.index(asList(fromClass(Fixture.class), fromClass(String.class)), 2);
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void restoresSavedHeadersWithTheSameFingerprint() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "headers.idx");
+        ClassHeaderIndex saved = new ClassHeaderIndex(classpath);
+        saved.headerOf(fromClass(Fixture.class));
+        saved.headerOf(dotted("does.not.Exist"));
+        saved.save(file, "fingerprint");
+
+        ClassHeaderIndex restored = new ClassHeaderIndex(classpath);
+        assertThat(restored.restore(file, "fingerprint"), is(1));
+        ClassHeader header = restored.headerOf(fromClass(Fixture.class)).get();
+        assertThat(header.superClass().get(), is(fromClass(AbstractList.class)));
+        assertThat(header.interfaces(), contains(fromClass(RandomAccess.class), fromClass(Serializable.class)));
+        assertThat(header.fieldCount(), is(3));
+    }
+
+    @Test
+    public void ignoresSavedHeadersWithADifferentFingerprint() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "headers.idx");
+        ClassHeaderIndex saved = new ClassHeaderIndex(classpath);
+        saved.headerOf(fromClass(Fixture.class));
+        saved.save(file, "before");
+
+        ClassHeaderIndex restored = new ClassHeaderIndex(classpath);
+        assertThat(restored.restore(file, "after"), is(0));
+        assertThat(restored.size(), is(0));
+    }
+}
@@ -23,12 +23,20 @@ package org.mutabilitydetector.cli;
 
 
 import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.mutabilitydetector.locations.Dotted.dotted;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mutabilitydetector.AnalysisResult;
 import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.checkers.MutabilityAnalysisException;
 
 public class BatchAnalysisSessionTest {
 
@@ -43,5 +51,40 @@ public class BatchAnalysisSessionTest {
         verify(underlyingSession).resultFor(dotted("a.b.C"));
         verify(underlyingSession).resultFor(dotted("d.e.F"));
     }
-    
+
+    @Test
+    public void triggersAnalysisForEachGivenClassWhenRunningInParallel() throws Exception {
+        AnalysisSession underlyingSession = Mockito.mock(AnalysisSession.class);
+
+        BatchAnalysisSession batchAnalysisSession = new BatchAnalysisSession(underlyingSession, 4);
+
+        batchAnalysisSession.runAnalysis(newArrayList(dotted("a.b.C"), dotted("d.e.F"), dotted("g.h.I")));
+
+        verify(underlyingSession).resultFor(dotted("a.b.C"));
+        verify(underlyingSession).resultFor(dotted("d.e.F"));
+        verify(underlyingSession).resultFor(dotted("g.h.I"));
+    }
+
+    @Test
+    public void givesEachResultToTheCallerAsSoonAsItIsKnown() throws Exception {
+        AnalysisSession underlyingSession = Mockito.mock(AnalysisSession.class);
+        AnalysisResult first = AnalysisResult.definitelyImmutable("a.b.C");
+        AnalysisResult second = AnalysisResult.definitelyImmutable("d.e.F");
+        when(underlyingSession.resultFor(dotted("a.b.C"))).thenReturn(first);
+        when(underlyingSession.resultFor(dotted("d.e.F"))).thenReturn(second);
+        List<AnalysisResult> given = new CopyOnWriteArrayList<>();
+
+        new BatchAnalysisSession(underlyingSession, 2).runAnalysis(newArrayList(dotted("a.b.C"), dotted("d.e.F")), given::add);
+
+        assertThat(given, containsInAnyOrder(first, second));
+    }
+
+    @Test(expected = MutabilityAnalysisException.class)
+    public void propagatesExceptionsThrownWhileRunningInParallel() throws Exception {
+        AnalysisSession underlyingSession = Mockito.mock(AnalysisSession.class);
+        when(underlyingSession.resultFor(dotted("d.e.F"))).thenThrow(new MutabilityAnalysisException("failed"));
+
+        new BatchAnalysisSession(underlyingSession, 2).runAnalysis(newArrayList(dotted("a.b.C"), dotted("d.e.F")));
+    }
+
 }
@@ -0,0 +1,134 @@
+package org.mutabilitydetector.cli;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static com.google.classpath.RegExpResourceFilter.ANY;
+import static com.google.classpath.RegExpResourceFilter.ENDS_WITH_CLASS;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.mutabilitydetector.benchmarks.cyclic.ImmutableClassA;
+import org.mutabilitydetector.locations.Dotted;
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+import com.google.classpath.RegExpResourceFilter;
+import com.google.common.base.Optional;
+
+public class ClassResourceFinderTest {
+
+    private final ClassPath classpath = new ClassPathFactory().createFromJVM();
+
+    @Test
+    public void findsTheSameClassesAsSearchingTheWholeClassPathWithinAPackage() throws Exception {
+        String[] expected = classpath.findResources("org/mutabilitydetector/benchmarks", new RegExpResourceFilter(ANY, ENDS_WITH_CLASS));
+
+        String[] found = new ClassResourceFinder(singletonList("org.mutabilitydetector.benchmarks"), emptyList())
+                .findClassResources(classpath, 4);
+
+        assertThat(found, arrayContaining(expected));
+    }
+
+    @Test
+    public void skipsExcludedPackagesAndTheirSubpackages() throws Exception {
+        String[] found = new ClassResourceFinder(
+                singletonList("org.mutabilitydetector.benchmarks"),
+                asList("org.mutabilitydetector.benchmarks.cyclic", "org.mutabilitydetector.benchmarks.settermethod"))
+                .findClassResources(classpath, 2);
+
+        assertThat(Arrays.asList(found), everyItem(startsWith("org/mutabilitydetector/benchmarks/")));
+        assertThat(Arrays.asList(found), everyItem(not(startsWith("org/mutabilitydetector/benchmarks/cyclic/"))));
+        assertThat(Arrays.asList(found), everyItem(not(startsWith("org/mutabilitydetector/benchmarks/settermethod/"))));
+        assertThat(Arrays.asList(found), hasItem("org/mutabilitydetector/benchmarks/ImmutableExample.class"));
+    }
+
+    @Test
+    public void includedPackageWhichDoesNotExistFindsNothing() throws Exception {
+        String[] found = new ClassResourceFinder(singletonList("does.not.exist"), emptyList()).findClassResources(classpath, 1);
+
+        assertThat(found, emptyArray());
+    }
+
+    @Test
+    public void looksUpListedClassesWithoutWalkingTheirPackages() throws Exception {
+        ClassResourceFinder finder = new ClassResourceFinder(
+                singletonList("org.mutabilitydetector.benchmarks"),
+                singletonList("org.mutabilitydetector.benchmarks.settermethod"));
+
+        String[] found = finder.findClassResources(classpath, asList(
+                Dotted.fromClass(ImmutableClassA.class),
+                Dotted.dotted("org.mutabilitydetector.benchmarks.DoesNotExist"),
+                Dotted.dotted("org.mutabilitydetector.benchmarks.settermethod.AssignMyField"),
+                Dotted.fromClass(String.class)));
+
+        assertThat(found, arrayContaining(ImmutableClassA.class.getName().replace('.', '/') + ".class"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failsRatherThanReturningSomeOfTheClassesWhenInterrupted() throws Exception {
+        ClassResourceFinder finder = new ClassResourceFinder(singletonList("org.mutabilitydetector.benchmarks"), emptyList());
+
+        Thread.currentThread().interrupt();
+        try {
+            finder.findClassResources(classpath, 2);
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void walksOnlyThePackageNamedAtTheStartOfAnAnchoredMatch() throws Exception {
+        String[] found = ClassResourceFinder.forMatch("^org\\.mutabilitydetector\\.benchmarks\\.cyclic\\..*", emptyList(), emptyList())
+                .findClassResources(classpath, 2);
+
+        assertThat(Arrays.asList(found), hasItem(ImmutableClassA.class.getName().replace('.', '/') + ".class"));
+        assertThat(Arrays.asList(found), everyItem(startsWith("org/mutabilitydetector/benchmarks/cyclic/")));
+    }
+
+    @Test
+    public void takesPackageOnlyFromPatternsAnchoredToTheStartOfTheClassName() throws Exception {
+        assertThat(ClassResourceFinder.anchoredPackageOf("^com\\.acme\\.billing\\..*"), is(Optional.of("com.acme.billing")));
+        assertThat(ClassResourceFinder.anchoredPackageOf("^com\\.acme\\.Bill.*"), is(Optional.of("com.acme")));
+        assertThat(ClassResourceFinder.anchoredPackageOf("com\\.acme\\.billing\\..*"), is(Optional.<String>absent()));
+        assertThat(ClassResourceFinder.anchoredPackageOf(".*"), is(Optional.<String>absent()));
+        assertThat(ClassResourceFinder.anchoredPackageOf("^Billing.*"), is(Optional.<String>absent()));
+    }
+
+    @Test
+    public void doesNotTakeAPackageWhenThePatternCouldMatchOutsideIt() throws Exception {
+        assertThat(ClassResourceFinder.anchoredPackageOf("^com\\.acme|org\\.acme"), is(Optional.<String>absent()));
+        assertThat(ClassResourceFinder.anchoredPackageOf("^com.acme\\..*"), is(Optional.<String>absent()));
+        assertThat(ClassResourceFinder.anchoredPackageOf("^com\\.acmes?\\..*"), is(Optional.of("com")));
+        assertThat(ClassResourceFinder.anchoredPackageOf("^com\\.acme\\.?Foo"), is(Optional.of("com")));
+    }
+}
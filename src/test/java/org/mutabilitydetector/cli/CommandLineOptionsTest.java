@@ -22,6 +22,7 @@ package org.mutabilitydetector.cli;
 
 
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -33,6 +34,7 @@ import java.io.PrintStream;
 
 import org.junit.After;
 import org.junit.Test;
+import org.mutabilitydetector.cli.CommandLineOptions.ReportFormat;
 import org.mutabilitydetector.cli.CommandLineOptions.ReportMode;
 
 public class CommandLineOptionsTest {
@@ -146,6 +148,148 @@ public class CommandLineOptionsTest {
         assertTrue(options.failFast());
     }
 
+    @Test
+    public void parallelismDefaultsToOne() throws Exception {
+        options = createOptions("-cp", ".");
+        assertEquals(1, options.parallelism());
+    }
+
+    @Test
+    public void canSpecifyParallelism() throws Exception {
+        options = createOptions("-cp", ".", "-parallelism", "4");
+        assertEquals(4, options.parallelism());
+
+        options = createOptions("-cp", ".", "-p", "2");
+        assertEquals(2, options.parallelism());
+    }
+
+    @Test(expected = CommandLineOptionsException.class)
+    public void throwsExceptionIfParallelismIsNotAPositiveNumber() throws Exception {
+        createOptions("-cp", ".", "-parallelism", "0");
+    }
+
+    @Test
+    public void canSpecifyResultCacheFile() throws Exception {
+        options = createOptions("-cp", ".");
+        assertFalse("By default, no result cache should be used.", options.isUsingResultCache());
+
+        options = createOptions("-cp", ".", "-resultCache", "results.bin");
+        assertTrue(options.isUsingResultCache());
+        assertEquals(new File("results.bin"), options.resultCacheFile());
+    }
+
+    @Test
+    public void canSpecifyIncrementalAnalysisWithResultCache() throws Exception {
+        options = createOptions("-cp", ".", "-resultCache", "results.bin");
+        assertFalse("By default, analysis should not be incremental.", options.incremental());
+
+        options = createOptions("-cp", ".", "-resultCache", "results.bin", "-incremental");
+        assertTrue(options.incremental());
+    }
+
+    @Test(expected = CommandLineOptionsException.class)
+    public void incrementalAnalysisRequiresResultCache() throws Exception {
+        createOptions("-cp", ".", "-incremental");
+    }
+
+    @Test
+    public void canSpecifyDependencyGraphFile() throws Exception {
+        options = createOptions("-cp", ".");
+        assertFalse(options.isWritingDependencyGraph());
+
+        options = createOptions("-cp", ".", "-dependencyGraph", "deps.dot");
+        assertTrue(options.isWritingDependencyGraph());
+        assertEquals(new File("deps.dot"), options.dependencyGraphFile());
+    }
+
+    @Test
+    public void canSpecifyHeaderIndexFile() throws Exception {
+        options = createOptions("-cp", ".");
+        assertFalse(options.isUsingHeaderIndex());
+
+        options = createOptions("-cp", ".", "-hi", "headers.idx");
+        assertTrue(options.isUsingHeaderIndex());
+        assertEquals(new File("headers.idx"), options.headerIndexFile());
+    }
+
+    @Test
+    public void canRequestVerdictOnlyAnalysis() throws Exception {
+        options = createOptions("-cp", ".");
+        assertFalse(options.verdictOnly());
+
+        options = createOptions("-cp", ".", "-vo");
+        assertTrue(options.verdictOnly());
+    }
+
+    @Test
+    public void canRequestUnsortedTextResults() throws Exception {
+        options = createOptions("-cp", ".");
+        assertFalse(options.unsorted());
+
+        options = createOptions("-cp", ".", "-us");
+        assertTrue(options.unsorted());
+    }
+
+    @Test
+    public void canSpecifyPackagesToIncludeAndExclude() throws Exception {
+        options = createOptions("-cp", ".");
+        assertTrue(options.includedPackages().isEmpty());
+        assertTrue(options.excludedPackages().isEmpty());
+
+        options = createOptions("-cp", ".", "-ip", "com.acme.billing, com.acme.shipping", "-xp", "com.acme.billing.internal");
+        assertEquals(asList("com.acme.billing", "com.acme.shipping"), options.includedPackages());
+        assertEquals(asList("com.acme.billing.internal"), options.excludedPackages());
+    }
+
+    @Test
+    public void canLimitMemoryForResultsInMegabytes() throws Exception {
+        options = createOptions("-cp", ".");
+        assertEquals(Long.MAX_VALUE, options.resultMemoryBudget());
+
+        options = createOptions("-cp", ".", "-rm", "512");
+        assertEquals(512L * 1024 * 1024, options.resultMemoryBudget());
+    }
+
+    @Test(expected = CommandLineOptionsException.class)
+    public void resultMemoryMustBePositive() throws Exception {
+        createOptions("-cp", ".", "-resultMemory", "0");
+    }
+
+    @Test
+    public void canChooseFormatOfResults() throws Exception {
+        options = createOptions("-cp", ".");
+        assertEquals(ReportFormat.TEXT, options.reportFormat());
+
+        options = createOptions("-cp", ".", "-of", "jsonl");
+        assertEquals(ReportFormat.JSONL, options.reportFormat());
+
+        options = createOptions("-cp", ".", "-format", "BINARY");
+        assertEquals(ReportFormat.BINARY, options.reportFormat());
+    }
+
+    @Test(expected = CommandLineOptionsException.class)
+    public void formatMustBeOneOfThoseSupported() throws Exception {
+        createOptions("-cp", ".", "-format", "xml");
+    }
+
+    @Test
+    public void formatOfResultsReturnedAsTextCanBeJsonLines() throws Exception {
+        options = CommandLineOptions.forResultsAsText(errorStream, "-cp", ".", "-format", "JSONL");
+        assertEquals(ReportFormat.JSONL, options.reportFormat());
+    }
+
+    @Test(expected = CommandLineOptionsException.class)
+    public void formatOfResultsReturnedAsTextCannotBeBinary() throws Exception {
+        CommandLineOptions.forResultsAsText(errorStream, "-cp", ".", "-format", "BINARY");
+    }
+
+    @Test
+    public void canAskForStatistics() throws Exception {
+        assertFalse(createOptions("-cp", ".").showStatistics());
+        assertTrue(createOptions("-cp", ".", "-st").showStatistics());
+        assertTrue(createOptions("-cp", ".", "--stats").showStatistics());
+    }
+
     @After
     public void tearDown() {
         removeTestFile();
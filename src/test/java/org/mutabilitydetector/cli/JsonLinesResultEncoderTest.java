@@ -0,0 +1,92 @@
+package org.mutabilitydetector.cli;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mutabilitydetector.AnalysisResult.analysisResult;
+import static org.mutabilitydetector.MutableReasonDetail.newFormattedMutableReasonDetail;
+import static org.mutabilitydetector.MutableReasonDetail.newMutableReasonDetail;
+import static org.mutabilitydetector.locations.CodeLocation.FieldLocation.fieldLocation;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.mutabilitydetector.AnalysisError;
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.IsImmutable;
+import org.mutabilitydetector.MutabilityReason;
+import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
+import org.mutabilitydetector.locations.CodeLocation.UnknownCodeLocation;
+
+public class JsonLinesResultEncoderTest {
+
+    private final ClassLocation owner = new ClassLocation("a.b.C");
+
+    @Test
+    public void writesReasonCodesWithTheirClassAndFieldLocations() throws Exception {
+        AnalysisResult result = analysisResult(dotted("a.b.C"),
+                IsImmutable.NOT_IMMUTABLE,
+                Arrays.asList(
+                        newMutableReasonDetail("unused", owner, MutabilityReason.CAN_BE_SUBCLASSED),
+                        newMutableReasonDetail("unused", fieldLocation("f", owner), MutabilityReason.NON_FINAL_FIELD),
+                        newMutableReasonDetail("unused", UnknownCodeLocation.UNKNOWN, MutabilityReason.CANNOT_ANALYSE)),
+                singletonList(new AnalysisError(dotted("a.b.C"), "SomeChecker", "it went wrong")));
+
+        assertThat(encode(result, false), is("{\"class\":\"a.b.C\",\"result\":\"NOT_IMMUTABLE\",\"reasons\":["
+                + "{\"reason\":\"CAN_BE_SUBCLASSED\",\"class\":\"a.b.C\"},"
+                + "{\"reason\":\"NON_FINAL_FIELD\",\"class\":\"a.b.C\",\"field\":\"f\"},"
+                + "{\"reason\":\"CANNOT_ANALYSE\"}],"
+                + "\"errors\":[{\"checker\":\"SomeChecker\",\"description\":\"it went wrong\"}]}\n"));
+    }
+
+    @Test
+    public void includesFormattedMessagesWhenAskedFor() throws Exception {
+        AnalysisResult result = analysisResult(dotted("a.b.C"),
+                IsImmutable.NOT_IMMUTABLE,
+                newFormattedMutableReasonDetail("Field [%s] is mutable", owner, MutabilityReason.NON_FINAL_FIELD, "f"));
+
+        assertThat(encode(result, true), is("{\"class\":\"a.b.C\",\"result\":\"NOT_IMMUTABLE\",\"reasons\":["
+                + "{\"reason\":\"NON_FINAL_FIELD\",\"class\":\"a.b.C\",\"message\":\"Field [f] is mutable\"}],"
+                + "\"errors\":[]}\n"));
+    }
+
+    @Test
+    public void escapesCharactersWhichCannotAppearInJsonStrings() throws Exception {
+        AnalysisResult result = analysisResult(dotted("a.b.C"),
+                IsImmutable.NOT_IMMUTABLE,
+                singletonList(newMutableReasonDetail("unused", owner, MutabilityReason.CANNOT_ANALYSE)),
+                singletonList(new AnalysisError(dotted("a.b.C"), "Checker", "\"quoted\"\\path\n\tat line\u0001")));
+
+        assertThat(encode(result, false), is("{\"class\":\"a.b.C\",\"result\":\"NOT_IMMUTABLE\",\"reasons\":["
+                + "{\"reason\":\"CANNOT_ANALYSE\",\"class\":\"a.b.C\"}],"
+                + "\"errors\":[{\"checker\":\"Checker\",\"description\":\"\\\"quoted\\\"\\\\path\\n\\tat line\\u0001\"}]}\n"));
+    }
+
+    private String encode(AnalysisResult result, boolean includeMessages) throws Exception {
+        StringWriter output = new StringWriter();
+        new JsonLinesResultEncoder(includeMessages).write(result, output);
+        return output.toString();
+    }
+}
@@ -26,26 +26,35 @@ import static java.util.Collections.singleton;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.mutabilitydetector.AnalysisResult.analysisResult;
 import static org.mutabilitydetector.MutabilityReason.CAN_BE_SUBCLASSED;
 import static org.mutabilitydetector.MutabilityReason.MUTABLE_TYPE_TO_FIELD;
+import static org.mutabilitydetector.MutableReasonDetail.newFormattedMutableReasonDetail;
 import static org.mutabilitydetector.MutableReasonDetail.newMutableReasonDetail;
 import static org.mutabilitydetector.TestUtil.unusedMutableReasonDetails;
 import static org.mutabilitydetector.locations.CodeLocation.ClassLocation.from;
 import static org.mutabilitydetector.locations.CodeLocation.ClassLocation.fromInternalName;
 import static org.mutabilitydetector.locations.Slashed.slashed;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 
 import org.junit.Test;
+import org.mutabilitydetector.AnalysisError;
 import org.mutabilitydetector.AnalysisResult;
 import org.mutabilitydetector.AnalysisSession;
 import org.mutabilitydetector.IsImmutable;
 import org.mutabilitydetector.MutableReasonDetail;
+import org.mutabilitydetector.cache.AnalysisResultCodec;
+import org.mutabilitydetector.cli.CommandLineOptions.ReportFormat;
 import org.mutabilitydetector.cli.CommandLineOptions.ReportMode;
 import org.mutabilitydetector.locations.CodeLocation.FieldLocation;
 import org.mutabilitydetector.misc.TimingUtil;
@@ -151,4 +160,114 @@ public class SessionResultsFormatterTest {
                         containsString("7 seconds runtime." + newline)
                         ));
     }
+
+    @Test
+    public void reportWritesResultsAddedAsTheyBecomeKnownSortedByClassName() throws Exception {
+        BatchAnalysisOptions options = mock(BatchAnalysisOptions.class);
+        when(options.reportMode()).thenReturn(ReportMode.ALL);
+        when(options.isUsingClassList()).thenReturn(false);
+        when(options.showSummary()).thenReturn(true);
+
+        SessionResultsFormatter formatter = new SessionResultsFormatter(options, unusedReaderFactory, mock(TimingUtil.class));
+        StringWriter output = new StringWriter();
+
+        try (SessionResultsFormatter.Report report = formatter.startTextReport(output, new SortedSpillRuns(1))) {
+            report.add(analysisResult("g.h.i", IsImmutable.NOT_IMMUTABLE, unusedMutableReasonDetails()));
+            report.add(analysisResult("a.b.c", IsImmutable.IMMUTABLE, unusedMutableReasonDetails()));
+            report.add(analysisResult("g.h.i", IsImmutable.NOT_IMMUTABLE, unusedMutableReasonDetails()));
+            report.add(analysisResult("D.e.f", IsImmutable.IMMUTABLE, unusedMutableReasonDetails()));
+            report.finish(Collections.<AnalysisError>emptyList());
+        }
+
+        assertThat(output.toString(), is(
+                "a.b.c is IMMUTABLE" + newline +
+                "D.e.f is IMMUTABLE" + newline +
+                "g.h.i is NOT_IMMUTABLE" + newline +
+                newline +
+                "\t3 Total number of classes scanned." + newline +
+                "\t2 IMMUTABLE class(es)." + newline +
+                "\t1 NOT_IMMUTABLE class(es)." + newline +
+                "\t0 seconds runtime." + newline));
+    }
+
+    @Test
+    public void unsortedTextReportWritesEachResultAsSoonAsItIsAdded() throws Exception {
+        BatchAnalysisOptions options = mock(BatchAnalysisOptions.class);
+        when(options.reportMode()).thenReturn(ReportMode.ALL);
+        when(options.reportFormat()).thenReturn(ReportFormat.TEXT);
+        when(options.unsorted()).thenReturn(true);
+        when(options.showSummary()).thenReturn(true);
+
+        SessionResultsFormatter formatter = new SessionResultsFormatter(options, unusedReaderFactory, mock(TimingUtil.class));
+        StringWriter output = new StringWriter();
+
+        try (SessionResultsFormatter.Report report = formatter.startReport(output)) {
+            report.add(analysisResult("g.h.i", IsImmutable.NOT_IMMUTABLE, unusedMutableReasonDetails()));
+            assertThat(output.toString(), is("g.h.i is NOT_IMMUTABLE" + newline));
+
+            report.add(analysisResult("a.b.c", IsImmutable.IMMUTABLE, unusedMutableReasonDetails()));
+            report.add(analysisResult("g.h.i", IsImmutable.NOT_IMMUTABLE, unusedMutableReasonDetails()));
+            report.finish(Collections.<AnalysisError>emptyList());
+        }
+
+        assertThat(output.toString(), is(
+                "g.h.i is NOT_IMMUTABLE" + newline +
+                "a.b.c is IMMUTABLE" + newline +
+                newline +
+                "\t2 Total number of classes scanned." + newline +
+                "\t1 IMMUTABLE class(es)." + newline +
+                "\t1 NOT_IMMUTABLE class(es)." + newline +
+                "\t0 seconds runtime." + newline));
+    }
+
+    @Test
+    public void jsonLinesReportWritesEachResultAsSoonAsItIsAdded() throws Exception {
+        BatchAnalysisOptions options = mock(BatchAnalysisOptions.class);
+        when(options.reportMode()).thenReturn(ReportMode.MUTABLE);
+        when(options.reportFormat()).thenReturn(ReportFormat.JSONL);
+
+        SessionResultsFormatter formatter = new SessionResultsFormatter(options, unusedReaderFactory, mock(TimingUtil.class));
+        StringWriter output = new StringWriter();
+
+        try (SessionResultsFormatter.Report report = formatter.startReport(output)) {
+            report.add(analysisResult("g.h.i", IsImmutable.NOT_IMMUTABLE,
+                    newMutableReasonDetail("message", from(slashed("g/h/i")), CAN_BE_SUBCLASSED)));
+            assertThat(output.toString(), is(
+                    "{\"class\":\"g.h.i\",\"result\":\"NOT_IMMUTABLE\",\"reasons\":[{\"reason\":\"CAN_BE_SUBCLASSED\",\"class\":\"g.h.i\"}],\"errors\":[]}\n"));
+
+            report.add(analysisResult("a.b.c", IsImmutable.IMMUTABLE, unusedMutableReasonDetails()));
+            report.finish(Collections.<AnalysisError>emptyList());
+        }
+
+        assertThat(output.toString().split("\n").length, is(1));
+    }
+
+    @Test
+    public void binaryReportWritesLengthPrefixedRecordsAfterAHeader() throws Exception {
+        BatchAnalysisOptions options = mock(BatchAnalysisOptions.class);
+        when(options.reportMode()).thenReturn(ReportMode.ALL);
+        when(options.reportFormat()).thenReturn(ReportFormat.BINARY);
+
+        SessionResultsFormatter formatter = new SessionResultsFormatter(options, unusedReaderFactory, mock(TimingUtil.class));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AnalysisResult mutable = analysisResult("g.h.i", IsImmutable.NOT_IMMUTABLE,
+                newFormattedMutableReasonDetail("Field [%s] can be reassigned", from(slashed("g/h/i")), CAN_BE_SUBCLASSED, "f"));
+        AnalysisResult immutable = AnalysisResult.definitelyImmutable("a.b.c");
+
+        try (SessionResultsFormatter.Report report = formatter.startReport(output)) {
+            report.add(mutable);
+            report.add(immutable);
+            report.finish(Collections.<AnalysisError>emptyList());
+        }
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(output.toByteArray()));
+        assertThat(input.readInt(), is(SessionResultsFormatter.BINARY_MAGIC));
+        assertThat(input.readInt(), is(SessionResultsFormatter.BINARY_FORMAT_VERSION));
+        assertThat(input.readInt(), is(AnalysisResultCodec.FORMAT_VERSION));
+        input.readInt();
+        assertThat(AnalysisResultCodec.read(input), is(mutable));
+        input.readInt();
+        assertThat(AnalysisResultCodec.read(input), is(immutable));
+        assertThat(input.read(), is(-1));
+    }
 }
@@ -0,0 +1,75 @@
+package org.mutabilitydetector.cli;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class SortedSpillRunsTest {
+
+    @Test
+    public void writesEntriesInOrderOfKeysIgnoringCase() throws Exception {
+        try (SortedSpillRuns runs = new SortedSpillRuns()) {
+            runs.add("b.C", "b.C\n");
+            runs.add("A.b", "A.b\n");
+            runs.add("a.C", "a.C\n");
+
+            StringWriter output = new StringWriter();
+            runs.writeSortedTo(output);
+
+            assertThat(output.toString(), is("A.b\na.C\nb.C\n"));
+            assertThat(runs.spilledRuns(), is(0));
+        }
+    }
+
+    @Test
+    public void mergesEntriesSpilledToSeveralRunsWithThoseStillBuffered() throws Exception {
+        try (SortedSpillRuns runs = new SortedSpillRuns(40)) {
+            for (String key : new String[] { "e", "b", "g", "a", "f", "d", "c", "h" }) {
+                runs.add(key, key + " is IMMUTABLE\n");
+            }
+
+            StringWriter output = new StringWriter();
+            runs.writeSortedTo(output);
+
+            assertThat(runs.spilledRuns(), is(2));
+            assertThat(output.toString(), is("a is IMMUTABLE\nb is IMMUTABLE\nc is IMMUTABLE\nd is IMMUTABLE\n"
+                    + "e is IMMUTABLE\nf is IMMUTABLE\ng is IMMUTABLE\nh is IMMUTABLE\n"));
+        }
+    }
+
+    @Test
+    public void keepsTextWhichIsNotAscii() throws Exception {
+        try (SortedSpillRuns runs = new SortedSpillRuns(1)) {
+            runs.add("b", "b été\n");
+            runs.add("a", "a 中\n");
+
+            StringWriter output = new StringWriter();
+            runs.writeSortedTo(output);
+
+            assertThat(output.toString(), is("a 中\nb été\n"));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.mutabilitydetector.locations;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class ClassIdsTest {
+
+    private final ClassIds ids = new ClassIds();
+
+    @Test
+    public void classesAreGivenDenseIdsInOrderOfFirstAppearance() {
+        assertThat(ids.idOf(dotted("a.First")), is(0));
+        assertThat(ids.idOf(dotted("a.Second")), is(1));
+        assertThat(ids.idOf(dotted("a.First")), is(0));
+
+        assertThat(ids.classNameOf(1), equalTo(dotted("a.Second")));
+        assertThat(ids.size(), is(2));
+    }
+
+    @Test
+    public void lookingUpAnExistingIdDoesNotGiveOne() {
+        assertThat(ids.existingIdOf(dotted("a.Unknown")), is(ClassIds.UNKNOWN_CLASS));
+        assertThat(ids.size(), is(0));
+    }
+
+    @Test
+    public void eachTableGivesItsOwnIds() {
+        ClassIds other = new ClassIds();
+        other.idOf(dotted("a.Other"));
+
+        assertThat(other.idOf(dotted("a.First")), is(1));
+        assertThat(ids.idOf(dotted("a.First")), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownIdHasNoClassName() {
+        ids.classNameOf(0);
+    }
+
+    @Test(timeout = 30000)
+    public void classesSeenConcurrentlyAreEachGivenOneId() throws Exception {
+        int threads = 8;
+        int classes = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> lookups = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                lookups.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < classes; i++) {
+                        ids.idOf(dotted("a.Class" + i));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> lookup : lookups) {
+                lookup.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids.size(), is(classes));
+        for (int id = 0; id < classes; id++) {
+            assertThat(ids.idOf(ids.classNameOf(id)), is(id));
+        }
+    }
+}
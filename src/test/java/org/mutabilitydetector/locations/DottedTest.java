@@ -0,0 +1,56 @@
+package org.mutabilitydetector.locations;
+
+/*-
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2016 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+import static org.mutabilitydetector.locations.Dotted.fromSlashedString;
+
+import org.junit.Test;
+
+public class DottedTest {
+
+    @Test
+    public void sameClassNameIsAlwaysTheSameInstance() {
+        assertThat(dotted("some.dotted.ClassName"), sameInstance(dotted("some.dotted.ClassName")));
+    }
+
+    @Test
+    public void slashedAndDottedFormsOfAClassNameAreTheSameInstance() {
+        Dotted fromDotted = dotted("some.other.ClassName");
+        Dotted fromSlashed = fromSlashedString("some/other/ClassName");
+
+        assertThat(fromSlashed, sameInstance(fromDotted));
+    }
+
+    @Test
+    public void differentClassNamesAreNotEqual() {
+        assertThat(dotted("a.First"), not(dotted("a.Second")));
+    }
+
+    @Test
+    public void resourceNameIsDerivedFromClassName() {
+        assertThat(dotted("some.pkg.ClassName").asResource(), is("some/pkg/ClassName.class"));
+    }
+}